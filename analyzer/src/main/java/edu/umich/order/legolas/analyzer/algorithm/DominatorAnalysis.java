@@ -66,6 +66,10 @@ public final class DominatorAnalysis extends ForwardFlowAnalysis<Unit, FlowSet<U
         return dominate.get(unit);
     }
 
+    public final boolean dominates(final Unit dominator, final Unit unit) {
+        return getFlowAfter(unit).contains(dominator);
+    }
+
     @Override
     protected FlowSet<Unit> newInitialFlow() {
         return fullSet.clone();
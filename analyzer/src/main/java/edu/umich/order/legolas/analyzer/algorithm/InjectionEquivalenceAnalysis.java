@@ -0,0 +1,140 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.analyzer.algorithm;
+
+import edu.umich.order.legolas.analyzer.hook.InjectionPoint;
+import edu.umich.order.legolas.common.fault.InjectionFault;
+import edu.umich.order.legolas.common.fault.InjectionFault.FaultType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import soot.Body;
+import soot.PatchingChain;
+import soot.Scene;
+import soot.SootClass;
+import soot.Trap;
+import soot.Unit;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+
+/**
+ * Group the injection points of a method into equivalence classes. Two points are equivalent if
+ * they have the same faults, each fault reaches the same handler (or none), and one point
+ * dominates the other, e.g., several I/O calls in a basic block. Injecting at any point of a class
+ * tends to produce the same failure, so the dominating point represents the class.
+ * Must run before the method is instrumented.
+ */
+public final class InjectionEquivalenceAnalysis {
+    private static int nextClassId = 0; // unique in the globe
+
+    private final Map<Unit, Integer> classIds = new HashMap<>();
+    private final Map<Unit, Boolean> representatives = new HashMap<>();
+
+    public InjectionEquivalenceAnalysis(final Body body, final List<InjectionPoint> points) {
+        final PatchingChain<Unit> units = body.getUnits();
+        final Map<Unit, Integer> indexes = new HashMap<>();
+        int index = 0;
+        for (final Unit unit : units) {
+            indexes.put(unit, index++);
+        }
+        final Map<Unit, String> signatures = new HashMap<>();
+        for (final InjectionPoint point : points) {
+            signatures.put(point.unit, signature(body, indexes, point));
+        }
+        DominatorAnalysis dominators = null;
+        if (points.size() > 1) {
+            final Map<Unit, Boolean> entryPoints = new HashMap<>();
+            entryPoints.put(units.getFirst(), false);
+            for (final Trap trap : body.getTraps()) {
+                entryPoints.put(trap.getHandlerUnit(), false);
+            }
+            dominators = new DominatorAnalysis(new ExceptionalUnitGraph(body), units, entryPoints);
+        }
+        // the root of a point is the farthest equivalent point dominating it; the dominators of a
+        // point form a chain, so the root is unique
+        final Map<Unit, Unit> roots = new HashMap<>();
+        for (final InjectionPoint point : points) {
+            Unit root = point.unit;
+            if (dominators != null) {
+                for (final InjectionPoint other : points) {
+                    if (other.unit != point.unit
+                            && signatures.get(other.unit).equals(signatures.get(point.unit))
+                            && dominators.dominates(other.unit, root)) {
+                        root = other.unit;
+                    }
+                }
+            }
+            roots.put(point.unit, root);
+            representatives.put(point.unit, root == point.unit);
+            if (root == point.unit) {
+                classIds.put(point.unit, nextClassId++);
+            }
+        }
+        for (final InjectionPoint point : points) {
+            classIds.put(point.unit, classIds.get(roots.get(point.unit)));
+        }
+    }
+
+    /**
+     * @return the faults of the point and the handler that catches each of them
+     */
+    private static String signature(final Body body, final Map<Unit, Integer> indexes,
+            final InjectionPoint point) {
+        final StringBuilder sb = new StringBuilder();
+        final int index = indexes.get(point.unit);
+        for (final InjectionFault fault : point.faults) {
+            if (fault.type == FaultType.DELAY || fault.type == FaultType.SLOWDOWN) {
+                sb.append("delay;");
+                continue;
+            }
+            SootClass exception = (SootClass) fault.exceptionClass;
+            if (exception == null) {
+                exception = Scene.v().getSootClassUnsafe(fault.exceptionName);
+            }
+            int handler = -1;
+            for (final Trap trap : body.getTraps()) {
+                if (indexes.get(trap.getBeginUnit()) <= index
+                        && index < indexes.get(trap.getEndUnit())
+                        && exception != null
+                        && InheritanceDecider.isSubtype(exception, trap.getException())) {
+                    handler = indexes.get(trap.getHandlerUnit());
+                    break;
+                }
+            }
+            sb.append(fault.exceptionId).append(':').append(handler).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return a fresh class for an injection without an invocation unit
+     */
+    public static int newClassId() {
+        return nextClassId++;
+    }
+
+    public int getClassId(final Unit unit) {
+        return classIds.get(unit);
+    }
+
+    public boolean isRepresentative(final Unit unit) {
+        return representatives.get(unit);
+    }
+}
@@ -100,7 +100,7 @@ public class InvalidInjectionFilter {
         boolean isDelayInvalid = false;
         while (iterator.hasNext()) {
             InjectionFault fault = iterator.next();
-            if (fault.type == FaultType.DELAY) {
+            if (fault.type == FaultType.DELAY || fault.type == FaultType.SLOWDOWN) {
                 if (!isDelayChecked) {
                     if (!callee.isPhantom()) {
                         if (DELAY_ONLY_IO && exceptionExtractor != null) {
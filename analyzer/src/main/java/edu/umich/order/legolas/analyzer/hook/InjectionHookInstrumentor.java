@@ -24,14 +24,17 @@ import static edu.umich.order.legolas.analyzer.util.SootUtils.getLine;
 
 import edu.umich.order.legolas.analyzer.algorithm.ExceptionExtractor;
 import edu.umich.order.legolas.analyzer.algorithm.InheritanceDecider;
+import edu.umich.order.legolas.analyzer.algorithm.InjectionEquivalenceAnalysis;
 import edu.umich.order.legolas.analyzer.algorithm.InvalidInjectionFilter;
 import edu.umich.order.legolas.analyzer.option.AnalyzerOptions;
 import edu.umich.order.legolas.analyzer.util.SootUtils;
 import edu.umich.order.legolas.common.fault.ExceptionTable;
+import edu.umich.order.legolas.common.fault.FaultSpaceManifest;
 import edu.umich.order.legolas.common.fault.InjectionFault;
 import edu.umich.order.legolas.common.fault.InjectionFault.FaultType;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import org.slf4j.Logger;
@@ -77,6 +80,8 @@ public class InjectionHookInstrumentor {
 
     private final List<InjectionPoint> injectionPoints = new ArrayList<>();
     private final List<InjectionPoint> invalidInjectionPoints = new LinkedList<>();
+    // the instrumented calls to inject, with the same arguments
+    private final List<FaultSpaceManifest.Site> injectionSites = new ArrayList<>();
 
     public InjectionHookInstrumentor(SootMethod targetMethod,
             ExceptionExtractor exceptionExtractor, List<InjectionSpec> specs,
@@ -113,9 +118,12 @@ public class InjectionHookInstrumentor {
                 continue;
             instrumentors.add(unitHookInstrumentor);
         }
+        // group the points before the instrumentation changes the body
+        final InjectionEquivalenceAnalysis equivalence =
+                new InjectionEquivalenceAnalysis(body, injectionPoints);
         int success = 0;
         for (UnitHookInstrumentor instrumentor : instrumentors) {
-            if (instrumentor.instrument())
+            if (instrumentor.instrument(equivalence))
                 success++;
         }
         if (success != injectionPoints.size()) {
@@ -126,7 +134,7 @@ public class InjectionHookInstrumentor {
         final UnitHookInstrumentor unitHookInstrumentor = new UnitHookInstrumentor(null);
         unitHookInstrumentor.processInvocation(null, filter);
         if (unitHookInstrumentor.hasFault())
-            unitHookInstrumentor.instrument();
+            unitHookInstrumentor.instrument(null);
         return injectionPoints;
     }
 
@@ -212,7 +220,8 @@ public class InjectionHookInstrumentor {
                                     break;
                                 }
                             }
-                        } else if (fault.type == FaultType.DELAY) {
+                        } else if (fault.type == FaultType.DELAY
+                                || fault.type == FaultType.SLOWDOWN) {
                             if (DELAY_FILTER && !hasIOE && !hasInterruptE) {
                                 LOG.debug("Skip delay injection to {}, which does not throw IOException or InterruptedException", methodSig);
                                 continue;
@@ -236,8 +245,8 @@ public class InjectionHookInstrumentor {
             for (InjectionFault fault:point.faults) {
                 if (fault.type == FaultType.EXCEPTION) {
                     exceptionIds.add(IntConstant.v(fault.exceptionId));
-                } else if (fault.type == FaultType.DELAY)
-                    delay = 1;
+                } else if (fault.type == FaultType.DELAY || fault.type == FaultType.SLOWDOWN)
+                    delay = 1; // the injector decides between a hang and a slowdown
             }
             return point;
         }
@@ -246,7 +255,14 @@ public class InjectionHookInstrumentor {
             return delay != 0 || !exceptionIds.isEmpty();
         }
 
-        private boolean instrument() {
+        /**
+         * @param equivalence the equivalence classes of the points, null for the method entry
+         */
+        private boolean instrument(final InjectionEquivalenceAnalysis equivalence) {
+            final int[] eids = new int[exceptionIds.size()];
+            for (int i = 0; i < eids.length; i++) {
+                eids[i] = ((IntConstant) exceptionIds.get(i)).value;
+            }
             exceptionIds.add(0, IntConstant.v(delay));
             StringBuilder sb = new StringBuilder("void inject(");
             for (int i = 0; i < exceptionIds.size(); i++) {
@@ -264,19 +280,29 @@ public class InjectionHookInstrumentor {
             }
             exceptionIds.add(IntConstant.v(lineNum));
             exceptionIds.add(StringConstant.v(methodSig));
+            final int classId = unit == null ?
+                    InjectionEquivalenceAnalysis.newClassId() : equivalence.getClassId(unit);
+            final FaultSpaceManifest.Site site = new FaultSpaceManifest.Site(uniqueId,
+                    targetMethod.getDeclaringClass().getName(), targetMethod.getName(), lineNum,
+                    methodSig, delay != 0, eids, classId,
+                    unit == null || equivalence.isRepresentative(unit), "", Collections.emptyList());
             exceptionIds.add(IntConstant.v(uniqueId++));
             sb.append(",java.lang.String,java.lang.String,int,java.lang.String,int)");
             // FIXME: ugly but simple...
             // The reason being that to instrument a call to a function with varargs, we have
             // to create a new array and do assignment, which is a hassle. The unrolling can
             // get around this issue.
+            Unit target = unit;
             if (unit == null) {
-                Unit first = units.getFirst();
-                while (AbstractStateInstrumentor.isLeadingStmt(first))
-                    first = units.getSuccOf(first);
-                return insertInjection(first, sb.toString(), exceptionIds);
+                target = units.getFirst();
+                while (AbstractStateInstrumentor.isLeadingStmt(target))
+                    target = units.getSuccOf(target);
+            }
+            if (!insertInjection(target, sb.toString(), exceptionIds)) {
+                return false;
             }
-            return insertInjection(unit, sb.toString(), exceptionIds);
+            injectionSites.add(site);
+            return true;
         }
     }
 
@@ -317,6 +343,10 @@ public class InjectionHookInstrumentor {
         return invalidInjectionPoints;
     }
 
+    public List<FaultSpaceManifest.Site> getInjectionSites() {
+        return injectionSites;
+    }
+
     public void dumpInjectionsPlain(List<InjectionPoint> points, PrintWriter writer)  {
         writer.println(targetMethod.getSignature());
         writer.println("-----");
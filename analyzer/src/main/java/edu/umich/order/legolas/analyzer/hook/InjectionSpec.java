@@ -172,6 +172,8 @@ public final class InjectionSpec {
             // specially handle delay fault injection
             if (f.equalsIgnoreCase("delay")) {
                 match_results.add(new InjectionFault(FaultType.DELAY, null, "delay", -1));
+            } else if (f.equalsIgnoreCase("slowdown")) {
+                match_results.add(new InjectionFault(FaultType.SLOWDOWN, null, "slowdown", -1));
             }
         }
         return match_results;
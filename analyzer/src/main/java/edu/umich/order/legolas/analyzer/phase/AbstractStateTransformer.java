@@ -30,15 +30,18 @@ import edu.umich.order.legolas.analyzer.hook.SerializerInstrumentor;
 import edu.umich.order.legolas.analyzer.option.AnalyzerOptions;
 import edu.umich.order.legolas.analyzer.util.FileUtils;
 import edu.umich.order.legolas.analyzer.util.SootUtils;
+import edu.umich.order.legolas.common.asm.AbstractState;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import soot.Scene;
@@ -90,7 +93,7 @@ public class AbstractStateTransformer extends SceneTransformer {
         //instrumentSerializer();
 
         // Step 5: instrument fault injection
-        injectionTransformer.transform();
+        injectionTransformer.transform(getAbstractStates());
 
         // Step 6: instrument LegolasAgent.init in main
         // TODO: add config file path
@@ -137,6 +140,24 @@ public class AbstractStateTransformer extends SceneTransformer {
         }
     }
 
+    /**
+     * @return the abstract states of each state machine class, keyed by the class name
+     */
+    private Map<String, List<AbstractState>> getAbstractStates() {
+        final Map<String, List<AbstractState>> result = new HashMap<>();
+        for (final AbstractStateMachineProcessor processor : stateMachineCandidates.values()) {
+            final List<AbstractState> states = new ArrayList<>();
+            for (final AbstractStateAnalysis analysis : processor.getAnalysesForMethods()) {
+                final String methodSig = analysis.getAnalyzedBody().getMethod().getSignature();
+                for (final int id : new TreeSet<>(analysis.getASVs().values())) {
+                    states.add(new AbstractState(methodSig, id));
+                }
+            }
+            result.put(processor.getAnalyzedClass().getName(), states);
+        }
+        return result;
+    }
+
     private void instrumentAbstractStates() {
         for (final AbstractStateMachineProcessor processor : stateMachineCandidates.values()) {
             processor.instrument();
@@ -27,15 +27,19 @@ import edu.umich.order.legolas.analyzer.hook.InjectionPoint;
 import edu.umich.order.legolas.analyzer.hook.InjectionSpec;
 import edu.umich.order.legolas.analyzer.option.AnalyzerOptions;
 import edu.umich.order.legolas.analyzer.util.FileUtils;
+import edu.umich.order.legolas.common.asm.AbstractState;
 import edu.umich.order.legolas.common.fault.ExceptionTable;
 import edu.umich.order.legolas.common.fault.ExceptionTableParser;
+import edu.umich.order.legolas.common.fault.FaultSpaceManifest;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -85,12 +89,21 @@ public class InjectionTransformer {
     }
 
     public void transform() {
-        instrumentFaultInjection(exceptionExtractor, invalidInjectionFilter,
-                injectionSpecList, exceptionTable);
+        transform(Collections.emptyMap());
     }
 
-    private void instrumentFaultInjection(ExceptionExtractor exceptionExtractor, InvalidInjectionFilter
-            invalidInjectionFilter, List<InjectionSpec> injectionSpecList, ExceptionTable exceptionTable) {
+    /**
+     * @param stateMachines the abstract states of each state machine class, for the fault space
+     */
+    public void transform(Map<String, List<AbstractState>> stateMachines) {
+        List<InjectionHookInstrumentor> instrumentors = instrumentFaultInjection(
+                exceptionExtractor, invalidInjectionFilter, injectionSpecList, exceptionTable);
+        dumpFaultSpace(instrumentors, stateMachines);
+    }
+
+    private List<InjectionHookInstrumentor> instrumentFaultInjection(
+            ExceptionExtractor exceptionExtractor, InvalidInjectionFilter invalidInjectionFilter,
+            List<InjectionSpec> injectionSpecList, ExceptionTable exceptionTable) {
         String[] package_prefix_list = AnalyzerOptions.getInstance().system_package_prefix_list;
         List<InjectionHookInstrumentor> instrumentors = new LinkedList<>();
         int instrumented_methods = 0;
@@ -142,6 +155,35 @@ public class InjectionTransformer {
             dumpExceptions(exceptionExtractor);
             dumpInjectionPoints(instrumentors);
         }
+        return instrumentors;
+    }
+
+    /**
+     * The fault space manifest is always dumped, since the injector can load it at runtime
+     */
+    protected void dumpFaultSpace(List<InjectionHookInstrumentor> instrumentors,
+            Map<String, List<AbstractState>> stateMachines) {
+        List<FaultSpaceManifest.Site> sites = new ArrayList<>();
+        for (final InjectionHookInstrumentor instrumentor : instrumentors) {
+            for (FaultSpaceManifest.Site site : instrumentor.getInjectionSites()) {
+                List<AbstractState> states = stateMachines.get(site.className);
+                if (states == null) {
+                    sites.add(site);
+                } else {
+                    sites.add(new FaultSpaceManifest.Site(site.id, site.className,
+                            site.methodName, site.lineNum, site.op, site.delay, site.eids,
+                            site.equivalence, site.representative, site.className, states));
+                }
+            }
+        }
+        File manifest = new File(AnalyzerOptions.getInstance().data_dir,
+                FaultSpaceManifest.FILE_NAME);
+        try (PrintWriter writer = new PrintWriter(manifest)) {
+            FaultSpaceManifest.write(sites, writer);
+            LOG.info("Dumped {} injection sites to {}", sites.size(), manifest);
+        } catch (IOException e) {
+            LOG.error("Failed to write fault space manifest", e);
+        }
     }
 
     protected void dumpExceptions(ExceptionExtractor exceptionExtractor) {
@@ -0,0 +1,65 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import edu.umich.order.legolas.common.agent.LegolasAgent;
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The hooks instrumented into the target systems, against the local stub server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgentBenchmark {
+    private static final String CLASS_NAME = "org.apache.zookeeper.server.quorum.Learner";
+    private static final String METHOD_SIG = "void syncWithLeader(long)";
+
+    @Setup
+    public void setup() throws RemoteException {
+        LocalStubServer.ensureStarted();
+    }
+
+    @Benchmark
+    public boolean informState() {
+        return LegolasAgent.informState(CLASS_NAME, 42, METHOD_SIG, 3);
+    }
+
+    @Benchmark
+    public void inject() throws Throwable {
+        LegolasAgent.inject(1, 3, CLASS_NAME, "syncWithLeader", 417,
+                "void writePacket(org.apache.zookeeper.server.quorum.QuorumPacket,boolean)", 7);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count, so that the contended numbers of the
+ * synchronized stub getters and the RMI connections are reported next to the single-threaded ones.
+ *
+ * Usage: BenchmarkMain [benchmark regex] [comma-separated thread counts, default 1,8,64]
+ */
+public final class BenchmarkMain {
+    public static void main(final String[] args) throws RunnerException {
+        final String include = args.length > 0 ? args[0] : "edu.umich.order.legolas";
+        final String threads = args.length > 1 ? args[1] : "1,8,64";
+        for (final String t : threads.split(",")) {
+            final Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(t.trim()))
+                    .forks(1)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
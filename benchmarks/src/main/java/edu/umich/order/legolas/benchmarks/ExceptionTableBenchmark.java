@@ -0,0 +1,71 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import edu.umich.order.legolas.common.fault.BuiltInExceptions;
+import edu.umich.order.legolas.common.fault.ExceptionTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of the exception table at agent startup and its lookups on every injection
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionTableBenchmark {
+    private static final String[] NAMES = BuiltInExceptions.exceptionNames;
+
+    private ExceptionTable table;
+
+    @Setup
+    public void setup() {
+        table = new ExceptionTable(NAMES);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ExceptionTable construct() {
+        return new ExceptionTable(NAMES);
+    }
+
+    @Benchmark
+    public int getExceptionId() {
+        return table.getExceptionId("java.net.SocketException");
+    }
+
+    @Benchmark
+    public Throwable getException() {
+        return table.getException(30);
+    }
+}
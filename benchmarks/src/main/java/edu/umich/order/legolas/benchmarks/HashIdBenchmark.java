@@ -0,0 +1,66 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import edu.umich.order.legolas.common.asm.AbstractState;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The request id computed by the exhaustive policy for every injection request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashIdBenchmark {
+    private ThreadInjectionRequest request;
+
+    @Setup
+    public void setup() {
+        // fresh strings per thread, so that no cached String hash is shared across the threads
+        request = new ThreadInjectionRequest(System.nanoTime(), 0,
+                new String("QuorumPeer[myid=1](plain=0.0.0.0:2181)"), 42,
+                new String("org.apache.zookeeper.server.quorum.Learner"),
+                new String("syncWithLeader"), 417, 123456789L, -1L, null,
+                "org.apache.zookeeper.server.quorum.Learner",
+                new AbstractState("void syncWithLeader(long)", 3),
+                new String("void writePacket(org.apache.zookeeper.server.quorum.QuorumPacket,boolean)"),
+                true, new int[]{3, 29, 30});
+    }
+
+    @Benchmark
+    public long hashId() {
+        return request.hashId();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote;
+import edu.umich.order.legolas.common.api.OrchestratorRemote;
+import edu.umich.order.legolas.common.api.RegistryFactory;
+import edu.umich.order.legolas.common.fault.BuiltInExceptions;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process server that answers the agent as cheaply as possible, so that the benchmarks
+ * measure the agent and the RMI round trip rather than the orchestrator. It never grants an
+ * injection.
+ */
+public final class LocalStubServer
+        implements OrchestratorRemote, AbstractStateServerRemote, FaultInjectorRemote {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalStubServer.class);
+
+    private static final InjectionRemoteCommand NO_INJECTION = new InjectionRemoteCommand(0, -1, -1);
+
+    private static LocalStubServer instance = null;
+
+    /**
+     * Start the server on the default RMI port (LEGOLAS_RMI_PORT) once per JVM; it has to be up
+     * before the LegolasAgent class is initialized, because the agent registers in its static block.
+     */
+    public static synchronized void ensureStarted() throws RemoteException {
+        if (instance != null) {
+            return;
+        }
+        final int port = RegistryFactory.getDefaultPort();
+        final Registry registry = RegistryFactory.getRegistry(port, true);
+        final LocalStubServer server = new LocalStubServer();
+        final Remote stub = UnicastRemoteObject.exportObject(server, 0);
+        registry.rebind(OrchestratorRemote.REMOTE_NAME, stub);
+        registry.rebind(AbstractStateServerRemote.REMOTE_NAME, stub);
+        registry.rebind(FaultInjectorRemote.REMOTE_NAME, stub);
+        instance = server;
+        LOG.info("local stub server started on port {}", port);
+    }
+
+    @Override
+    public RegistryRemoteInfo register(final long pid) {
+        return new RegistryRemoteInfo(0, BuiltInExceptions.exceptionNames);
+    }
+
+    @Override
+    public RegistryRemoteInfo register(final int sid, final long pid) {
+        return new RegistryRemoteInfo(sid, BuiltInExceptions.exceptionNames);
+    }
+
+    @Override
+    public ClientFeedbackResponse send(final ClientFeedback feedback) {
+        return new ClientFeedbackResponse(1);
+    }
+
+    @Override
+    public ClientFeedbackResponse sendBatch(final ClientFeedbackBatch batch) {
+        return new ClientFeedbackResponse(1);
+    }
+
+    @Override
+    public String[] registerClient(final int clientId, final long pid) {
+        return new String[0];
+    }
+
+    @Override
+    public DriverHostCommand pollDriverHost(final int hostId, final long pid,
+            final long timeoutMillis) {
+        return new DriverHostCommand(DriverHostCommand.EXIT, -1, null);
+    }
+
+    @Override
+    public void clientFinished(final int clientId) { }
+
+    @Override
+    public boolean informState(final StateUpdateRemoteInfo info) {
+        return true;
+    }
+
+    @Override
+    public boolean informAccess(final MetaInfoAccessRemoteInfo info) {
+        return true;
+    }
+
+    @Override
+    public boolean serverReady(final int serverId) {
+        return true;
+    }
+
+    @Override
+    public boolean serverStopped(final int serverId) {
+        return true;
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final InjectionRemoteQuery query) {
+        return NO_INJECTION;
+    }
+
+    @Override
+    public void dropInjection(final int serverId, final int trialId, final int injectionId) { }
+}
@@ -0,0 +1,363 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote.MetaInfoAccess;
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote.MetaInfoAccessRemoteInfo;
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote.StateUpdateRemoteInfo;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionLocation;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteQuery;
+import edu.umich.order.legolas.common.asm.AbstractState;
+import edu.umich.order.legolas.common.fault.BuiltInExceptions;
+import edu.umich.order.legolas.common.record.LatencyHistogram;
+import edu.umich.order.legolas.common.record.OrchestratorStats;
+import edu.umich.order.legolas.common.server.AbstractStateServer;
+import edu.umich.order.legolas.common.util.Mutex;
+import edu.umich.order.legolas.injector.server.FaultInjectorServer;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+
+/**
+ * Stress driver for the orchestrator-side pipeline: AbstractStateServer.informState and
+ * FaultInjectorServer.inject, called in-process (without RMI) from many simulated server threads,
+ * so that only the shared mutex, the ASM managers, the stats and the policy are measured.
+ *
+ * Every simulated thread issues state updates and injection queries open-loop at the configured
+ * rates, and the latency of an operation is counted from its scheduled time, so the queueing
+ * behind the mutex shows up in the tail. Each operation has its own schedule. A rate of 0 makes
+ * the thread issue that operation back to back whenever the other one is not due.
+ */
+public final class PipelineStress {
+    private static final String[] POLICIES = {"None", "StateOp", "RoundRobinStateOp", "Random", "NewState",
+            "NewStateOp", "Exhaustive", "Fate", "MetaInfo", "Coverage", "StateOpPair"};
+
+    private static final String[] STATE_MACHINES = {
+            "org.apache.zookeeper.server.quorum.Learner",
+            "org.apache.zookeeper.server.quorum.LearnerHandler",
+            "org.apache.zookeeper.server.SyncRequestProcessor",
+            "org.apache.zookeeper.server.NIOServerCnxnFactory",
+    };
+    private static final String[] OPS = {
+            "void writePacket(org.apache.zookeeper.server.quorum.QuorumPacket,boolean)",
+            "void readPacket(org.apache.zookeeper.server.quorum.QuorumPacket)",
+            "void commit()",
+            "java.nio.channels.SocketChannel accept()",
+    };
+    private static final int STATES = 8;
+    private static final int LINES = 16;
+
+    private final int servers;
+    private final int threadsPerServer;
+    private final double stateRate;
+    private final double injectRate;
+    private final long trialNano;
+
+    private final Mutex mutex = new Mutex();
+    private final OrchestratorStats stats = new OrchestratorStats();
+    private AbstractStateServer asServer;
+    private FaultInjectorServer fiServer;
+    private boolean metaInfoMode;
+
+    private volatile boolean measuring = false;
+    private volatile boolean stopped = false;
+
+    public PipelineStress(final int servers, final int threadsPerServer, final double stateRate,
+            final double injectRate, final long trialMillis) {
+        this.servers = servers;
+        this.threadsPerServer = threadsPerServer;
+        this.stateRate = stateRate;
+        this.injectRate = injectRate;
+        this.trialNano = trialMillis * 1_000_000L;
+    }
+
+    /**
+     * A simulated thread of a target server
+     */
+    private final class Worker extends Thread {
+        private final int serverId;
+        private final int threadId;
+        private final Random random;
+        final LatencyHistogram stateLatency = new LatencyHistogram();
+        final LatencyHistogram injectLatency = new LatencyHistogram();
+
+        Worker(final int serverId, final int index) {
+            super("server-" + serverId + "-thread-" + index);
+            this.serverId = serverId;
+            this.threadId = serverId * threadsPerServer + index;
+            this.random = new Random(threadId);
+            setDaemon(true);
+        }
+
+        private void informState(final int stateId) throws RemoteException {
+            if (metaInfoMode) {
+                asServer.informAccess(new MetaInfoAccessRemoteInfo(serverId,
+                        STATE_MACHINES[threadId % STATE_MACHINES.length], threadId, getName(),
+                        threadId, new MetaInfoAccess("void run()", "field" + stateId, "int",
+                        random.nextInt(LINES), System.currentTimeMillis())));
+            } else {
+                asServer.informState(new StateUpdateRemoteInfo(serverId,
+                        STATE_MACHINES[threadId % STATE_MACHINES.length], threadId, getName(),
+                        threadId, new AbstractState("void run()", stateId)));
+            }
+        }
+
+        private void inject() throws RemoteException {
+            final int line = random.nextInt(LINES);
+            final String op = OPS[line % OPS.length];
+            final InjectionLocation location = new InjectionLocation(
+                    STATE_MACHINES[threadId % STATE_MACHINES.length], "run", line, op,
+                    line * 31L + threadId % 4, line * 17L + op.hashCode());
+            fiServer.inject(new InjectionRemoteQuery(serverId, getName(), threadId, location,
+                    line % 2, new int[]{line % 3, 3 + line % 5}));
+        }
+
+        @Override
+        public void run() {
+            final long statePeriod = stateRate > 0 ? (long) (1e9 / stateRate) : 0;
+            final long injectPeriod = injectRate > 0 ? (long) (1e9 / injectRate) : 0;
+            try {
+                informState(0); // enter the state machine
+                final long begin = System.nanoTime();
+                long nextState = begin + statePeriod;
+                long nextInject = begin + injectPeriod;
+                while (!stopped) {
+                    // behind schedule, the operation counts from its scheduled time; otherwise
+                    // from the wake-up, so that the timer slack is not taken for queueing
+                    long start = System.nanoTime();
+                    final boolean isState;
+                    if (statePeriod > 0 && injectPeriod > 0) {
+                        isState = nextState <= nextInject;
+                        final long next = isState ? nextState : nextInject;
+                        if (next > start) {
+                            LockSupport.parkNanos(next - start);
+                            start = System.nanoTime();
+                        } else {
+                            start = next;
+                        }
+                    } else if (statePeriod > 0 || injectPeriod > 0) {
+                        // the paced operation when it is due, the other one back to back
+                        final long next = statePeriod > 0 ? nextState : nextInject;
+                        if (next <= start) {
+                            isState = statePeriod > 0;
+                            start = next;
+                        } else {
+                            isState = statePeriod == 0;
+                        }
+                    } else {
+                        isState = random.nextBoolean();
+                    }
+                    if (isState) {
+                        nextState += statePeriod;
+                        informState(1 + random.nextInt(STATES));
+                    } else {
+                        nextInject += injectPeriod;
+                        inject();
+                    }
+                    if (measuring) {
+                        final long latency = System.nanoTime() - start;
+                        (isState ? stateLatency : injectLatency).record(latency);
+                    }
+                }
+            } catch (final RemoteException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void setupTrial() {
+        synchronized (mutex) {
+            fiServer.setupNewTrial(true);
+            stats.init(BuiltInExceptions.exceptionNames);
+            fiServer.setReady();
+        }
+    }
+
+    /**
+     * Run one policy for the warm-up and the measured period, and print a row of results
+     */
+    public void run(final String policy, final double warmupSeconds, final double seconds,
+            final BufferedWriter csv) throws RemoteException, InterruptedException, IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("injectionPolicy", policy);
+        properties.setProperty("maxTrials", "0");
+        properties.setProperty("checkpoint", "false");
+        properties.setProperty("exhaustiveProfile", "off");
+        properties.setProperty("fate_mode", String.valueOf(policy.equals("Fate")));
+        metaInfoMode = policy.equals("MetaInfo");
+        properties.setProperty("metainfo_mode", String.valueOf(metaInfoMode));
+        // the servers are used in-process and never exported, so the registry is not contacted
+        asServer = new AbstractStateServer(stats, mutex, properties, 0, null, false);
+        fiServer = new FaultInjectorServer(stats, asServer, properties, mutex, 0, null, false);
+        for (int s = 0; s < servers; s++) {
+            asServer.createAsmManagerForServer(s, true);
+        }
+        setupTrial();
+
+        measuring = false;
+        stopped = false;
+        final Worker[] workers = new Worker[servers * threadsPerServer];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i / threadsPerServer, i % threadsPerServer);
+            workers[i].start();
+        }
+        runTrials((long) (warmupSeconds * 1e9));
+        final long[] threadIds = new long[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threadIds[i] = workers[i].getId();
+        }
+        final long allocated = getAllocatedBytes(threadIds);
+        final long start = System.nanoTime();
+        measuring = true;
+        runTrials((long) (seconds * 1e9));
+        measuring = false;
+        final long elapsed = System.nanoTime() - start;
+        final long bytes = getAllocatedBytes(threadIds) - allocated;
+        stopped = true;
+        for (final Worker worker : workers) {
+            worker.join();
+        }
+        fiServer.shutdown();
+
+        final LatencyHistogram state = new LatencyHistogram();
+        final LatencyHistogram inject = new LatencyHistogram();
+        for (final Worker worker : workers) {
+            state.merge(worker.stateLatency);
+            inject.merge(worker.injectLatency);
+        }
+        final long ops = state.getCount() + inject.getCount();
+        final String row = String.format("%s,%d,%d,%.0f,%d,%d,%d,%.0f,%d,%d,%d,%.1f,%s",
+                policy, servers, workers.length,
+                state.getCount() * 1e9 / elapsed, state.getPercentile(0.5),
+                state.getPercentile(0.99), state.getPercentile(0.999),
+                inject.getCount() * 1e9 / elapsed, inject.getPercentile(0.5),
+                inject.getPercentile(0.99), inject.getPercentile(0.999),
+                bytes < 0 ? -1.0 : bytes * 1e9 / elapsed / (1 << 20),
+                bytes < 0 || ops == 0 ? "-1" : String.valueOf(bytes / ops));
+        System.out.println(row);
+        if (csv != null) {
+            csv.write(row + "\n");
+        }
+    }
+
+    private void runTrials(final long durationNano) throws InterruptedException {
+        final long end = System.nanoTime() + durationNano;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            final long sleep = Math.min(trialNano, end - now);
+            Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L));
+            setupTrial();
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the threads so far, or -1 if the JVM cannot tell
+     */
+    private static long getAllocatedBytes(final long[] threadIds) {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        long sum = 0;
+        for (final long bytes : ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(threadIds)) {
+            if (bytes < 0) {
+                return -1;
+            }
+            sum += bytes;
+        }
+        return sum;
+    }
+
+    static final String CSV_HEADER = "policy,servers,threads,"
+            + "state-ops/s,state-p50-ns,state-p99-ns,state-p999-ns,"
+            + "inject-ops/s,inject-p50-ns,inject-p99-ns,inject-p999-ns,"
+            + "alloc-MB/s,alloc-B/op";
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLine cmd = parse(args);
+        final String[] policies = cmd.hasOption("policies") ?
+                cmd.getOptionValue("policies").split(",") : POLICIES;
+        final PipelineStress stress = new PipelineStress(
+                Integer.parseInt(cmd.getOptionValue("servers", "5")),
+                Integer.parseInt(cmd.getOptionValue("threads", "16")),
+                Double.parseDouble(cmd.getOptionValue("state-rate", "1000")),
+                Double.parseDouble(cmd.getOptionValue("inject-rate", "200")),
+                Long.parseLong(cmd.getOptionValue("trial", "1000")));
+        final double warmup = Double.parseDouble(cmd.getOptionValue("warmup", "3"));
+        final double duration = Double.parseDouble(cmd.getOptionValue("duration", "10"));
+        BufferedWriter csv = null;
+        if (cmd.hasOption("output")) {
+            csv = new BufferedWriter(new FileWriter(cmd.getOptionValue("output")));
+            csv.write(CSV_HEADER + "\n");
+        }
+        System.out.println(CSV_HEADER);
+        try {
+            for (final String policy : policies) {
+                stress.run(policy.trim(), warmup, duration, csv);
+            }
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+        }
+    }
+
+    private static CommandLine parse(final String[] args) {
+        final Options options = new Options();
+
+        options.addOption("p", "policies", true, "comma-separated injection policies (default all)");
+        options.addOption("s", "servers", true, "number of simulated servers (default 5)");
+        options.addOption("t", "threads", true, "simulated threads per server (default 16)");
+        options.addOption(null, "state-rate", true,
+                "state updates per second per thread, 0 for back to back (default 1000)");
+        options.addOption(null, "inject-rate", true,
+                "injection queries per second per thread, 0 for back to back (default 200)");
+        options.addOption(null, "trial", true, "milliseconds per simulated trial (default 1000)");
+        options.addOption(null, "warmup", true, "warm-up seconds per policy (default 3)");
+        options.addOption("d", "duration", true, "measured seconds per policy (default 10)");
+        options.addOption("o", "output", true, "the csv file for the results");
+        options.addOption("h", "help", false, "print help message");
+
+        HelpFormatter help = new HelpFormatter();
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+            if (cmd.hasOption("help")) {
+                help.printHelp("PipelineStress", options);
+                System.exit(0);
+            }
+            return cmd;
+        } catch (org.apache.commons.cli.ParseException e) {
+            help.printHelp("PipelineStress", options);
+            throw new RuntimeException("Fail to parse the args:", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.benchmarks;
+
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote;
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote.StateUpdateRemoteInfo;
+import edu.umich.order.legolas.common.api.ClientStubFactory;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionLocation;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteQuery;
+import edu.umich.order.legolas.common.api.RegistryFactory;
+import edu.umich.order.legolas.common.asm.AbstractState;
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RMI round trips through the singleton stubs of ClientStubFactory, without the agent around them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RmiBenchmark {
+    private int port;
+    private InjectionRemoteQuery query;
+    private StateUpdateRemoteInfo info;
+
+    @Setup
+    public void setup() throws RemoteException {
+        LocalStubServer.ensureStarted();
+        port = RegistryFactory.getDefaultPort();
+        final Thread current = Thread.currentThread();
+        query = new InjectionRemoteQuery(0, current.getName(), System.identityHashCode(current),
+                new InjectionLocation("org.apache.zookeeper.server.quorum.Learner",
+                        "syncWithLeader", 417, "void readPacket()", 1L, -1L),
+                1, new int[]{3});
+        info = new StateUpdateRemoteInfo(0, "org.apache.zookeeper.server.quorum.Learner", 42,
+                current.getName(), System.identityHashCode(current),
+                new AbstractState("void syncWithLeader(long)", 3));
+    }
+
+    @Benchmark
+    public FaultInjectorRemote stubLookup() {
+        return ClientStubFactory.getFaultInjectorStub(port);
+    }
+
+    @Benchmark
+    public InjectionRemoteCommand injectRoundTrip() throws RemoteException {
+        return ClientStubFactory.getFaultInjectorStub(port).inject(query);
+    }
+
+    @Benchmark
+    public boolean informStateRoundTrip() throws RemoteException {
+        final AbstractStateServerRemote stub = ClientStubFactory.getStateServerStub(port);
+        return stub.informState(info);
+    }
+}
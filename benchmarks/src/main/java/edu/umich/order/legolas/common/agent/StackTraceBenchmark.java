@@ -0,0 +1,71 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.agent;
+
+import edu.umich.order.legolas.benchmarks.LocalStubServer;
+import java.rmi.RemoteException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LegolasAgent.getStackTrace at various stack depths; it lives in the agent package because the
+ * method is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackTraceBenchmark {
+    @Param({"16", "64", "256"})
+    public int depth;
+
+    @Setup
+    public void setup() throws RemoteException {
+        LocalStubServer.ensureStarted();
+    }
+
+    private static String recurse(final int depth) {
+        if (depth > 0) {
+            return recurse(depth - 1);
+        }
+        // getStackTrace skips the leading frames of edu.* classes, as they belong to the agent;
+        // calling it from a java.* frame keeps the recursion in the trace like target system frames
+        return Optional.of(Thread.currentThread()).map(LegolasAgent::getStackTrace).get();
+    }
+
+    @Benchmark
+    public String getStackTrace() {
+        return recurse(depth);
+    }
+}
@@ -55,7 +55,9 @@ LEGOLAS_REPORTER_JAR="${LEGOLAS_HOME}/reporter/target/reporter-${VERSION}-jar-wi
 LEGOLAS_ANALYZER_MAIN=edu.umich.order.legolas.analyzer.AnalyzerMain
 LEGOLAS_INJECTOR_MAIN=edu.umich.order.legolas.injector.InjectorMain
 LEGOLAS_ORCHESTRATOR_MAIN=edu.umich.order.legolas.orchestrator.OrchestratorMain
+LEGOLAS_COORDINATOR_MAIN=edu.umich.order.legolas.orchestrator.CoordinatorMain
 LEGOLAS_REPORTER_MAIN=edu.umich.order.legolas.reporter.ReporterMain
+LEGOLAS_SIMULATOR_MAIN=edu.umich.order.legolas.injector.simulator.PolicySimulator
 
 LEGOLAS_ANALYZER_CLASSPATH="${LEGOLAS_CONF_DIR}:${LEGOLAS_ANALYZER_JAR}"
 LEGOLAS_INJECTOR_CLASSPATH="${LEGOLAS_CONF_DIR}:${LEGOLAS_INJECTOR_JAR}"
@@ -36,7 +36,7 @@ if [ ! -d ${LEGOLAS_LOGS_DIR} ]; then
 fi
 
 if [ $# -lt 1 ]; then
-  echo "Usage: $0 {analyzer|injector|reporter|orchestrator|rmi|all}  [argument ...]" >&2
+  echo "Usage: $0 {analyzer|injector|reporter|orchestrator|coordinator|simulator|rmi|all}  [argument ...]" >&2
   exit 1
 fi
 command=$1
@@ -54,6 +54,12 @@ case "$command" in
   orchestrator)
     "${JAVA}" -cp ${LEGOLAS_ORCHESTRATOR_CLASSPATH} ${LEGOLAS_ORCHESTRATOR_JAVA_OPTS} ${LEGOLAS_ORCHESTRATOR_MAIN} "$@"
     ;;
+  coordinator)
+    "${JAVA}" -cp ${LEGOLAS_ORCHESTRATOR_CLASSPATH} ${LEGOLAS_ORCHESTRATOR_JAVA_OPTS} -Dlegolas.log.file=legolas-coordinator.log ${LEGOLAS_COORDINATOR_MAIN} "$@"
+    ;;
+  simulator)
+    "${JAVA}" -cp ${LEGOLAS_INJECTOR_CLASSPATH} ${LEGOLAS_INJECTOR_JAVA_OPTS} -Dlegolas.log.file=legolas-simulator.log ${LEGOLAS_SIMULATOR_MAIN} "$@"
+    ;;
   rmi)
     CLASSPATH=${LEGOLAS_ORCHESTRATOR_CLASSPATH} $RMIREGISTRY $@ &
     if [ $? -eq 0 ]; then
@@ -63,15 +69,15 @@ case "$command" in
     fi
     ;;
   all)
+    # the orchestrator embeds the injector, the standalone one serves until it is killed
     "${JAVA}" -cp ${LEGOLAS_ANALYZER_CLASSPATH} ${LEGOLAS_ANALYZER_JAVA_OPTS} ${LEGOLAS_ANALYZER_MAIN} "$@"
-    "${JAVA}" -cp ${LEGOLAS_INJECTOR_CLASSPATH} ${LEGOLAS_INJECTOR_JAVA_OPTS} ${LEGOLAS_INJECTOR_MAIN} "$@"
     "${JAVA}" -cp ${LEGOLAS_ORCHESTRATOR_CLASSPATH} ${LEGOLAS_ORCHESTRATOR_JAVA_OPTS} ${LEGOLAS_ORCHESTRATOR_MAIN} "$@"
     ;;
   -h|--help|help)
-    echo "Usage: $0 {analyzer|injector|reporter|orchestrator|rmi|all} [argument ...]"
+    echo "Usage: $0 {analyzer|injector|reporter|orchestrator|coordinator|simulator|rmi|all} [argument ...]"
     exit 0
     ;;
   *)
-    echo "Usage: $0 {analyzer|injector|reporter|orchestrator|rmi|all} [argument ...]" >&2
+    echo "Usage: $0 {analyzer|injector|reporter|orchestrator|coordinator|simulator|rmi|all} [argument ...]" >&2
     exit 1
 esac
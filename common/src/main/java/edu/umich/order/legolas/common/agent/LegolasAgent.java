@@ -22,7 +22,6 @@ package edu.umich.order.legolas.common.agent;
 
 import edu.umich.order.legolas.common.api.AbstractStateServerRemote;
 import edu.umich.order.legolas.common.api.AbstractStateServerRemote.MetaInfoAccess;
-import edu.umich.order.legolas.common.api.AbstractStateServerRemote.MetaInfoAccessRemoteInfo;
 import edu.umich.order.legolas.common.api.AbstractStateServerRemote.StateUpdateRemoteInfo;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.FaultInjectorRemote;
@@ -38,6 +37,18 @@ import edu.umich.order.legolas.common.fault.ExceptionTableParser;
 import edu.umich.order.legolas.common.fault.InjectionManager;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,7 +76,16 @@ import org.slf4j.LoggerFactory;
 public final class LegolasAgent {
     private static final Logger LOG = LoggerFactory.getLogger(LegolasAgent.class);
 
-    private static final int delayMillis = 60 * 1000; // 1 min
+    private static final int delayMillis = 60 * 1000; // 1 min, unless the injector decides
+
+    // only used with a query deadline: the threads sending the queries, the number of deadlines
+    // missed since the previous query, and the late decisions deferred to the next occurrence of
+    // their injection sites
+    private static final int QUERY_THREADS = 16;
+    private static ExecutorService queryExecutor = null;
+    private static final AtomicInteger missedDeadlines = new AtomicInteger(0);
+    private static final Map<String, InjectionRemoteCommand> deferredCommands =
+            new ConcurrentHashMap<>();
 
     // process id of the target system
     private static final long pid;
@@ -74,6 +94,9 @@ public final class LegolasAgent {
     // currently only assigned once
     private static int serverId = -1;
 
+    // the trial the process is launched for, or -1 if unknown
+    private static final int trialId = getTrialToken();
+
     private static final LegolasAgentConfig config;
 
     private static final ExceptionTable exceptionTable;
@@ -87,6 +110,23 @@ public final class LegolasAgent {
     private static final boolean FATE_MODE = 
       Boolean.parseBoolean(System.getProperty("fate_mode", "false")); // approximate FATE (NSDI '11)
 
+    // in meta-info mode, the last access is kept in the agent, per thread or for the whole
+    // process, and attached to the injection queries instead of being sent on every access
+    private static final boolean META_INFO_PER_THREAD =
+      System.getProperty("metainfo_scope", "process").equals("thread");
+    private static volatile TimedAccess lastAccess = null;
+    private static final ThreadLocal<TimedAccess> lastThreadAccess = new ThreadLocal<>();
+
+    private static final class TimedAccess {
+        private final MetaInfoAccess access;
+        private final long nano;
+
+        private TimedAccess(final MetaInfoAccess access, final long nano) {
+            this.access = access;
+            this.nano = nano;
+        }
+    }
+
     // FIXME: it'd be better if it's a static method rather than static block
     static {
         final String name = ManagementFactory.getRuntimeMXBean().getName();
@@ -105,7 +145,9 @@ public final class LegolasAgent {
                 LOG.error("Failed to get a client for orchestrator server");
             }
             try {
-                final RegistryRemoteInfo info = stub.register(pid);
+                final int sid = getSidToken();
+                final RegistryRemoteInfo info = sid == -1 ? stub.register(pid) :
+                        stub.register(sid, pid);
                 serverId = info.serverId;
                 exceptionNames = info.exceptionNames;
                 LOG.info("Registered LegolasAgent with the orchestrator server and get server id " + serverId);
@@ -114,6 +156,52 @@ public final class LegolasAgent {
             }
         }
         exceptionTable = new ExceptionTable(exceptionNames);
+        if (config.queryDeadlineMicros > 0) {
+            LOG.info("Injection queries have a deadline of {} us, late decisions are {}",
+                    config.queryDeadlineMicros, config.deferLateDecisions ? "deferred" : "dropped");
+            // bounded, so that a stalled injector does not get a new thread per query; a query
+            // without a free thread misses its deadline
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(QUERY_THREADS,
+                    QUERY_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                        final Thread thread = new Thread(r, "LegolasAgent-query");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            queryExecutor = executor;
+        }
+    }
+
+    /**
+     * @return the server id token passed by the orchestrator, or -1 if there is none
+     */
+    private static int getSidToken() {
+        final String token = System.getenv(OrchestratorRemote.SID_TOKEN_ENV);
+        if (token == null || token.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(token.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid server id token " + token);
+            return -1;
+        }
+    }
+
+    /**
+     * @return the trial id token passed by the orchestrator, or -1 if there is none
+     */
+    private static int getTrialToken() {
+        final String token = System.getenv(OrchestratorRemote.TRIAL_TOKEN_ENV);
+        if (token == null || token.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(token.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid trial id token " + token);
+            return -1;
+        }
     }
 
     private static LegolasAgentSubstrate getSubstrate() {
@@ -153,6 +241,7 @@ public final class LegolasAgent {
         //
         final Thread current = Thread.currentThread();
         final int threadId = System.identityHashCode(current);
+        SlowdownWindows.enterState(className, methodSig, stateId);
         switch (config.agentType) {
             case STATEFUL: {
                 LegolasAgentSubstrate substrate = getSubstrate();
@@ -162,14 +251,14 @@ public final class LegolasAgent {
                 return true;
             }
             case STATELESS: {
-                AbstractStateServerRemote stub = ClientStubFactory.getStateServerStub(config.rmiPort);
+                AbstractStateServerRemote stub = ClientStubFactory.getStateServerStub(config.injectorPort);
                 if (stub == null) {
                     LOG.error("Failed to get a client stub for abstract server");
                     return false;
                 }
                 final StateUpdateRemoteInfo info = new StateUpdateRemoteInfo(
                         serverId, className, instanceId, current.getName(),
-                        threadId, new AbstractState(methodSig, stateId));
+                        threadId, new AbstractState(methodSig, stateId), trialId);
                 try {
                     return stub.informState(info);
                 } catch (RemoteException e) {
@@ -197,21 +286,15 @@ public final class LegolasAgent {
                 return true;
             }
             case STATELESS: {
-                AbstractStateServerRemote stub = ClientStubFactory.getStateServerStub(config.rmiPort);
-                if (stub == null) {
-                    LOG.error("Failed to get a client stub for abstract server");
-                    return false;
-                }
-                final MetaInfoAccessRemoteInfo info = new MetaInfoAccessRemoteInfo(serverId,
-                        className, instanceId, current.getName(), threadId,
-                        new MetaInfoAccess(methodSig, variable,
-                        type, accessId, now));
-                try {
-                    return stub.informAccess(info);
-                } catch (RemoteException e) {
-                    LOG.error("Failed to call rmi inform", e);
-                    return false;
+                // only the last access matters, it goes with the next injection query
+                final TimedAccess access = new TimedAccess(new MetaInfoAccess(methodSig,
+                        variable, type, accessId, now), System.nanoTime());
+                if (META_INFO_PER_THREAD) {
+                    lastThreadAccess.set(access);
+                } else {
+                    lastAccess = access;
                 }
+                return true;
             }
             default: {
                 LOG.error("Unsupported agent type " + config.agentType);
@@ -248,6 +331,8 @@ public final class LegolasAgent {
      */
     public static void inject(int delay, int[] exceptionIds, String className,
             String methodName, int lineNum, String invokedMethodSig, int id) throws Throwable {
+        // slowdown windows are enforced without asking the injector
+        SlowdownWindows.apply(className, methodName, lineNum, invokedMethodSig);
         final Thread current = Thread.currentThread();
         final int threadId = System.identityHashCode(current);
         String stackTrace = "";
@@ -276,7 +361,7 @@ public final class LegolasAgent {
                 return;
             }
             case STATELESS: {
-                final FaultInjectorRemote stub = ClientStubFactory.getFaultInjectorStub(config.rmiPort);
+                final FaultInjectorRemote stub = ClientStubFactory.getFaultInjectorStub(config.injectorPort);
                 if (stub == null) {
                     LOG.error("Failed to get a client stub for abstract server");
                     return;
@@ -284,18 +369,43 @@ public final class LegolasAgent {
                 final InjectionLocation location = new InjectionLocation(className,
                         methodName, lineNum, invokedMethodSig, 
                         stackTrace.hashCode(), failureId);
-                final InjectionRemoteQuery query = new InjectionRemoteQuery(serverId,
-                        current.getName(), threadId, location, delay, exceptionIds);
+                final TimedAccess access = !META_INFO_MODE ? null
+                        : META_INFO_PER_THREAD ? lastThreadAccess.get() : lastAccess;
+                final MetaInfoAccess lastMetaInfoAccess = access == null ? null : access.access;
+                final long accessAgeNanos = access == null ? -1 : System.nanoTime() - access.nano;
                 InjectionRemoteCommand command;
-                try {
-                    command = stub.inject(query);
-                } catch (RemoteException e) {
-                    LOG.error("Failed to call rmi inform", e);
-                    return;
-                }
-                if (command == null) {
-                    LOG.error("fail to get the injection command");
-                    return;
+                if (queryExecutor == null) {
+                    final InjectionRemoteQuery query = new InjectionRemoteQuery(serverId,
+                            current.getName(), threadId, location, delay, exceptionIds, 0, 0, 0,
+                            lastMetaInfoAccess, accessAgeNanos, trialId);
+                    try {
+                        command = stub.inject(query);
+                    } catch (RemoteException e) {
+                        LOG.error("Failed to call rmi inform", e);
+                        return;
+                    }
+                    if (command == null) {
+                        LOG.error("fail to get the injection command");
+                        return;
+                    }
+                } else {
+                    final String site = className + "." + methodName + ":" + lineNum + " "
+                            + invokedMethodSig;
+                    command = deferredCommands.remove(site);
+                    if (command != null) {
+                        LOG.info("applying the late injection {} at its next occurrence",
+                                command.id);
+                    } else {
+                        command = queryWithDeadline(stub, new InjectionRemoteQuery(serverId,
+                                current.getName(), threadId, location, delay, exceptionIds,
+                                missedDeadlines.getAndSet(0),
+                                config.deferLateDecisions ? 0 : config.queryDeadlineMicros,
+                                config.deferLateDecisions ? 0 : System.nanoTime(),
+                                lastMetaInfoAccess, accessAgeNanos, trialId), site);
+                        if (command == null) {
+                            return;
+                        }
+                    }
                 }
                 if (command.id == -1) {
                     // no injection
@@ -305,12 +415,20 @@ public final class LegolasAgent {
                     stackTrace = getStackTrace(current);
                 }
                 LOG.info("the stack trace of injection " + command.id + " is " + stackTrace);
+                if (command.slowdown != null) {
+                    SlowdownWindows.open(command.slowdown, className, methodName, lineNum,
+                            invokedMethodSig);
+                    SlowdownWindows.apply(className, methodName, lineNum, invokedMethodSig);
+                }
                 if (command.delay == 1) {
+                    final long millis = command.delayMillis > 0 ? command.delayMillis : delayMillis;
                     try {
-                        LOG.info("LegolasAgent injecting delay");
-                        Thread.sleep(delayMillis);
-                    } catch (final Exception ignored) {
+                        LOG.info("LegolasAgent injecting delay of {} ms", millis);
+                        Thread.sleep(millis);
+                    } catch (final InterruptedException e) {
                         LOG.error("the delay injection is paused");
+                        // the interruption is meant for the target
+                        current.interrupt();
                     }
                 }
                 if (command.eid != -1) {
@@ -329,7 +447,62 @@ public final class LegolasAgent {
         }
     }
 
-    private static String getStackTrace(final Thread current) {
+    /**
+     * Send the query from a query thread and wait for the answer until the deadline. When late
+     * decisions are dropped, the injector grants nothing after the deadline, and the agent waits
+     * for a grace period past it so that a grant made just in time is not lost on its way back.
+     *
+     * @return the command, or null if the answer is late or failed, i.e., no injection
+     */
+    private static InjectionRemoteCommand queryWithDeadline(final FaultInjectorRemote stub,
+            final InjectionRemoteQuery query, final String site) {
+        final CompletableFuture<InjectionRemoteCommand> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return stub.inject(query);
+                } catch (final RemoteException e) {
+                    throw new CompletionException(e);
+                }
+            }, queryExecutor);
+        } catch (final RejectedExecutionException e) {
+            // every query thread is waiting for the injector
+            missedDeadlines.incrementAndGet();
+            return null;
+        }
+        final long waitMicros = config.queryDeadlineMicros
+                + (config.deferLateDecisions ? 0 : FaultInjectorRemote.QUERY_GRACE_MICROS);
+        try {
+            return future.get(waitMicros, TimeUnit.MICROSECONDS);
+        } catch (final TimeoutException e) {
+            missedDeadlines.incrementAndGet();
+            future.thenAccept(command -> {
+                if (command == null || command.id == -1) {
+                    return;
+                }
+                if (config.deferLateDecisions) {
+                    deferredCommands.put(site, command);
+                } else {
+                    // granted in time but not received in time, rolled back by the injector
+                    try {
+                        stub.dropInjection(query.serverId, query.trialId, command.id);
+                    } catch (final RemoteException ex) {
+                        LOG.warn("Failed to report the dropped injection {}", command.id, ex);
+                    }
+                }
+            });
+            return null;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final ExecutionException e) {
+            LOG.error("Failed to call rmi inform", e.getCause());
+            return null;
+        }
+    }
+
+    // package-private for the stack trace benchmark
+    static String getStackTrace(final Thread current) {
         final StackTraceElement[] stackTraceElements = current.getStackTrace();
         int iter = 1;
         while (iter < stackTraceElements.length &&
@@ -393,9 +566,9 @@ public final class LegolasAgent {
 
     /**
      * Invoked by the hook in a target system to indicate that the target system has successfully finished
-     * initialization and is ready to take requests.
+     * initialization and is ready to take requests. The orchestrator treats the node as ready as
+     * soon as this is received, without waiting for its log or port probes.
      * TODO: refactor
-     * TODO: to be used
      * @return
      */
     public static boolean sysReady() {
@@ -20,6 +20,8 @@
  */
 package edu.umich.order.legolas.common.agent;
 
+import edu.umich.order.legolas.common.api.FaultInjectorRemote;
+import edu.umich.order.legolas.common.api.RegistryFactory;
 import java.io.File;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +65,13 @@ public final class LegolasAgentConfig {
 
     // TODO: specify port for each service
     public final int rmiPort;
+    // the port of the state server and the fault injector, see InjectorMain
+    public final int injectorPort;
+
+    // the deadline of an injection query, 0 to block until the injector answers
+    public final long queryDeadlineMicros;
+    // whether a decision that misses the deadline is applied at the next occurrence of the site
+    public final boolean deferLateDecisions;
 
     // config keys
     private static final String KEY_AGENT_TYPE = "agent_type";
@@ -81,7 +90,11 @@ public final class LegolasAgentConfig {
         localMode = false;
         agentType = LegolasAgentType.STATELESS;
         exceptionTablePath = "##"; // to be modified
-        rmiPort = 1099;
+        rmiPort = RegistryFactory.getDefaultPort();
+        injectorPort = RegistryFactory.getInjectorPort();
+        final String deadline = System.getenv(FaultInjectorRemote.QUERY_DEADLINE_ENV);
+        queryDeadlineMicros = deadline == null || deadline.isEmpty() ? 0 : Long.parseLong(deadline);
+        deferLateDecisions = "defer".equals(System.getenv(FaultInjectorRemote.LATE_DECISION_ENV));
         if (!configFile.exists()) {
             LOG.warn("No configuration file for the agent found, use default configs");
             return;
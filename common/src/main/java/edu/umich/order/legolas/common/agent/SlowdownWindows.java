@@ -0,0 +1,130 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.agent;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.Slowdown;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The active slowdown windows of this process, enforced locally on every injection hook
+ */
+final class SlowdownWindows {
+    private static final Logger LOG = LoggerFactory.getLogger(SlowdownWindows.class);
+
+    private static final class Window {
+        private final Slowdown slowdown;
+        private final String className;
+        private final String methodName;
+        private final int lineNum;
+        private final String op;
+        private final long deadlineMillis;
+
+        private Window(final Slowdown slowdown, final String className, final String methodName,
+                final int lineNum, final String op) {
+            this.slowdown = slowdown;
+            this.className = className;
+            this.methodName = methodName;
+            this.lineNum = lineNum;
+            this.op = op;
+            this.deadlineMillis = System.currentTimeMillis() + slowdown.windowMillis;
+        }
+
+        private boolean matches(final String className, final String methodName,
+                final int lineNum, final String op, final ThreadState state) {
+            if (slowdown.stateScope) {
+                return slowdown.state.id == state.stateId
+                        && Objects.equals(slowdown.stateMachineName, state.className)
+                        && Objects.equals(slowdown.state.methodSig, state.methodSig);
+            }
+            return lineNum == this.lineNum && op.equals(this.op)
+                    && methodName.equals(this.methodName) && className.equals(this.className);
+        }
+    }
+
+    /**
+     * The last state informed by a thread, only kept for the state scope
+     */
+    private static final class ThreadState {
+        private String className = null;
+        private String methodSig = null;
+        private int stateId = 0;
+    }
+
+    private static final List<Window> windows = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<ThreadState> states = ThreadLocal.withInitial(ThreadState::new);
+
+    static void enterState(final String className, final String methodSig, final int stateId) {
+        final ThreadState state = states.get();
+        state.className = className;
+        state.methodSig = methodSig;
+        state.stateId = stateId;
+    }
+
+    static void open(final Slowdown slowdown, final String className, final String methodName,
+            final int lineNum, final String op) {
+        windows.add(new Window(slowdown, className, methodName, lineNum, op));
+        LOG.info("LegolasAgent opening slowdown window {}", slowdown);
+    }
+
+    /**
+     * Sleep for the latency of the first active window that matches the call, if any
+     */
+    static void apply(final String className, final String methodName, final int lineNum,
+            final String op) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final ThreadState state = states.get();
+        for (final Window window : windows) {
+            if (window.deadlineMillis <= now) {
+                windows.remove(window);
+                continue;
+            }
+            if (window.matches(className, methodName, lineNum, op, state)) {
+                final long latency = Math.min(sample(window.slowdown),
+                        window.deadlineMillis - now);
+                try {
+                    Thread.sleep(latency);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+        }
+    }
+
+    private static long sample(final Slowdown slowdown) {
+        final ThreadLocalRandom rand = ThreadLocalRandom.current();
+        switch (slowdown.distribution) {
+            case "uniform"     : return rand.nextLong(slowdown.latencyMillis + 1);
+            case "exponential" :
+                return (long) (-slowdown.latencyMillis * Math.log(1 - rand.nextDouble()));
+            case "fixed"       :
+            default            : return slowdown.latencyMillis;
+        }
+    }
+}
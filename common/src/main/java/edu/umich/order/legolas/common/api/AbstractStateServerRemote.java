@@ -57,14 +57,22 @@ public interface AbstractStateServerRemote extends Remote {
         public final int instanceId;
         public final String threadName;
         public final int threadId;
+        // the trial the agent is launched for, or -1 if unknown
+        public final int trialId;
 
         public InformRemoteInfo(int serverId, String className, int instanceId, 
             String threadName, int threadId) {
+            this(serverId, className, instanceId, threadName, threadId, -1);
+        }
+
+        public InformRemoteInfo(int serverId, String className, int instanceId,
+            String threadName, int threadId, int trialId) {
             this.serverId = serverId;
             this.className = className;
             this.instanceId = instanceId;
             this.threadName = threadName;
             this.threadId = threadId;
+            this.trialId = trialId;
         }
     }
 
@@ -73,7 +81,12 @@ public interface AbstractStateServerRemote extends Remote {
 
         public StateUpdateRemoteInfo(int serverId, String className, int instanceId, 
             String threadName, int threadId, AbstractState state) {
-            super(serverId, className, instanceId, threadName, threadId);
+            this(serverId, className, instanceId, threadName, threadId, state, -1);
+        }
+
+        public StateUpdateRemoteInfo(int serverId, String className, int instanceId,
+            String threadName, int threadId, AbstractState state, int trialId) {
+            super(serverId, className, instanceId, threadName, threadId, trialId);
             this.state = state;
         }
     }
@@ -134,7 +147,6 @@ public interface AbstractStateServerRemote extends Remote {
 
     /**
      * Signal that a particular server has finished initialization stage and is ready to process requests.
-     * TODO: to be used
      *
      * @param serverId
      * @return
@@ -0,0 +1,196 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.api;
+
+import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedbackBatch;
+import edu.umich.order.legolas.common.record.LatencyHistogram;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the progress of a client locally and reports it to the orchestrator in batches,
+ * whenever legolas.feedback.batchOps requests have finished or legolas.feedback.batchMillis has
+ * elapsed, whichever comes first. Setting batchOps to 1 reports every single request. Each batch
+ * carries a latency histogram per operation type.
+ *
+ * Thread-safe, the RMI calls are made outside of the lock. A driver host, where the clients share
+ * one JVM, closes the reporter of a client that it kills or that ends without closing it.
+ */
+public final class ClientFeedbackReporter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ClientFeedbackReporter.class);
+
+    // the reporters not closed yet, by client id
+    private static final Map<Integer, ClientFeedbackReporter> open = new ConcurrentHashMap<>();
+
+    private final OrchestratorRemote stub;
+    private final int clientId;
+    private final int batchOps;
+    private final long batchMillis;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    // the pending batch, guarded by this
+    private int count = 0;
+    private String lastResult = null;
+    private long totalDuration = 0;
+    private long maxDuration = 0;
+    private Map<String, LatencyHistogram> latencies = new HashMap<>();
+    private long batchStart = 0;
+
+    private volatile boolean closed = false;
+
+    public ClientFeedbackReporter(final OrchestratorRemote stub, final int clientId) {
+        this(stub, clientId, Integer.getInteger("legolas.feedback.batchOps", 32),
+                Long.getLong("legolas.feedback.batchMillis", 50));
+    }
+
+    public ClientFeedbackReporter(final OrchestratorRemote stub, final int clientId,
+            final int batchOps, final long batchMillis) {
+        this.stub = stub;
+        this.clientId = clientId;
+        this.batchOps = Math.max(batchOps, 1);
+        this.batchMillis = batchMillis;
+        // so that slow requests do not keep the progress of a client pending
+        this.flusher = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(this.batchMillis);
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                flushQuietly();
+            }
+        }, "ClientFeedbackReporter");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        this.shutdownHook = new Thread(this::flushQuietly);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        final ClientFeedbackReporter previous = open.put(clientId, this);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Close the reporter of a client, if it is still open
+     */
+    public static void close(final int clientId) {
+        final ClientFeedbackReporter reporter = open.get(clientId);
+        if (reporter != null) {
+            reporter.close();
+        }
+    }
+
+    /**
+     * Record a finished request of an unnamed operation type
+     */
+    public void report(final String result, final long duration) throws RemoteException {
+        report("request", result, duration);
+    }
+
+    /**
+     * Record a finished request, and send the pending batch if it is full
+     *
+     * @param op the operation type, e.g., read or write, rather than the client command
+     * @param result
+     * @param duration in nanoseconds
+     * @throws RemoteException
+     */
+    public void report(final String op, final String result, final long duration)
+            throws RemoteException {
+        final ClientFeedbackBatch batch;
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            if (count == 0) {
+                batchStart = now;
+            }
+            count++;
+            lastResult = result;
+            totalDuration += duration;
+            maxDuration = Math.max(maxDuration, duration);
+            LatencyHistogram histogram = latencies.get(op);
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                latencies.put(op, histogram);
+            }
+            histogram.record(duration);
+            if (count < batchOps && now - batchStart < batchMillis) {
+                return;
+            }
+            batch = take();
+        }
+        stub.sendBatch(batch);
+    }
+
+    public void flush() throws RemoteException {
+        final ClientFeedbackBatch batch;
+        synchronized (this) {
+            batch = take();
+        }
+        if (batch != null) {
+            stub.sendBatch(batch);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (final RemoteException e) {
+            LOG.error("Fail to send the request results to orchestrator server", e);
+        }
+    }
+
+    private ClientFeedbackBatch take() {
+        if (count == 0) {
+            return null;
+        }
+        final ClientFeedbackBatch batch = new ClientFeedbackBatch(clientId, count, lastResult,
+                totalDuration, maxDuration, latencies);
+        latencies = new HashMap<>();
+        count = 0;
+        lastResult = null;
+        totalDuration = 0;
+        maxDuration = 0;
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        open.remove(clientId, this);
+        flusher.interrupt();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (final IllegalStateException ignored) {
+            // the JVM is shutting down and runs the hook anyway
+        }
+        flushQuietly();
+    }
+}
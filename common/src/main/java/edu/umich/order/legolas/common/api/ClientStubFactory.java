@@ -24,6 +24,8 @@ import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.util.HashMap;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,15 +33,17 @@ import org.slf4j.LoggerFactory;
  * A factory that creates all sorts of client stubs for the services defined in the api package.
  *
  * The client stubs created will be singleton.
- * TODO: support multiple ports
  */
 public final class ClientStubFactory {
     private static final Logger LOG = LoggerFactory.getLogger(ClientStubFactory.class);
 
-    private static AbstractStateServerRemote ss_stub;
+    // the agent reports the readiness to the orchestrator and the states to the injector
+    private static final Map<Integer, AbstractStateServerRemote> ss_stubs = new HashMap<>();
     private static FaultInjectorRemote fi_stub;
     private static OrchestratorRemote orch_stub;
     private static LegolasAgentRemote ga_stub;
+    private static CoordinatorRemote co_stub;
+    private static InjectorServiceRemote is_stub;
 
     /**
      * Obtain a client stub for the abstract state server. This client stub is a singleton (is it safe
@@ -49,10 +53,12 @@ public final class ClientStubFactory {
      * @return the client stub if successfully connected to the server, or null if the connection failed
      */
     public static synchronized AbstractStateServerRemote getStateServerStub(final int port) {
+        AbstractStateServerRemote ss_stub = ss_stubs.get(port);
         if (ss_stub == null) {
             try {
                 Registry registry = LocateRegistry.getRegistry(port);
                 ss_stub = (AbstractStateServerRemote) registry.lookup(AbstractStateServerRemote.REMOTE_NAME);
+                ss_stubs.put(port, ss_stub);
             } catch (RemoteException e) {
                 LOG.error("Failed to find the abstract state server: " + e);
             } catch (NotBoundException e) {
@@ -63,7 +69,7 @@ public final class ClientStubFactory {
     }
 
     public static synchronized AbstractStateServerRemote getStateServerStub() {
-        return getStateServerStub(AbstractStateServerRemote.REMOTE_PORT);
+        return getStateServerStub(RegistryFactory.getDefaultPort());
     }
 
     /**
@@ -87,7 +93,7 @@ public final class ClientStubFactory {
     }
 
     public static synchronized FaultInjectorRemote getFaultInjectorStub() {
-        return getFaultInjectorStub(FaultInjectorRemote.REMOTE_PORT);
+        return getFaultInjectorStub(RegistryFactory.getDefaultPort());
     }
 
     /**
@@ -111,7 +117,7 @@ public final class ClientStubFactory {
     }
 
     public static synchronized OrchestratorRemote getOrchestratorStub() {
-        return getOrchestratorStub(OrchestratorRemote.REMOTE_PORT);
+        return getOrchestratorStub(RegistryFactory.getDefaultPort());
     }
 
     /**
@@ -135,6 +141,46 @@ public final class ClientStubFactory {
     }
 
     public static synchronized LegolasAgentRemote getGrayAgentStub() {
-        return getGrayAgentStub(LegolasAgentRemote.REMOTE_PORT);
+        return getGrayAgentStub(RegistryFactory.getDefaultPort());
+    }
+
+    /**
+     * Obtain a client stub for the exploration coordinator. This client stub is a singleton.
+     *
+     * @param port
+     * @return the client stub if successfully connected to the server, or null if the connection failed
+     */
+    public static synchronized CoordinatorRemote getCoordinatorStub(final int port) {
+        if (co_stub == null) {
+            try {
+                Registry registry = LocateRegistry.getRegistry(port);
+                co_stub = (CoordinatorRemote) registry.lookup(CoordinatorRemote.REMOTE_NAME);
+            } catch (RemoteException e) {
+                LOG.error("Failed to find the coordinator: " + e);
+            } catch (NotBoundException e) {
+                LOG.error("Failed to bind to remote: " + e);
+            }
+        }
+        return co_stub;
+    }
+
+    /**
+     * Obtain a client stub for the standalone injector service. This client stub is a singleton.
+     *
+     * @param port
+     * @return the client stub if successfully connected to the server, or null if the connection failed
+     */
+    public static synchronized InjectorServiceRemote getInjectorServiceStub(final int port) {
+        if (is_stub == null) {
+            try {
+                Registry registry = LocateRegistry.getRegistry(port);
+                is_stub = (InjectorServiceRemote) registry.lookup(InjectorServiceRemote.REMOTE_NAME);
+            } catch (RemoteException e) {
+                LOG.error("Failed to find the injector service: " + e);
+            } catch (NotBoundException e) {
+                LOG.error("Failed to bind to remote: " + e);
+            }
+        }
+        return is_stub;
     }
 }
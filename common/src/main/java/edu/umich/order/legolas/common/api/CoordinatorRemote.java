@@ -0,0 +1,83 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.api;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * The RPC interface of the coordinator that owns the injection policy when the exploration is
+ * sharded over several orchestrators (workers), each running its own ensemble.
+ */
+public interface CoordinatorRemote extends Remote {
+    String REMOTE_NAME = "LegolasCoordinator";
+    int REMOTE_PORT = 1098;
+
+    /**
+     * @param trialsDir where the worker keeps its trial results
+     * @return the worker id, which is also the shard of the worker, or -1 if no shard is free
+     */
+    int registerWorker(String trialsDir) throws RemoteException;
+
+    /**
+     * The worker leaves, e.g., when it has no more trials or it gives up
+     */
+    void unregisterWorker(int workerId) throws RemoteException;
+
+    /**
+     * @return the id of the next trial assigned to the worker, or -1 if the experiment is done
+     */
+    int nextTrial(int workerId) throws RemoteException;
+
+    /**
+     * Start (or restart upon retries) the current trial of the worker
+     */
+    void setupNewTrial(int workerId) throws RemoteException;
+
+    InjectionRemoteCommand inject(int workerId, ThreadInjectionRequest request)
+            throws RemoteException;
+
+    /**
+     * Roll back an injection of the current trial of the worker, which the agent dropped
+     *
+     * @param injectionId the id of the command returned by {@link #inject}
+     */
+    void dropInjection(int workerId, int injectionId) throws RemoteException;
+
+    /**
+     * An abstract state update in the current trial of the worker
+     */
+    void onStateUpdate(int workerId, ThreadStateEvent event) throws RemoteException;
+
+    /**
+     * The outcome of the current trial of the worker, reported before it is completed
+     */
+    void onTrialOutcome(int workerId, TrialOutcome outcome) throws RemoteException;
+
+    /**
+     * The current trial of the worker is done and should not be redone
+     */
+    void trialCompleted(int workerId, int trialId) throws RemoteException;
+}
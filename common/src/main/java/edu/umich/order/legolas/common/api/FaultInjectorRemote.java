@@ -20,6 +20,8 @@
  */
 package edu.umich.order.legolas.common.api;
 
+import edu.umich.order.legolas.common.api.AbstractStateServerRemote.MetaInfoAccess;
+import edu.umich.order.legolas.common.asm.AbstractState;
 import java.io.Serializable;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -31,6 +33,22 @@ public interface FaultInjectorRemote extends Remote {
     String REMOTE_NAME = "LegolasFaultInjector";
     int REMOTE_PORT = 1099;
 
+    /**
+     * The deadline of an injection query in microseconds, passed by the orchestrator to the target.
+     * A query that is not answered in time proceeds without injection. Unset or 0 to wait.
+     */
+    String QUERY_DEADLINE_ENV = "LEGOLAS_QUERY_DEADLINE_MICROS";
+    /**
+     * What the agent does with a decision that arrives after the deadline: drop (default) or
+     * defer, i.e., apply it at the next occurrence of the injection site
+     */
+    String LATE_DECISION_ENV = "LEGOLAS_LATE_DECISION";
+    /**
+     * When late decisions are dropped, the injector only grants an injection before the deadline
+     * of its query, and the agent waits this long past the deadline for such a grant to arrive
+     */
+    long QUERY_GRACE_MICROS = 1000;
+
     /**
      * Request to inject some exceptions to a server and a class instance.
      *
@@ -40,6 +58,17 @@ public interface FaultInjectorRemote extends Remote {
      */
     InjectionRemoteCommand inject(InjectionRemoteQuery query) throws RemoteException;
 
+    /**
+     * Report an injection granted in time that the agent dropped because the grant arrived after
+     * the deadline, so that the injector rolls it back
+     *
+     * @param serverId
+     * @param trialId the trial of the agent, or -1 if unknown
+     * @param injectionId the id of the granted command
+     * @throws RemoteException
+     */
+    void dropInjection(int serverId, int trialId, int injectionId) throws RemoteException;
+
     final class InjectionLocation implements Serializable {
         public final String className;
         public final String methodName;
@@ -69,15 +98,99 @@ public interface FaultInjectorRemote extends Remote {
         public final int delay; // 0 or 1
         public final int[] exceptionIds;
 
+        // the queries of the agent that missed their deadline since its previous query
+        public final int missedDeadlines;
+
+        // when late decisions are dropped, the deadline of the query and its send time on the
+        // agent's System.nanoTime(); 0 and 0 if the query has no such deadline
+        public final long deadlineMicros;
+        public final long sentNanos;
+
+        // in meta-info mode, the last meta-info access seen by the agent and its age when the
+        // query is sent, or null and -1 if there is none
+        public final MetaInfoAccess lastMetaInfoAccess;
+        public final long metaInfoAccessAgeNanos;
+
+        // the trial the agent is launched for, or -1 if unknown
+        public final int trialId;
+
         public InjectionRemoteQuery(int serverId, String threadName,
                 int threadId, InjectionLocation location, int delay, 
                 int[] exceptionIds) {
+            this(serverId, threadName, threadId, location, delay, exceptionIds, 0);
+        }
+
+        public InjectionRemoteQuery(int serverId, String threadName,
+                int threadId, InjectionLocation location, int delay,
+                int[] exceptionIds, int missedDeadlines) {
+            this(serverId, threadName, threadId, location, delay, exceptionIds, missedDeadlines,
+                    null, -1);
+        }
+
+        public InjectionRemoteQuery(int serverId, String threadName,
+                int threadId, InjectionLocation location, int delay,
+                int[] exceptionIds, int missedDeadlines, MetaInfoAccess lastMetaInfoAccess,
+                long metaInfoAccessAgeNanos) {
+            this(serverId, threadName, threadId, location, delay, exceptionIds, missedDeadlines,
+                    0, 0, lastMetaInfoAccess, metaInfoAccessAgeNanos);
+        }
+
+        public InjectionRemoteQuery(int serverId, String threadName,
+                int threadId, InjectionLocation location, int delay,
+                int[] exceptionIds, int missedDeadlines, long deadlineMicros, long sentNanos,
+                MetaInfoAccess lastMetaInfoAccess, long metaInfoAccessAgeNanos) {
+            this(serverId, threadName, threadId, location, delay, exceptionIds, missedDeadlines,
+                    deadlineMicros, sentNanos, lastMetaInfoAccess, metaInfoAccessAgeNanos, -1);
+        }
+
+        public InjectionRemoteQuery(int serverId, String threadName,
+                int threadId, InjectionLocation location, int delay,
+                int[] exceptionIds, int missedDeadlines, long deadlineMicros, long sentNanos,
+                MetaInfoAccess lastMetaInfoAccess, long metaInfoAccessAgeNanos, int trialId) {
             this.serverId = serverId;
             this.threadName = threadName;
             this.threadId = threadId;
             this.location = location;
             this.delay = delay;
             this.exceptionIds = exceptionIds;
+            this.missedDeadlines = missedDeadlines;
+            this.deadlineMicros = deadlineMicros;
+            this.sentNanos = sentNanos;
+            this.lastMetaInfoAccess = lastMetaInfoAccess;
+            this.metaInfoAccessAgeNanos = metaInfoAccessAgeNanos;
+            this.trialId = trialId;
+        }
+    }
+
+    /**
+     * Inflates every call at the injection site, or at any site while the thread is in the given
+     * state, by a latency sampled from the distribution, until the window expires. The agent
+     * enforces it locally.
+     */
+    final class Slowdown implements Serializable {
+        public final boolean stateScope;
+        // only for the state scope
+        public final String stateMachineName;
+        public final AbstractState state;
+        public final String distribution; // fixed, uniform or exponential
+        // the fixed latency, the max of the uniform distribution or the mean of the exponential
+        public final long latencyMillis;
+        public final long windowMillis;
+
+        public Slowdown(boolean stateScope, String stateMachineName, AbstractState state,
+                String distribution, long latencyMillis, long windowMillis) {
+            this.stateScope = stateScope;
+            this.stateMachineName = stateMachineName;
+            this.state = state;
+            this.distribution = distribution;
+            this.latencyMillis = latencyMillis;
+            this.windowMillis = windowMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Slowdown{" + (stateScope ? stateMachineName + " " + state : "site") + ", "
+                    + distribution + " " + latencyMillis + " ms for " + windowMillis + " ms}";
         }
     }
 
@@ -85,11 +198,24 @@ public interface FaultInjectorRemote extends Remote {
         public final int delay; // 0 or 1
         public final int eid;
         public final int id;
+        public final Slowdown slowdown; // null unless a slowdown is injected
+        public final long delayMillis; // the length of the delay, 0 for the agent's default
 
         public InjectionRemoteCommand(int delay, int eid, int id) {
+            this(delay, eid, id, null, 0);
+        }
+
+        public InjectionRemoteCommand(int delay, int eid, int id, Slowdown slowdown) {
+            this(delay, eid, id, slowdown, 0);
+        }
+
+        public InjectionRemoteCommand(int delay, int eid, int id, Slowdown slowdown,
+                long delayMillis) {
             this.delay = delay;
             this.eid = eid;
             this.id = id;
+            this.slowdown = slowdown;
+            this.delayMillis = delayMillis;
         }
     }
 }
@@ -0,0 +1,80 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.api;
+
+import edu.umich.order.legolas.common.event.Event;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * The RPC interface of the standalone injector service, which hosts the state server, the fault
+ * injector and the injection controller outside of the orchestrator. The orchestrators that share
+ * the service take turns: a session holds the service from the setup of a new trial until the
+ * trial is completed, so that all of them explore one policy state.
+ */
+public interface InjectorServiceRemote extends Remote {
+    String REMOTE_NAME = "LegolasInjectorService";
+    int REMOTE_PORT = 1097;
+
+    /**
+     * @return the session id of the orchestrator
+     */
+    int connect(String owner) throws RemoteException;
+
+    /**
+     * The orchestrator leaves and gives up the service if it holds it
+     */
+    void disconnect(int session) throws RemoteException;
+
+    boolean hasNextTrial() throws RemoteException;
+
+    /**
+     * Start (or restart upon retries) a trial, waiting for the other sessions to complete theirs
+     *
+     * @return the trial id
+     */
+    int setupNewTrial(int session, boolean incrementId) throws RemoteException;
+
+    /**
+     * Create the state machines of a server node that is about to start
+     */
+    void prepareServer(int session, int serverId) throws RemoteException;
+
+    void setReady(int session) throws RemoteException;
+
+    void setRole(int session, int serverId, String role) throws RemoteException;
+
+    void reportOutcome(int session, TrialOutcome outcome) throws RemoteException;
+
+    /**
+     * @return the events recorded by the service since the last call, to be merged into orch.csv
+     */
+    List<Event> drainEvents(int session) throws RemoteException;
+
+    void trialStopped(int session) throws RemoteException;
+
+    /**
+     * The current trial is done for good and the service is free for the other sessions
+     */
+    void trialCompleted(int session) throws RemoteException;
+}
@@ -20,9 +20,11 @@
  */
 package edu.umich.order.legolas.common.api;
 
+import edu.umich.order.legolas.common.record.LatencyHistogram;
 import java.io.Serializable;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.Map;
 
 /**
  * RPC interface for the orchestrator
@@ -31,6 +33,11 @@ public interface OrchestratorRemote extends Remote {
     String REMOTE_NAME = "LegolasOrchestrator";
     int REMOTE_PORT = 1099;
 
+    // environment variable carrying the server id token from server.sh to the target process
+    String SID_TOKEN_ENV = "LEGOLAS_SID";
+    // environment variable carrying the id of the trial the target process is launched for
+    String TRIAL_TOKEN_ENV = "LEGOLAS_TRIAL";
+
     /**
      * Register a process
      *
@@ -40,10 +47,50 @@ public interface OrchestratorRemote extends Remote {
      */
     RegistryRemoteInfo register(final long pid) throws RemoteException;
 
+    /**
+     * Register a process that was launched with a server id token, so that the registration can
+     * be correlated with the server node even when several nodes are starting concurrently.
+     *
+     * @param sid the server id token received from the orchestrator
+     * @param pid
+     * @return
+     * @throws RemoteException
+     */
+    RegistryRemoteInfo register(final int sid, final long pid) throws RemoteException;
+
     ClientFeedbackResponse send(final ClientFeedback feedback) throws RemoteException;
 
+    /**
+     * Report the progress of a client aggregated over a batch of requests
+     *
+     * @param batch
+     * @return
+     * @throws RemoteException
+     */
+    ClientFeedbackResponse sendBatch(final ClientFeedbackBatch batch) throws RemoteException;
+
     String[] registerClient(final int clientId, final long pid) throws RemoteException;
 
+    /**
+     * Poll the next command for a driver host, which runs the clients of a trial in process
+     *
+     * @param hostId the id assigned to the driver host when it was launched
+     * @param pid the pid of the driver host
+     * @param timeoutMillis
+     * @return the next command, or null if there is none before the timeout
+     * @throws RemoteException
+     */
+    DriverHostCommand pollDriverHost(final int hostId, final long pid, final long timeoutMillis)
+            throws RemoteException;
+
+    /**
+     * Signal that a client running in a driver host has returned
+     *
+     * @param clientId
+     * @throws RemoteException
+     */
+    void clientFinished(final int clientId) throws RemoteException;
+
     final class RegistryRemoteInfo implements Serializable {
         public final int serverId;
         public final String[] exceptionNames; // TODO: remove it
@@ -66,6 +113,41 @@ public interface OrchestratorRemote extends Remote {
         }
     }
 
+    final class ClientFeedbackBatch implements Serializable {
+        public final int clientId;
+        public final int count;             // number of finished requests in this batch
+        public final String lastResult;
+        public final long totalDuration;    // in nanoseconds
+        public final long maxDuration;
+        public final Map<String, LatencyHistogram> latencies;  // per operation
+
+        public ClientFeedbackBatch(int clientId, int count, String lastResult,
+                long totalDuration, long maxDuration, Map<String, LatencyHistogram> latencies) {
+            this.clientId = clientId;
+            this.count = count;
+            this.lastResult = lastResult;
+            this.totalDuration = totalDuration;
+            this.maxDuration = maxDuration;
+            this.latencies = latencies;
+        }
+    }
+
+    final class DriverHostCommand implements Serializable {
+        public static final int START = 0;  // start a client
+        public static final int KILL = 1;   // kill a client
+        public static final int EXIT = 2;   // terminate the driver host
+
+        public final int kind;
+        public final int clientId;
+        public final String logFilePathName;
+
+        public DriverHostCommand(int kind, int clientId, String logFilePathName) {
+            this.kind = kind;
+            this.clientId = clientId;
+            this.logFilePathName = logFilePathName;
+        }
+    }
+
     final class ClientFeedbackResponse implements Serializable {
         public final int cont;
 
@@ -28,6 +28,28 @@ import java.rmi.registry.Registry;
  * A simple factory to handle the RMI registry business for the services we provide.
  */
 public final class RegistryFactory {
+    /**
+     * Overrides the default RMI port, so that several orchestrators can run on the same machine;
+     * the orchestrator passes it to the target systems and the clients it launches.
+     */
+    public static final String RMI_PORT_ENV = "LEGOLAS_RMI_PORT";
+
+    /**
+     * Set when the state server and the fault injector run in a standalone injector service
+     * instead of the orchestrator
+     */
+    public static final String INJECTOR_PORT_ENV = "LEGOLAS_INJECTOR_PORT";
+
+    public static int getDefaultPort() {
+        final String port = System.getenv(RMI_PORT_ENV);
+        return port == null ? 1099 : Integer.parseInt(port);
+    }
+
+    public static int getInjectorPort() {
+        final String port = System.getenv(INJECTOR_PORT_ENV);
+        return port == null ? getDefaultPort() : Integer.parseInt(port);
+    }
+
     public static Registry getRegistry(int port, boolean tryCreate) throws RemoteException {
         if (tryCreate) {
             try {
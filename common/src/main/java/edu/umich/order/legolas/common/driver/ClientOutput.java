@@ -0,0 +1,77 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.driver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Routes System.out and System.err of the driver host to the log file of the client that is
+ * writing. The client is tracked with an inheritable thread local, so the threads created by a
+ * client also write into its log file.
+ */
+final class ClientOutput extends OutputStream {
+    private static final InheritableThreadLocal<PrintStream> current = new InheritableThreadLocal<>();
+
+    private final PrintStream fallback;
+
+    private ClientOutput(final PrintStream fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Must be invoked before anything (e.g., the logging backend) captures System.out
+     */
+    static void install() {
+        final PrintStream out = new PrintStream(new ClientOutput(System.out), true);
+        System.setOut(out);
+        System.setErr(out);
+    }
+
+    static void set(final PrintStream out) {
+        current.set(out);
+    }
+
+    static void clear() {
+        current.remove();
+    }
+
+    private PrintStream target() {
+        final PrintStream out = current.get();
+        return out == null ? fallback : out;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        target().write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target().flush();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.driver;
+
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
+import edu.umich.order.legolas.common.api.ClientStubFactory;
+import edu.umich.order.legolas.common.api.OrchestratorRemote;
+import edu.umich.order.legolas.common.api.OrchestratorRemote.DriverHostCommand;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs all the clients of a trial in one JVM. The orchestrator launches the driver host with
+ * host.sh, and the host polls the orchestrator for the clients to start or kill. Each client runs
+ * the main of the version-specific driver, as client.sh would do, on its own (virtual, when
+ * available) thread, with its own copy of the driver classes and its own log file. A killed client
+ * is interrupted and reported as finished once its main returns; the orchestrator kills the whole
+ * host and aborts the trial if it does not return in time.
+ *
+ * Usage: DriverHost driverMainClass hostId
+ */
+public final class DriverHost {
+    // not initialized statically, the logging backend must only see System.out after the
+    // client output routing is installed
+    private static Logger LOG;
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final OrchestratorRemote stub;
+    private final String driverMainClass;
+    private final String driverPackage;
+    private final int hostId;
+    private final long pid;
+    private final ExecutorService executor = createExecutor();
+    // the threads of the running clients, and the clients killed before their threads start,
+    // guarded by clients
+    private final Map<Integer, Thread> clients = new HashMap<>();
+    private final Set<Integer> killed = new HashSet<>();
+
+    private DriverHost(final OrchestratorRemote stub, final String driverMainClass,
+            final int hostId, final long pid) {
+        this.stub = stub;
+        this.driverMainClass = driverMainClass;
+        this.driverPackage = driverMainClass.substring(0, driverMainClass.lastIndexOf('.') + 1);
+        this.hostId = hostId;
+        this.pid = pid;
+    }
+
+    private static ExecutorService createExecutor() {
+        if (Boolean.parseBoolean(System.getProperty("legolas.driverHost.virtualThreads", "true"))) {
+            try {
+                // Thread.ofVirtual().factory() is only available on Java 21+
+                final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                final Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+                return Executors.newCachedThreadPool((ThreadFactory) factory.invoke(builder));
+            } catch (final Exception ignored) { }
+        }
+        return Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void run() throws RemoteException {
+        while (true) {
+            final DriverHostCommand command = stub.pollDriverHost(hostId, pid, POLL_MILLIS);
+            if (command == null) {
+                continue;
+            }
+            switch (command.kind) {
+                case DriverHostCommand.START:
+                    LOG.info("Starting client {}", command.clientId);
+                    executor.execute(() -> runClient(command));
+                    break;
+                case DriverHostCommand.KILL:
+                    final Thread client;
+                    synchronized (clients) {
+                        client = clients.get(command.clientId);
+                        if (client == null) {
+                            killed.add(command.clientId);
+                        }
+                    }
+                    LOG.info("Killing client {}", command.clientId);
+                    if (client != null) {
+                        // the client may ignore the interrupt, do not wait for it to end
+                        client.interrupt();
+                    }
+                    ClientFeedbackReporter.close(command.clientId);
+                    break;
+                case DriverHostCommand.EXIT:
+                    LOG.info("Driver host {} exits", hostId);
+                    return;
+                default:
+                    LOG.error("Unknown driver host command {}", command.kind);
+            }
+        }
+    }
+
+    private void runClient(final DriverHostCommand command) {
+        final Thread thread = Thread.currentThread();
+        synchronized (clients) {
+            if (killed.remove(command.clientId)) {
+                reportFinished(command.clientId);
+                return;
+            }
+            clients.put(command.clientId, thread);
+        }
+        final ClassLoader contextLoader = thread.getContextClassLoader();
+        try (final PrintStream out = new PrintStream(
+                new FileOutputStream(command.logFilePathName), true)) {
+            ClientOutput.set(out);
+            final ClassLoader loader = new DriverClassLoader(driverPackage,
+                    DriverHost.class.getClassLoader());
+            thread.setContextClassLoader(loader);
+            final Method main = loader.loadClass(driverMainClass).getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[]{String.valueOf(command.clientId)});
+        } catch (final InvocationTargetException e) {
+            LOG.warn("Client {} ends with exception", command.clientId, e.getCause());
+        } catch (final IOException | ReflectiveOperationException e) {
+            LOG.error("Fail to run client {}", command.clientId, e);
+        } finally {
+            synchronized (clients) {
+                clients.remove(command.clientId);
+            }
+            thread.setContextClassLoader(contextLoader);
+            ClientOutput.clear();
+            // its shutdown hook and flusher thread would outlive the client otherwise
+            ClientFeedbackReporter.close(command.clientId);
+        }
+        reportFinished(command.clientId);
+    }
+
+    /*
+     * also for a killed client, which the orchestrator waits for before its next workload
+     */
+    private void reportFinished(final int clientId) {
+        try {
+            stub.clientFinished(clientId);
+        } catch (final RemoteException e) {
+            LOG.error("Fail to inform the orchestrator that client {} finished", clientId, e);
+        }
+    }
+
+    public static void main(final String[] args) {
+        ClientOutput.install();
+        LOG = LoggerFactory.getLogger(DriverHost.class);
+        if (args.length != 2) {
+            LOG.error("Usage: DriverHost driverMainClass hostId");
+            System.exit(1);
+        }
+        final String name = ManagementFactory.getRuntimeMXBean().getName();
+        final long pid = Long.parseLong(name.substring(0, name.indexOf('@')));
+        LOG.info("Driver host {} for {} started with pid {}", args[1], args[0], pid);
+        final OrchestratorRemote stub = ClientStubFactory.getOrchestratorStub();
+        if (stub == null) {
+            LOG.error("Failed to get a client for orchestrator server");
+            System.exit(1);
+        }
+        try {
+            new DriverHost(stub, args[0], Integer.parseInt(args[1]), pid).run();
+        } catch (final RemoteException e) {
+            LOG.error("Lost the connection to the orchestrator server", e);
+        }
+        // the clients still running are abandoned by the orchestrator
+        System.exit(0);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.event;
+
+/**
+ * A granted injection that the agent dropped because the grant arrived after the query deadline,
+ * recorded when the agent reports it. The row repeats the granted injection with its id.
+ */
+public final class DroppedInjectionEvent extends ThreadInjectionEvent {
+    public DroppedInjectionEvent(long nano, ThreadInjectionEvent granted) {
+        super(nano, granted, granted.grantDelay, granted.grantEid, granted.injectionId);
+    }
+
+    @Override
+    public int getType() {
+        return 6;
+    }
+}
@@ -23,11 +23,12 @@ package edu.umich.order.legolas.common.event;
 import edu.umich.order.legolas.common.record.CSVRecord;
 import edu.umich.order.legolas.common.record.RecordWriter;
 import java.io.IOException;
+import java.io.Serializable;
 
 /**
  *
  */
-public abstract class Event implements CSVRecord {
+public abstract class Event implements CSVRecord, Serializable {
     public final long nano;
 
     public Event(final long nano) {
@@ -29,11 +29,16 @@ import java.io.IOException;
 public class ThreadInjectionEvent extends ThreadInjectionRequest {
     public final boolean grantDelay;
     public final int grantEid;
-    public final int injectionId;
+    public final int injectionId; // the order of the injection in a multi-fault trial
 
     public ThreadInjectionEvent(ThreadInjectionRequest request,
             boolean grantDelay, int grantEid, int injectionId) {
-        super(request);
+        this(request.nano, request, grantDelay, grantEid, injectionId);
+    }
+
+    protected ThreadInjectionEvent(long nano, ThreadInjectionRequest request,
+            boolean grantDelay, int grantEid, int injectionId) {
+        super(nano, request);
         this.grantDelay = grantDelay;
         this.grantEid = grantEid;
         this.injectionId = injectionId;
@@ -40,6 +40,8 @@ public class ThreadInjectionRequest extends ThreadStateEvent {
 
     public long failureId; // only used when evaluating FATE
     public MetaInfoAccess lastMetaInfoAccess; // only used when evaluating meta-info analysis
+    public long metaInfoAccessAgeNanos = -1; // measured by the agent, -1 if unknown
+    public String role = null; // the live role of the server, set by the injection controller
 
     public ThreadInjectionRequest(long nano, int serverId, String threadName,
             int instanceId, String className, String methodName, int lineNum, 
@@ -59,11 +61,20 @@ public class ThreadInjectionRequest extends ThreadStateEvent {
     }
 
     public ThreadInjectionRequest(ThreadInjectionRequest copy) {
-        this(copy.nano, copy.serverId, copy.threadName, copy.instanceId,
+        this(copy.nano, copy);
+    }
+
+    /**
+     * A copy of the request recorded at another time
+     */
+    public ThreadInjectionRequest(long nano, ThreadInjectionRequest copy) {
+        this(nano, copy.serverId, copy.threadName, copy.instanceId,
                 copy.className, copy.methodName, copy.lineNum,
                 copy.stackTraceId, copy.failureId, copy.lastMetaInfoAccess,
                 copy.stateMachineName, copy.state,
                 copy.op, copy.delay, copy.eids);
+        this.role = copy.role;
+        this.metaInfoAccessAgeNanos = copy.metaInfoAccessAgeNanos;
     }
 
     public ThreadInjectionRequest(InjectionRemoteQuery query) {
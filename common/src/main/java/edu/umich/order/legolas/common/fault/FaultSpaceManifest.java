@@ -0,0 +1,218 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.fault;
+
+import edu.umich.order.legolas.common.asm.AbstractState;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The static fault space dumped by the analyzer: every instrumented injection site with its
+ * candidate faults and, if the site is in a state machine class, the abstract states of that
+ * state machine.
+ *
+ * The file starts with a version line. The files without it are of version 1, which had no
+ * equivalence columns; each of their sites is loaded as its own equivalence class.
+ */
+public final class FaultSpaceManifest {
+    public static final String FILE_NAME = "fault_space.csv";
+
+    public static final int VERSION = 2;
+    private static final String VERSION_PREFIX = "# fault space manifest v";
+
+    private static final String HEADER_V1 =
+            "id,class,method,line,op,delay,exceptions,state_machine,states";
+    private static final String HEADER =
+            "id,class,method,line,op,delay,exceptions,equivalence,representative,state_machine,states";
+
+    public static final class Site {
+        public final int id;
+        public final String className;
+        public final String methodName;
+        public final int lineNum;
+        public final String op;
+        public final boolean delay;
+        public final int[] eids;
+        // the equivalent sites are expected to produce the same failure, see the analyzer's
+        // InjectionEquivalenceAnalysis
+        public final int equivalence;
+        public final boolean representative;
+        // empty if the site is not in a state machine class
+        public final String stateMachine;
+        public final List<AbstractState> states;
+
+        public Site(int id, String className, String methodName, int lineNum, String op,
+                boolean delay, int[] eids, int equivalence, boolean representative,
+                String stateMachine, List<AbstractState> states) {
+            this.id = id;
+            this.className = className;
+            this.methodName = methodName;
+            this.lineNum = lineNum;
+            this.op = op;
+            this.delay = delay;
+            this.eids = eids;
+            this.equivalence = equivalence;
+            this.representative = representative;
+            this.stateMachine = stateMachine;
+            this.states = states;
+        }
+
+        public String key() {
+            return FaultSpaceManifest.key(className, methodName, lineNum, op);
+        }
+
+        /**
+         * @return the number of faults at this site
+         */
+        public int faults() {
+            return eids.length + (delay ? 1 : 0);
+        }
+    }
+
+    /**
+     * The site of an injection request, which carries the same location as the instrumented call
+     */
+    public static String key(String className, String methodName, int lineNum, String op) {
+        return className + "." + methodName + ":" + lineNum + ":" + op;
+    }
+
+    public final List<Site> sites;
+
+    private FaultSpaceManifest(final List<Site> sites) {
+        this.sites = Collections.unmodifiableList(sites);
+    }
+
+    public int faults() {
+        int faults = 0;
+        for (final Site site : sites) {
+            faults += site.faults();
+        }
+        return faults;
+    }
+
+    private static String quote(final String field) {
+        return "\"" + field + "\"";
+    }
+
+    public static void write(final List<Site> sites, final PrintWriter writer) {
+        writer.println(VERSION_PREFIX + VERSION);
+        writer.println(HEADER);
+        for (final Site site : sites) {
+            final StringBuilder eids = new StringBuilder();
+            for (final int eid : site.eids) {
+                if (eids.length() > 0) eids.append('|');
+                eids.append(eid);
+            }
+            final StringBuilder states = new StringBuilder();
+            for (final AbstractState state : site.states) {
+                if (states.length() > 0) states.append('|');
+                states.append(state.methodSig).append('#').append(state.id);
+            }
+            writer.println(site.id + "," + site.className + "," + quote(site.methodName) + ","
+                    + site.lineNum + "," + quote(site.op) + "," + (site.delay ? 1 : 0) + ","
+                    + eids + "," + site.equivalence + "," + (site.representative ? 1 : 0) + ","
+                    + site.stateMachine + "," + quote(states.toString()));
+        }
+    }
+
+    /**
+     * Split a csv line whose quoted fields (method signatures) contain no quotes
+     */
+    private static List<String> split(final String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    public static FaultSpaceManifest load(final File file) throws IOException {
+        final List<Site> sites = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            int version = 1;
+            if (line != null && line.startsWith(VERSION_PREFIX)) {
+                version = Integer.parseInt(line.substring(VERSION_PREFIX.length()));
+                line = reader.readLine();
+            }
+            if (version > VERSION) {
+                throw new IOException("Fault space manifest version " + version
+                        + " is newer than " + VERSION + " in " + file);
+            }
+            if (line == null || !line.equals(version == 1 ? HEADER_V1 : HEADER)) {
+                throw new IOException("Unknown fault space manifest format in " + file);
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                final List<String> fields = split(line);
+                if (version == 1) {
+                    if (fields.size() != 9) {
+                        throw new IOException("Invalid fault space entry: " + line);
+                    }
+                    // the columns of version 2, every site is a representative of itself
+                    fields.add(7, fields.get(0));
+                    fields.add(8, "1");
+                }
+                if (fields.size() != 11) {
+                    throw new IOException("Invalid fault space entry: " + line);
+                }
+                final String[] eidFields = fields.get(6).isEmpty() ?
+                        new String[0] : fields.get(6).split("\\|");
+                final int[] eids = new int[eidFields.length];
+                for (int i = 0; i < eids.length; i++) {
+                    eids[i] = Integer.parseInt(eidFields[i]);
+                }
+                final List<AbstractState> states = new ArrayList<>();
+                if (!fields.get(10).isEmpty()) {
+                    for (final String state : fields.get(10).split("\\|")) {
+                        final int sep = state.lastIndexOf('#');
+                        states.add(new AbstractState(state.substring(0, sep),
+                                Integer.parseInt(state.substring(sep + 1))));
+                    }
+                }
+                sites.add(new Site(Integer.parseInt(fields.get(0)), fields.get(1),
+                        fields.get(2), Integer.parseInt(fields.get(3)), fields.get(4),
+                        fields.get(5).equals("1"), eids, Integer.parseInt(fields.get(7)),
+                        fields.get(8).equals("1"), fields.get(9), states));
+            }
+        } catch (final NumberFormatException e) {
+            throw new IOException("Invalid fault space manifest " + file, e);
+        }
+        return new FaultSpaceManifest(sites);
+    }
+}
@@ -26,7 +26,9 @@ package edu.umich.order.legolas.common.fault;
 public class InjectionFault {
     public enum FaultType {
         EXCEPTION,
-        DELAY
+        DELAY,
+        // latency inflation of every call at a site or in a state for a time window
+        SLOWDOWN
     }
     public FaultType type;
     public Object exceptionClass;
@@ -45,6 +47,8 @@ public class InjectionFault {
             return "<" + "eid " + exceptionId + "-" + exceptionName + ">";
         else if (type == FaultType.DELAY)
             return "<delay>";
+        else if (type == FaultType.SLOWDOWN)
+            return "<slowdown>";
         return "unknown";
     }
 }
@@ -22,6 +22,7 @@ package edu.umich.order.legolas.common.fault;
 
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
 
 /**
  * The fault injection policy that decides whether to inject some faults or not and if so which exact
@@ -42,6 +43,36 @@ public interface InjectionPolicy {
 
     default void setupNewTrial() {};
 
+    /**
+     * Invoked with every abstract state update reported by the agents, including those between
+     * two injection requests
+     */
+    default void onStateUpdate(final ThreadStateEvent event) {}
+
+    /**
+     * Invoked when an injection granted by this policy in the current trial does not happen, e.g.,
+     * the agent dropped it because the grant arrived after the query deadline. The policy should
+     * forget that it injected there, so that the fault is tried again.
+     *
+     * @param request the request of the injection
+     * @param command the command returned by {@link #inject(ThreadInjectionRequest)}
+     */
+    default void onInjectionDropped(final ThreadInjectionRequest request,
+            final InjectionRemoteCommand command) {}
+
+    /**
+     * Invoked with the outcome of the finished trial before the next trial is set up, so that
+     * the policy can learn which faults matter
+     */
+    default void onTrialOutcome(final TrialOutcome outcome) {}
+
+    /**
+     * @return the max number of faults injected in a trial, enforced by the controller
+     */
+    default int getFaultBudget() {
+        return 1;
+    }
+
     enum InjectionType {
         ALL,
         EXCEPTION,
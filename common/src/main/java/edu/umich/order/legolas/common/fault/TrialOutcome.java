@@ -0,0 +1,117 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.fault;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A lightweight outcome of a finished trial, computed by the orchestrator at the end of the trial
+ * and passed to the injection policy. The full classification (local, distributed, etc.) is still
+ * done offline by the reporter.
+ */
+public final class TrialOutcome implements Serializable {
+    public enum Kind {
+        SUCCESS,    // every client made its expected progress
+        FAILURE,    // some client fell behind while every server is alive
+        CRASH       // some client fell behind and some server is gone
+    }
+
+    // one character per client, see Orchestrator.getOutcome()
+    public final String clients;
+    // the requests finished by all the clients and the requests they are expected to finish
+    public final int progress;
+    public final int expected;
+    public final Set<Integer> injectedServers;
+    public final Set<Integer> crashedServers;
+    // some workload was not run, because of a failed workload, the trial timeout or an exception
+    public final boolean endedEarly;
+    // false for an attempt that threw and will be retried, which the policy must not learn from
+    public final boolean counted;
+
+    public TrialOutcome(final String clients, final int progress, final int expected,
+            final Set<Integer> injectedServers, final Set<Integer> crashedServers,
+            final boolean endedEarly) {
+        this(clients, progress, expected, injectedServers, crashedServers, endedEarly, true);
+    }
+
+    public TrialOutcome(final String clients, final int progress, final int expected,
+            final Set<Integer> injectedServers, final Set<Integer> crashedServers,
+            final boolean endedEarly, final boolean counted) {
+        this.clients = clients;
+        this.progress = progress;
+        this.expected = expected;
+        this.injectedServers = Collections.unmodifiableSet(new TreeSet<>(injectedServers));
+        this.crashedServers = Collections.unmodifiableSet(new TreeSet<>(crashedServers));
+        this.endedEarly = endedEarly;
+        this.counted = counted;
+    }
+
+    /**
+     * The outcome of a trial that threw before the ensemble was built
+     */
+    public static TrialOutcome aborted(final boolean counted) {
+        return new TrialOutcome("", 0, 0, Collections.emptySet(), Collections.emptySet(), true,
+                counted);
+    }
+
+    /**
+     * @return this outcome for a trial that threw, which is a failure or a crash
+     */
+    public TrialOutcome abort(final boolean counted) {
+        return new TrialOutcome(clients, progress, expected, injectedServers, crashedServers,
+                true, counted);
+    }
+
+    public Kind getKind() {
+        if (!endedEarly && clients.indexOf('0') == -1 && clients.indexOf('-') == -1) {
+            return Kind.SUCCESS;
+        }
+        return crashedServers.isEmpty() ? Kind.FAILURE : Kind.CRASH;
+    }
+
+    public boolean isInjected() {
+        return !injectedServers.isEmpty();
+    }
+
+    /**
+     * @return whether a fault was injected but the trial still succeeded
+     */
+    public boolean isBenign() {
+        return isInjected() && getKind() == Kind.SUCCESS;
+    }
+
+    /**
+     * @return the fraction of the expected requests finished by the clients
+     */
+    public double getProgressRatio() {
+        return expected == 0 ? 1.0 : (double) progress / expected;
+    }
+
+    @Override
+    public String toString() {
+        return getKind() + "{clients=" + clients + ", progress=" + progress + "/" + expected
+                + ", injected=" + injectedServers + ", crashed=" + crashedServers
+                + ", endedEarly=" + endedEarly + (counted ? "" : ", not counted") + "}";
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.record;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Fixed-memory log-linear histogram of latencies in nanoseconds. Every power of two is split into
+ * 16 buckets, so the relative error of a recorded value is at most 1/16. Only the non-empty
+ * buckets are serialized. Not thread-safe.
+ */
+public final class LatencyHistogram implements Serializable {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 42;     // about 73 minutes, larger values are clamped
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private transient long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    static int indexOf(final long nanos) {
+        if (nanos < SUB_COUNT) {
+            return (int) Math.max(nanos, 0);
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        return (exponent - SUB_BITS + 1) * SUB_COUNT
+                + (int) ((nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+    }
+
+    static long lowerBound(final int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        return ((long) (SUB_COUNT + index % SUB_COUNT)) << (exponent - SUB_BITS);
+    }
+
+    public void record(final long nanos) {
+        counts[indexOf(nanos)]++;
+        count++;
+        sum += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public void merge(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @param quantile in [0, 1]
+     * @return the lower bound of the bucket holding the quantile, or the max for quantile 1
+     */
+    public long getPercentile(final double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (quantile >= 1) {
+            return max;
+        }
+        final long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(lowerBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return the non-empty buckets as space-separated lowerBound:count pairs
+     */
+    public String getBuckets() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(lowerBound(i)).append(':').append(counts[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int nonEmpty = 0;
+        for (final long c : counts) {
+            if (c != 0) {
+                nonEmpty++;
+            }
+        }
+        out.writeInt(nonEmpty);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        counts = new long[BUCKETS];
+        final int nonEmpty = in.readInt();
+        for (int i = 0; i < nonEmpty; i++) {
+            final int index = in.readShort();
+            counts[index] = in.readLong();
+        }
+    }
+}
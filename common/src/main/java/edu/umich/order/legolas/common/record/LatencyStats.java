@@ -0,0 +1,126 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.record;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency histograms of the client requests in a trial, aggregated per phase, client, operation
+ * and time window. The time window is decided by when the orchestrator receives the histogram,
+ * since the drivers run in other JVMs.
+ */
+public final class LatencyStats {
+    private static final String CSV_HEADER = "phase,client-id,op,relative-to,window-start-ms,"
+            + "window-end-ms,count,mean-us,p50-us,p90-us,p99-us,p999-us,max-us,buckets-ns";
+
+    private static final class Key implements Comparable<Key> {
+        final int phase;
+        final int clientId;
+        final String op;
+        final long window;
+
+        Key(final int phase, final int clientId, final String op, final long window) {
+            this.phase = phase;
+            this.clientId = clientId;
+            this.op = op;
+            this.window = window;
+        }
+
+        @Override
+        public int compareTo(final Key o) {
+            if (phase != o.phase) {
+                return Integer.compare(phase, o.phase);
+            }
+            if (clientId != o.clientId) {
+                return Integer.compare(clientId, o.clientId);
+            }
+            final int c = op.compareTo(o.op);
+            return c != 0 ? c : Long.compare(window, o.window);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((phase * 31 + clientId) * 31 + op.hashCode()) * 31 + Long.hashCode(window);
+        }
+    }
+
+    private final long windowNanos;
+    private final ConcurrentMap<Key, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private volatile long startNano = 0;
+
+    public LatencyStats(final long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000;
+    }
+
+    public void init() {
+        histograms.clear();
+        startNano = System.nanoTime();
+    }
+
+    public void record(final int phase, final int clientId, final String op,
+            final LatencyHistogram histogram) {
+        final long window = Math.floorDiv(System.nanoTime() - startNano, windowNanos);
+        histograms.compute(new Key(phase, clientId, op, window), (k, v) -> {
+            if (v == null) {
+                v = new LatencyHistogram();
+            }
+            v.merge(histogram);
+            return v;
+        });
+    }
+
+    public boolean isEmpty() {
+        return histograms.isEmpty();
+    }
+
+    /**
+     * @param injectionNano time of the first injection, or a negative value if nothing was
+     *                      injected, in which case the windows are relative to the trial start
+     */
+    public void dump(final BufferedWriter csv, final long injectionNano) throws IOException {
+        final boolean injected = injectionNano >= 0;
+        final long originMillis = injected ? (injectionNano - startNano) / 1_000_000 : 0;
+        final long windowMillis = windowNanos / 1_000_000;
+        csv.write(CSV_HEADER + "\n");
+        for (final Map.Entry<Key, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            final Key key = entry.getKey();
+            final LatencyHistogram h = entry.getValue();
+            final long windowStart = key.window * windowMillis - originMillis;
+            csv.write(key.phase + "," + key.clientId + "," + key.op + ","
+                    + (injected ? "injection" : "start") + ","
+                    + windowStart + "," + (windowStart + windowMillis) + ","
+                    + h.getCount() + "," + h.getMean() / 1000 + ","
+                    + h.getPercentile(0.5) / 1000 + "," + h.getPercentile(0.9) / 1000 + ","
+                    + h.getPercentile(0.99) / 1000 + "," + h.getPercentile(0.999) / 1000 + ","
+                    + h.getMax() / 1000 + "," + h.getBuckets() + "\n");
+        }
+    }
+}
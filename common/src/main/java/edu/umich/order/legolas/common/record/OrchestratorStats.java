@@ -20,11 +20,16 @@
  */
 package edu.umich.order.legolas.common.record;
 
+import edu.umich.order.legolas.common.event.DroppedInjectionEvent;
 import edu.umich.order.legolas.common.event.Event;
+import edu.umich.order.legolas.common.event.ThreadInjectionEvent;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -40,27 +45,77 @@ public final class OrchestratorStats {
             "injectionEvent",  // granted injection
             "start",
             "shutdown",
-            "ready"
+            "ready",
+            "injectionDropped" // granted injection dropped by the agent
     };
 
     private long startNano = 0;
     private final LinkedList<Event> events = new LinkedList<>();
     private String[] exceptionNames = null;
+    private volatile long firstInjectionNano = -1;
+    // the time of each injection granted in this trial and not dropped, by injection id
+    private final Map<Integer, Long> grants = new HashMap<>();
 
     public boolean recordStates = true;
 
     public final void init(final String[] exceptionNames) {
         this.exceptionNames = exceptionNames;
         this.events.clear();
+        synchronized (this) {
+            grants.clear();
+        }
+        firstInjectionNano = -1;
         startNano = System.nanoTime();
     }
 
+    /**
+     * @return the time of the first granted injection in this trial that the agent did not drop,
+     * or -1 if there is none
+     */
+    public final long getFirstInjectionNano() {
+        return firstInjectionNano;
+    }
+
+    private void onInjection(final ThreadInjectionEvent e) {
+        if (e instanceof DroppedInjectionEvent) {
+            grants.remove(e.injectionId);
+        } else {
+            grants.put(e.injectionId, e.nano);
+        }
+        firstInjectionNano = grants.values().stream().mapToLong(Long::longValue).min().orElse(-1);
+    }
+
     public final synchronized void record(final Event e) {
+        if (e instanceof ThreadInjectionEvent) {
+            onInjection((ThreadInjectionEvent) e);
+        }
         if (recordStates) {
             events.add(e);
         }
     }
 
+    /**
+     * @return the events recorded since the last drain, which are removed from the stats
+     */
+    public final synchronized List<Event> drainEvents() {
+        final List<Event> drained = new ArrayList<>(events);
+        events.clear();
+        return drained;
+    }
+
+    /**
+     * Merge the events recorded elsewhere on the same host, e.g., by the injector service
+     */
+    public final synchronized void merge(final List<Event> remote) {
+        for (final Event e : remote) {
+            if (e instanceof ThreadInjectionEvent) {
+                onInjection((ThreadInjectionEvent) e);
+            }
+        }
+        events.addAll(remote);
+        events.sort(Comparator.comparingLong(e -> e.nano));
+    }
+
     private static String[] indexMapToArray(final Map<String, Integer> map) {
         final String[] arr = new String[map.size()];
         for (final Map.Entry<String, Integer> entry : map.entrySet()) {
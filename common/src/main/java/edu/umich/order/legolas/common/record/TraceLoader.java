@@ -0,0 +1,220 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.common.record;
+
+import edu.umich.order.legolas.common.asm.AbstractState;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconstructs the injection request and state update streams of recorded trials from their
+ * orch.csv and orch.json, as written by {@link RecordWriter}
+ */
+public final class TraceLoader {
+    private static final Logger LOG = LoggerFactory.getLogger(TraceLoader.class);
+
+    /**
+     * The requests of one recorded trial, in the order they reached the injector
+     */
+    public static final class Trace {
+        public final int trialId;
+        public final List<ThreadInjectionRequest> requests = new ArrayList<>();
+        // the state updates, in the order they reached the injector
+        public final List<StateUpdate> states = new ArrayList<>();
+        // the granted injections, in the order they were granted, except those the agents dropped
+        public final List<Injection> injections = new ArrayList<>();
+        // the requests before this index arrived before the workload was ready
+        public int readyIndex = -1;
+        // the time of the last recorded event relative to the trial start
+        public long durationNano = 0;
+        // the client outcome of the trial, see TrialOutcome.clients, null if not recorded
+        public String outcome = null;
+
+        public Trace(final int trialId) {
+            this.trialId = trialId;
+        }
+    }
+
+    /**
+     * An injection granted in the recorded trial
+     */
+    public static final class Injection {
+        public final int index; // of the request in the trace
+        public final boolean delay;
+        public final int eid;
+        public final int id; // the injection id in the trial
+
+        public Injection(final int index, final boolean delay, final int eid, final int id) {
+            this.index = index;
+            this.delay = delay;
+            this.eid = eid;
+            this.id = id;
+        }
+    }
+
+    /**
+     * A state update of the recorded trial
+     */
+    public static final class StateUpdate {
+        public final int index; // of the first request in the trace that came after it
+        public final ThreadStateEvent event;
+
+        public StateUpdate(final int index, final ThreadStateEvent event) {
+            this.index = index;
+            this.event = event;
+        }
+    }
+
+    public static List<Trace> load(final String trialsDir) throws IOException {
+        final File dir = new File(trialsDir);
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException("Trials directory " + trialsDir + " does not exist");
+        }
+        final List<Integer> ids = new ArrayList<>();
+        for (final File child : children) {
+            if (child.isDirectory() && new File(child, "orch.csv").isFile()) {
+                try {
+                    ids.add(Integer.parseInt(child.getName()));
+                } catch (final NumberFormatException ignored) {
+                }
+            }
+        }
+        ids.sort(Integer::compare);
+        final List<Trace> traces = new ArrayList<>();
+        for (final int id : ids) {
+            final Trace trace = load(new File(dir, String.valueOf(id)), id);
+            if (!trace.requests.isEmpty()) {
+                traces.add(trace);
+            }
+        }
+        LOG.info("loaded {} traces from {}", traces.size(), trialsDir);
+        return traces;
+    }
+
+    private static String[] readNames(final JsonObject json, final String name) {
+        final JsonArray array = json.getJsonArray(name);
+        if (array == null) {
+            return new String[0];
+        }
+        final String[] result = new String[array.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array.getString(i);
+        }
+        return result;
+    }
+
+    private static String lookup(final String[] names, final String index) {
+        final int i = Integer.parseInt(index);
+        return i < names.length ? names[i] : index;
+    }
+
+    private static int[] parseExceptions(final String field) {
+        if (field.isEmpty()) {
+            return new int[0];
+        }
+        return Arrays.stream(field.split("\\|")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * orch.csv does not record the thread, class, method, line or stack trace of a request. The
+     * state machine and the abstract state stand in for the class and the method, so that
+     * location-based policies still tell the injection points apart.
+     */
+    public static Trace load(final File trialDir, final int trialId) throws IOException {
+        final JsonObject json;
+        try (final InputStream inputStream = new FileInputStream(new File(trialDir, "orch.json"));
+                final JsonReader reader = Json.createReader(inputStream)) {
+            json = reader.readObject();
+        }
+        final String[] stateMachines = readNames(json, "state_machines");
+        final String[] ops = readNames(json, "ops");
+        final Trace trace = new Trace(trialId);
+        trace.outcome = json.getString("outcome", null);
+        try (final BufferedReader reader = new BufferedReader(
+                new FileReader(new File(trialDir, "orch.csv")))) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(",", -1);
+                if (fields.length < 2) {
+                    continue;
+                }
+                final long nano = Long.parseLong(fields[0]);
+                trace.durationNano = Math.max(trace.durationNano, nano);
+                final int type = Integer.parseInt(fields[1]);
+                if (type == 2 && trace.readyIndex < 0) {
+                    trace.readyIndex = trace.requests.size();
+                } else if (type == 3 && fields.length >= 7) {
+                    final int serverId = Integer.parseInt(fields[2]);
+                    final String sm = lookup(stateMachines, fields[3]);
+                    final int instanceId = Integer.parseInt(fields[6]);
+                    trace.states.add(new StateUpdate(trace.requests.size(),
+                            new ThreadStateEvent(nano, serverId, sm + "-" + instanceId,
+                                    instanceId, sm, new AbstractState(lookup(ops, fields[4]),
+                                            Integer.parseInt(fields[5])))));
+                } else if (type == 6 && fields.length >= 13) {
+                    // the agent dropped the injection, its request is still in the trace
+                    final int id = Integer.parseInt(fields[12]);
+                    trace.injections.removeIf(injection -> injection.id == id);
+                } else if ((type == 4 || type == 5) && fields.length >= 10) {
+                    final int serverId = Integer.parseInt(fields[2]);
+                    final String sm = lookup(stateMachines, fields[3]);
+                    final AbstractState state = new AbstractState(lookup(ops, fields[4]),
+                            Integer.parseInt(fields[5]));
+                    final int instanceId = Integer.parseInt(fields[6]);
+                    final String op = lookup(ops, fields[7]);
+                    final boolean delay = fields[8].equals("1");
+                    final int[] eids = parseExceptions(fields[9]);
+                    final long failureId = Objects.hash(serverId, sm, state, op, delay)
+                            * 31L + Arrays.hashCode(eids);
+                    if (type == 5 && fields.length >= 13) {
+                        trace.injections.add(new Injection(trace.requests.size(),
+                                fields[10].equals("1"), Integer.parseInt(fields[11]),
+                                Integer.parseInt(fields[12])));
+                    }
+                    trace.requests.add(new ThreadInjectionRequest(nano, serverId,
+                            sm + "-" + instanceId, instanceId, sm, state.methodSig, state.id,
+                            0, failureId, null, sm, state, op, delay, eids));
+                }
+            }
+        }
+        if (trace.readyIndex < 0) {
+            trace.readyIndex = 0;
+        }
+        return trace;
+    }
+}
@@ -22,6 +22,7 @@ package edu.umich.order.legolas.common.server;
 
 import edu.umich.order.legolas.common.api.AbstractStateServerRemote;
 import edu.umich.order.legolas.common.asm.AbstractStateMachineManager;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
 import edu.umich.order.legolas.common.record.OrchestratorStats;
 import edu.umich.order.legolas.common.util.Mutex;
 import java.rmi.RemoteException;
@@ -29,6 +30,8 @@ import java.rmi.registry.Registry;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +45,10 @@ public class AbstractStateServer extends RmiServerBase implements AbstractStateS
     private final Mutex mutex;
     private final OrchestratorStats stats;
     private MetaInfoAccess lastMetaInfoAccess = null;
+    private volatile IntConsumer readyHandler = null;
+    private volatile Consumer<ThreadStateEvent> updateHandler = null;
+    // the only trial whose agents are served, -1 to serve the agents of any trial
+    private volatile int fencedTrial = -1;
 
     private boolean META_INFO_MODE = false; // approximate meta-info (SOSP '19)
 
@@ -58,9 +65,19 @@ public class AbstractStateServer extends RmiServerBase implements AbstractStateS
         synchronized (mutex) {
             if (META_INFO_MODE)
                 return false;
+            if (isFenced(info.trialId)) {
+                LOG.debug("Ignoring the state update of trial {} from server {}", info.trialId,
+                        info.serverId);
+                return false;
+            }
             final AbstractStateMachineManager asmm = asmManagers.get(info.serverId);
             if (asmm != null) {
-                stats.record(asmm.update(info));
+                final ThreadStateEvent event = asmm.update(info);
+                stats.record(event);
+                final Consumer<ThreadStateEvent> handler = updateHandler;
+                if (handler != null) {
+                    handler.accept(event);
+                }
                 return true;
             }
         }
@@ -77,6 +94,23 @@ public class AbstractStateServer extends RmiServerBase implements AbstractStateS
         }
     }
 
+    /**
+     * Only serve the agents launched for the given trial from now on, e.g., so that the agents of
+     * a session whose lease on the injector service expired do not reach the next trial
+     */
+    public final void fence(final int trialId) {
+        fencedTrial = trialId;
+    }
+
+    /**
+     * @param trialId the trial of an agent, or -1 if the agent does not tell
+     * @return whether the agent must not be served
+     */
+    public final boolean isFenced(final int trialId) {
+        final int fenced = fencedTrial;
+        return fenced != -1 && trialId != -1 && trialId != fenced;
+    }
+
     /**
      * Check if an ASM manager exists for a server node.
      *
@@ -118,8 +152,31 @@ public class AbstractStateServer extends RmiServerBase implements AbstractStateS
         }
     }
 
+    /**
+     * Set the handler invoked with every state update, while holding the mutex.
+     *
+     * @param handler
+     */
+    public void setUpdateHandler(final Consumer<ThreadStateEvent> handler) {
+        this.updateHandler = handler;
+    }
+
+    /**
+     * Set the handler invoked when a server node signals that it is ready.
+     *
+     * @param handler
+     */
+    public void setReadyHandler(final IntConsumer handler) {
+        this.readyHandler = handler;
+    }
+
     @Override
     public boolean serverReady(int serverId) throws RemoteException {
+        LOG.info("Server " + serverId + " signals ready");
+        final IntConsumer handler = readyHandler;
+        if (handler != null) {
+            handler.accept(serverId);
+        }
         return true;
     }
 
@@ -20,9 +20,9 @@
  */
 package edu.umich.order.legolas.datastax_3_1_4;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
 import java.util.Arrays;
@@ -63,16 +63,17 @@ public class CassandraClientMain {
     protected static int entryNum;
 
     private static OrchestratorRemote stub = null;
+    private static ClientFeedbackReporter reporter = null;
     private static int clientId = -1;
 
     private static int progress = 0;
     private static long t0 = System.nanoTime();
 
-    private static void reply(final String result, final long nano) {
+    private static void reply(final String op, final String result, final long nano) {
         LOG.info("progress = {}, time = {}", ++progress, System.nanoTime() - t0);
-        if (stub != null) {
+        if (reporter != null) {
             try {
-                stub.send(new ClientFeedback(clientId, result, System.nanoTime() - nano));
+                reporter.report(op, result, System.nanoTime() - nano);
             } catch (final RemoteException e) {
                 LOG.error("Fail to send the request result to orchestrator server", e);
                 System.exit(0);
@@ -111,7 +112,7 @@ public class CassandraClientMain {
                     final long nano = System.nanoTime();
                     client.createKeyspace(keyspaceName, replicationStrategy, replicationFactor);
                     progress++;
-                    reply("success", nano);
+                    reply("createKeyspace", "success", nano);
                 }
                 boolean usingKeyspace = false;
                 if (progress == 1) {
@@ -120,7 +121,7 @@ public class CassandraClientMain {
                     usingKeyspace = true;
                     client.execute(createCmd);
                     progress++;
-                    reply("success", nano);
+                    reply("createTable", "success", nano);
                 }
                 if (progress >= 2) {
                     if (!usingKeyspace) {
@@ -131,7 +132,7 @@ public class CassandraClientMain {
                         final long nano = System.nanoTime();
                         client.execute(String.format(insertFormat, i));
                         progress++;
-                        reply("success", nano);
+                        reply("insert", "success", nano);
                     }
                 }
             } catch (final Exception e) {
@@ -155,7 +156,7 @@ public class CassandraClientMain {
                     client.read(fieldNames[rand.nextInt(fieldNames.length)], tableName,
                             primaryKeyName, rand.nextInt(entryNum));
                     progress++;
-                    reply("success", nano);
+                    reply("read", "success", nano);
                 }
             } catch (final Exception e) {
                 failure++;
@@ -178,7 +179,7 @@ public class CassandraClientMain {
                     client.update(tableName, fieldNames[rand.nextInt(fieldNames.length)],
                             new String(fieldSeeds, rand.nextInt(fieldLen), fieldLen),
                             primaryKeyName, rand.nextInt(entryNum));
-                    reply("success", nano);
+                    reply("update", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -220,13 +221,15 @@ public class CassandraClientMain {
         if (args.length == 1) {
             clientId = Integer.parseInt(args[0]);
             LOG.info("My client id is {}", clientId);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
@@ -67,7 +67,7 @@ public final class FlinkGrayBatchClientMain {
         addKafkaSink(counts.map(String::valueOf), brokers, kafkaTopic);
         final long nano = System.nanoTime();
         env.execute("Streaming WordCount");
-        FlinkGrayClientMain.reply("success", nano);
+        FlinkGrayClientMain.reply("execute", "success", nano);
     }
 
     private static final class Tokenizer
@@ -100,7 +100,7 @@ public final class FlinkGrayBatchClientMain {
             for (final Tuple2<String, Integer> value : values) {
                 words.add(value.f0);
                 counts.add(value.f1);
-                FlinkGrayClientMain.reply("success", System.nanoTime());
+                FlinkGrayClientMain.reply("sink", "success", System.nanoTime());
             }
             return true;
         }
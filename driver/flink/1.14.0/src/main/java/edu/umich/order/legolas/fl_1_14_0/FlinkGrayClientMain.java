@@ -20,9 +20,9 @@
  */
 package edu.umich.order.legolas.fl_1_14_0;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
 import java.util.Arrays;
@@ -33,17 +33,18 @@ public final class FlinkGrayClientMain {
     private static final Logger LOG = LoggerFactory.getLogger(FlinkGrayClientMain.class);
 
     public static OrchestratorRemote stub = null;
+    public static ClientFeedbackReporter reporter = null;
 
     public static int clientId = -1;
 
     public static int clientProgress = 0;
     public static long t0 = System.nanoTime();
 
-    public static void reply(final String result, final long nano) {
+    public static void reply(final String op, final String result, final long nano) {
         LOG.info("progress = {}, time = {}", ++clientProgress, System.nanoTime() - t0);
-        if (stub != null) {
+        if (reporter != null) {
             try {
-                stub.send(new ClientFeedback(clientId, result, System.nanoTime() - nano));
+                reporter.report(op, result, System.nanoTime() - nano);
             } catch (final RemoteException e) {
                 LOG.error("Fail to send the request result to orchestrator server", e);
                 System.exit(0);
@@ -77,13 +78,15 @@ public final class FlinkGrayClientMain {
         if (args.length == 1) {
             clientId = Integer.parseInt(args[0]);
             LOG.info("My client id is {}", clientId);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
@@ -154,6 +154,6 @@ public final class FlinkGrayStreamingClientMain {
         addKafkaSink(connected, brokers, sinkTopic);
         final long nano = System.nanoTime();
         final JobClient job = env.executeAsync("Flink Gray Streaming Workload");
-        FlinkGrayClientMain.reply("success", nano);
+        FlinkGrayClientMain.reply("submit", "success", nano);
     }
 }
@@ -21,9 +21,9 @@
 
 package edu.umich.order.legolas.hd_3_2_2;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 public class GrayHDFSClientMain {
     private static final Logger LOG = LoggerFactory.getLogger(GrayHDFSClientMain.class);
     private static OrchestratorRemote stub = null;
+    private static ClientFeedbackReporter reporter = null;
     private static int clientId = -1;
     private static long t0 = System.nanoTime();
 
@@ -57,9 +58,10 @@ public class GrayHDFSClientMain {
                     progress++;
                     failure = 0;
                     LOG.info("progress = {}, time = {}", progress, System.nanoTime() - t0);
-                    if (stub != null) {
+                    if (reporter != null) {
                         try {
-                            stub.send(new ClientFeedback(clientId, "success", System.nanoTime() - nano));
+                            reporter.report(isRead ? "readFile" : "writeFile", "success",
+                                    System.nanoTime() - nano);
                         } catch (final RemoteException e) {
                             LOG.error("Fail to send the request result to orchestrator server", e);
                             System.exit(0);
@@ -83,13 +85,15 @@ public class GrayHDFSClientMain {
             final String name = ManagementFactory.getRuntimeMXBean().getName();
             final long pid = Long.parseLong(name.substring(0, name.indexOf('@')));
             LOG.info("My process's pid is {}", pid);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
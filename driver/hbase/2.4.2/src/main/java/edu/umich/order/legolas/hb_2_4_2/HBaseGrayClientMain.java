@@ -20,9 +20,9 @@
  */
 package edu.umich.order.legolas.hb_2_4_2;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
 import java.util.Arrays;
@@ -37,6 +37,7 @@ public class HBaseGrayClientMain {
     private static final Logger LOG = LoggerFactory.getLogger(HBaseGrayClientMain.class);
 
     private static OrchestratorRemote stub = null;
+    private static ClientFeedbackReporter reporter = null;
     private static int clientId = -1;
     private static int tableId, columnFamilyNumber, quantifierNumber, rowNumber;
     private static int request;
@@ -47,11 +48,11 @@ public class HBaseGrayClientMain {
     private static int progress = 0;
     private static long t0 = System.nanoTime();
 
-    private static void reply(final String result, final long nano) {
+    private static void reply(final String op, final String result, final long nano) {
         LOG.info("progress = {}, time = {}", ++progress, System.nanoTime() - t0);
-        if (stub != null) {
+        if (reporter != null) {
             try {
-                stub.send(new ClientFeedback(clientId, result, System.nanoTime() - nano));
+                reporter.report(op, result, System.nanoTime() - nano);
             } catch (final RemoteException e) {
                 LOG.error("Fail to send the request result to orchestrator server", e);
                 System.exit(0);
@@ -67,7 +68,7 @@ public class HBaseGrayClientMain {
                 if (progress == 0) {
                     final long nano = System.nanoTime();
                     client.createTable(tableId, columnFamilyNumber);
-                    reply("success", nano);
+                    reply("createTable", "success", nano);
                     progress++;
                 }
                 while (progress < columnFamilyNumber * quantifierNumber * rowNumber + 1) {
@@ -76,7 +77,7 @@ public class HBaseGrayClientMain {
                     final int cf = (progress - 1 - r - q * rowNumber) / quantifierNumber / rowNumber;
                     final long nano = System.nanoTime();
                     client.put(tableId, cf, q, r, data);
-                    reply("success", nano);
+                    reply("put", "success", nano);
                     progress++;
                 }
             } catch (Exception e) {
@@ -101,7 +102,7 @@ public class HBaseGrayClientMain {
                     final int r = rand.nextInt(rowNumber);
                     final long nano = System.nanoTime();
                     client.get(tableId, r);
-                    reply("success", nano);
+                    reply("get", "success", nano);
                     progress++;
                 }
             } catch (Exception e) {
@@ -128,7 +129,7 @@ public class HBaseGrayClientMain {
                     final int cf = rand.nextInt(columnFamilyNumber);
                     final long nano = System.nanoTime();
                     client.put(tableId, cf, q, r, data);
-                    reply("success", nano);
+                    reply("put", "success", nano);
                     progress++;
                 }
             } catch (Exception e) {
@@ -167,13 +168,15 @@ public class HBaseGrayClientMain {
         if (args.length == 1) {
             clientId = Integer.parseInt(args[0]);
             LOG.info("My client id is {}", clientId);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
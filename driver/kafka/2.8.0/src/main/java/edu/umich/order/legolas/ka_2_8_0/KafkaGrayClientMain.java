@@ -21,9 +21,9 @@
 
 package edu.umich.order.legolas.ka_2_8_0;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
 import java.time.Duration;
@@ -48,6 +48,7 @@ public class KafkaGrayClientMain {
     private static final Logger LOG = LoggerFactory.getLogger(KafkaGrayClientMain.class);
 
     private static OrchestratorRemote stub = null;
+    private static ClientFeedbackReporter reporter = null;
     private static int clientId = -1;
     private static int creatorId = -1;
     private static int request;
@@ -59,11 +60,11 @@ public class KafkaGrayClientMain {
     private static int clientProgress = 0;
     private static long t0 = System.nanoTime();
 
-    private static void reply(final String result, final long nano) {
+    private static void reply(final String op, final String result, final long nano) {
         LOG.info("progress = {}, time = {}", ++clientProgress, System.nanoTime() - t0);
-        if (stub != null) {
+        if (reporter != null) {
             try {
-                stub.send(new ClientFeedback(clientId, result, System.nanoTime() - nano));
+                reporter.report(op, result, System.nanoTime() - nano);
             } catch (final RemoteException e) {
                 LOG.error("Fail to send the request result to orchestrator server", e);
                 System.exit(0);
@@ -82,7 +83,7 @@ public class KafkaGrayClientMain {
                             "gray-" + creatorId + "-" + progress, 2, (short) 2);
                     final CreateTopicsResult result = client.createTopics(Collections.singleton(newTopic));
                     result.all().get();
-                    reply("success", nano);
+                    reply("createTopic", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -108,7 +109,7 @@ public class KafkaGrayClientMain {
                     producer.send(new ProducerRecord<String, String>(topicName,
                             Integer.toString(rand.nextInt(request)),
                             Integer.toString(rand.nextInt(request))));
-                    reply("success", nano);
+                    reply("send", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -134,7 +135,7 @@ public class KafkaGrayClientMain {
                     final long nano = System.nanoTime();
                     final ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(1000));
                     for (final ConsumerRecord<String, String> record : records) {
-                        reply("success", nano);
+                        reply("poll", "success", nano);
                         progress++;
                     }
                 }
@@ -199,13 +200,15 @@ public class KafkaGrayClientMain {
         if (args.length == 1) {
             clientId = Integer.parseInt(args[0]);
             LOG.info("My client id is {}", clientId);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
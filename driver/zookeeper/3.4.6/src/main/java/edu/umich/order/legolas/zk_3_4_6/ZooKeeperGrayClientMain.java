@@ -21,9 +21,9 @@
 
 package edu.umich.order.legolas.zk_3_4_6;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
 import java.util.Arrays;
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 public class ZooKeeperGrayClientMain {
     private static final Logger LOG = LoggerFactory.getLogger(ZooKeeperGrayClientMain.class);
     private static OrchestratorRemote stub = null;
+    private static ClientFeedbackReporter reporter = null;
     private static int clientId = -1;
     private static int entryNum = -1;
     private static int iteration = -1;
@@ -67,11 +68,11 @@ public class ZooKeeperGrayClientMain {
     private static int progress = 0;
     private static long t0 = System.nanoTime();
 
-    private static void reply(final String result, final long nano) {
+    private static void reply(final String op, final String result, final long nano) {
         LOG.info("progress = {}, time = {}", ++progress, System.nanoTime() - t0);
-        if (stub != null) {
+        if (reporter != null) {
             try {
-                stub.send(new ClientFeedback(clientId, result, System.nanoTime() - nano));
+                reporter.report(op, result, System.nanoTime() - nano);
             } catch (final RemoteException e) {
                 LOG.error("Fail to send the request result to orchestrator server", e);
                 System.exit(0);
@@ -91,7 +92,7 @@ public class ZooKeeperGrayClientMain {
                     }
                     final long nano = System.nanoTime();
                     client.create("/zookeeper/" + progress, "0000".getBytes());
-                    reply("success", nano);
+                    reply("create", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -114,7 +115,7 @@ public class ZooKeeperGrayClientMain {
                 for (int i = progress; i < iteration; i++) {
                     final long nano = System.nanoTime();
                     client.getData("/zookeeper/" + rand.nextInt(entryNum));
-                    reply("success", nano);
+                    reply("read", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -139,7 +140,7 @@ public class ZooKeeperGrayClientMain {
                     final long nano = System.nanoTime();
                     client.setData("/zookeeper/" + rand.nextInt(entryNum),
                             data[rand.nextInt(data.length)]);
-                    reply("success", nano);
+                    reply("write", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -160,13 +161,15 @@ public class ZooKeeperGrayClientMain {
             final String name = ManagementFactory.getRuntimeMXBean().getName();
             final long pid = Long.parseLong(name.substring(0, name.indexOf('@')));
             LOG.info("My process's pid is {}", pid);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
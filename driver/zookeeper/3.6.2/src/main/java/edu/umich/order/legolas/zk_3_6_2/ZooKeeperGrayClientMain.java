@@ -21,9 +21,9 @@
 
 package edu.umich.order.legolas.zk_3_6_2;
 
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import edu.umich.order.legolas.common.api.ClientStubFactory;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
 import java.lang.management.ManagementFactory;
 import java.rmi.RemoteException;
 import java.util.Arrays;
@@ -35,6 +35,7 @@ public class ZooKeeperGrayClientMain {
     private static final Logger LOG = LoggerFactory.getLogger(ZooKeeperGrayClientMain.class);
 
     public static OrchestratorRemote stub = null;
+    public static ClientFeedbackReporter reporter = null;
     public static int clientId = -1;
     public static int timeout = 7000;
     public static final long t0 = System.nanoTime();
@@ -71,11 +72,11 @@ public class ZooKeeperGrayClientMain {
 
     private static int progress = 0;
 
-    private static void reply(final String result, final long nano) {
+    private static void reply(final String op, final String result, final long nano) {
         LOG.info("progress = {}, time = {}", ++progress, System.nanoTime() - t0);
-        if (stub != null) {
+        if (reporter != null) {
             try {
-                stub.send(new ClientFeedback(clientId, result, System.nanoTime() - nano));
+                reporter.report(op, result, System.nanoTime() - nano);
             } catch (final RemoteException e) {
                 LOG.error("Fail to send the request result to orchestrator server", e);
                 System.exit(0);
@@ -95,7 +96,7 @@ public class ZooKeeperGrayClientMain {
                     }
                     final long nano = System.nanoTime();
                     client.create("/zookeeper/" + progress, "0000".getBytes());
-                    reply("success", nano);
+                    reply("create", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -118,7 +119,7 @@ public class ZooKeeperGrayClientMain {
                 for (int i = progress; i < iteration; i++) {
                     final long nano = System.nanoTime();
                     client.getData("/zookeeper/" + rand.nextInt(entryNum));
-                    reply("success", nano);
+                    reply("read", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -143,7 +144,7 @@ public class ZooKeeperGrayClientMain {
                     final long nano = System.nanoTime();
                     client.setData("/zookeeper/" + rand.nextInt(entryNum),
                             data[rand.nextInt(data.length)]);
-                    reply("success", nano);
+                    reply("write", "success", nano);
                     progress++;
                 }
             } catch (final Exception e) {
@@ -164,13 +165,15 @@ public class ZooKeeperGrayClientMain {
             final String name = ManagementFactory.getRuntimeMXBean().getName();
             final long pid = Long.parseLong(name.substring(0, name.indexOf('@')));
             LOG.info("My process's pid is {}", pid);
-            stub = ClientStubFactory.getOrchestratorStub(1099);
+            stub = ClientStubFactory.getOrchestratorStub();
             if (stub == null) {
                 LOG.error("Failed to get a client for orchestrator server");
             } else {
                 try {
                     final String[] command = stub.registerClient(clientId, pid);
+                    reporter = new ClientFeedbackReporter(stub, clientId);
                     run(command);
+                    reporter.close();
                 } catch (final RemoteException e) {
                     LOG.error("Failed to register with the orchestrator server");
                 }
@@ -20,8 +20,10 @@
  */
 package edu.umich.order.legolas.zk_3_6_2;
 
-import edu.umich.order.legolas.common.api.OrchestratorRemote.ClientFeedback;
+import edu.umich.order.legolas.common.api.ClientFeedbackReporter;
 import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -56,26 +58,37 @@ public class ZooKeeperGrayWatcherMain {
             }
         } catch (final Exception e) {
             LOG.error("Exception in watcher:", e);
+        } finally {
+            for (final ClientFeedbackReporter reporter : reporters.values()) {
+                reporter.close();
+            }
         }
     }
 
-    private static final Object stubLock = new Object();
+    // this process reports on behalf of several client ids, with one reporter for each of them
+    private static final Map<Integer, ClientFeedbackReporter> reporters = new ConcurrentHashMap<>();
+
+    private static ClientFeedbackReporter getReporter(final int clientId) {
+        if (clientId == ZooKeeperGrayClientMain.clientId) {
+            return ZooKeeperGrayClientMain.reporter;
+        }
+        return reporters.computeIfAbsent(clientId,
+                id -> new ClientFeedbackReporter(ZooKeeperGrayClientMain.stub, id));
+    }
 
-    private static void reply(final int clientId, final int progress,
+    private static void reply(final int clientId, final String op, final int progress,
             final long nano, final String result) {
         final long duration = System.nanoTime() - nano;
         final String msg = String.format("progress = %d, time = %d, result = %s, client = %d",
                 progress, System.nanoTime() - ZooKeeperGrayClientMain.t0, result, clientId);
         LOG.info(msg);
-        if (ZooKeeperGrayClientMain.stub != null) {
-            synchronized (stubLock) {
-                try {
-                    ZooKeeperGrayClientMain.stub.send(
-                            new ClientFeedback(clientId, result, duration));
-                } catch (final RemoteException e) {
-                    LOG.error("Fail to send the request result to orchestrator server", e);
-                    System.exit(0);
-                }
+        if (ZooKeeperGrayClientMain.reporter != null) {
+            // the reporters are thread-safe, so the watchers can report concurrently
+            try {
+                getReporter(clientId).report(op, result, duration);
+            } catch (final RemoteException e) {
+                LOG.error("Fail to send the request result to orchestrator server", e);
+                System.exit(0);
             }
         }
     }
@@ -106,44 +119,46 @@ public class ZooKeeperGrayWatcherMain {
                         nano = System.nanoTime();
                         result = client.exists("/foo", true) == null? "null" : "exist";
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "exists", progress, nano, result);
                     case 1:
                         nano = System.nanoTime();
                         result = client.create("/foo", "missing".getBytes(),
                                 Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "create", progress, nano, result);
                     case 2:
                         existWatcher = new ForwardingWatcher(existWatchId, "barExist");
                         nano = System.nanoTime();
                         existWatcher.updateStartingTime(nano);
                         result = client.exists("/foo/bar", existWatcher) == null? "null" : "exist";
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "exists", progress, nano, result);
                     case 3:
                         childrenWatcher = new ForwardingWatcher(childrenWatchId, "fooChildren");
                         nano = System.nanoTime();
                         childrenWatcher.updateStartingTime(nano);
                         result = client.getChildren("/foo", childrenWatcher).toString();
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "getChildren", progress, nano,
+                                result);
                     case 4:
                         nano = System.nanoTime();
                         result = client.create("/foo/bar", "missing".getBytes(),
                                 Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "create", progress, nano, result);
                     case 5:
                         nano = System.nanoTime();
                         result = client.getChildren("/foo", true).toString();
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "getChildren", progress, nano,
+                                result);
                     case 6:
                         nano = System.nanoTime();
                         result = client.create("/foo/car", "missing".getBytes(),
                                 Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                         progress++;
-                        reply(ZooKeeperGrayClientMain.clientId, progress, nano, result);
+                        reply(ZooKeeperGrayClientMain.clientId, "create", progress, nano, result);
                     default:
                 }
                 break;
@@ -198,7 +213,8 @@ public class ZooKeeperGrayWatcherMain {
                         nano = this.nano;
                     }
                     this.progress++;
-                    reply(this.forwardingClientId, this.progress, nano, watchedEvent.toString());
+                    reply(this.forwardingClientId, "watch", this.progress, nano,
+                            watchedEvent.toString());
                 }
             }
             if (watchedEvent.getState() == KeeperState.SyncConnected) {
@@ -388,24 +404,24 @@ public class ZooKeeperGrayWatcherMain {
                             nano = System.nanoTime();
                             result = read1(client);
                             progress++;
-                            reply(id, progress, nano, result);
+                            reply(id, "read", progress, nano, result);
                         case 1:
                             nano = System.nanoTime();
                             write(client);
                             result = "success";
                             progress++;
-                            reply(id, progress, nano, result);
+                            reply(id, "write", progress, nano, result);
                         case 2:
                             nano = System.nanoTime();
                             result = read2(client);
                             progress++;
-                            reply(id, progress, nano, result);
+                            reply(id, "read", progress, nano, result);
                         case 3:
                             nano = System.nanoTime();
                             delete(client);
                             result = "success";
                             progress++;
-                            reply(id, progress, nano, result);
+                            reply(id, "delete", progress, nano, result);
                         default:
                     }
                     break;
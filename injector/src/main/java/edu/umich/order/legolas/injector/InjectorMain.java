@@ -20,16 +20,61 @@
  */
 package edu.umich.order.legolas.injector;
 
+import edu.umich.order.legolas.common.api.InjectorServiceRemote;
+import edu.umich.order.legolas.common.api.RegistryFactory;
+import edu.umich.order.legolas.injector.server.InjectorServiceServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Entry of the Legolas injector
+ * Entry of the Legolas injector, a standalone injection service shared by the orchestrators whose
+ * configuration sets injectorPort. It runs until it is killed.
+ *
+ * Usage: InjectorMain configFile
  */
 public class InjectorMain {
     private static final Logger LOG = LoggerFactory.getLogger(InjectorMain.class);
 
     public static void main(String[] args) {
+        if (args.length != 1) {
+            LOG.error("Usage: InjectorMain configFile");
+            System.exit(1);
+        }
+        String configFile = args[0];
+        final Properties properties = new Properties();
+        try {
+            properties.load(Files.newInputStream(Paths.get(configFile)));
+        } catch (IOException e) {
+            LOG.error("Failed to load configuration file {}", configFile);
+            System.exit(1);
+        }
         LOG.info("Bootstrapping Legolas injector");
+        final int port = Integer.parseInt(properties.getProperty("injectorPort",
+                String.valueOf(InjectorServiceRemote.REMOTE_PORT)));
+        final CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            final InjectorServiceServer server = new InjectorServiceServer(properties, port,
+                    RegistryFactory.getRegistry(port, true));
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.shutdown();
+                stopped.countDown();
+            }));
+            LOG.info("Legolas injector serves at port {}", port);
+            stopped.await();
+        } catch (RemoteException ex) {
+            LOG.error("Failed to initialize the injector", ex);
+        } catch (InterruptedException ex) {
+            LOG.warn("Interrupted while serving");
+        } catch (Exception ex) {
+            LOG.error("Failed to start the injector", ex);
+        }
+        LOG.info("Legolas injector ends");
     }
 }
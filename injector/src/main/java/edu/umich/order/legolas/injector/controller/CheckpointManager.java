@@ -0,0 +1,251 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.controller;
+
+import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import edu.umich.order.legolas.injector.policy.Checkpointable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists the controller and policy state in the workspace after every completed trial.
+ *
+ * Each trial appends the policy delta to an append-only journal; every {@code interval} trials
+ * the full state is written to a snapshot and the journal is truncated. Records are framed with
+ * their length and CRC, so a record torn by a crash is discarded on recovery.
+ */
+public final class CheckpointManager implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointManager.class);
+
+    private static final class Entry implements Serializable {
+        private final int trialId;
+        private final Serializable state;
+        // the delay calibration of the controller, small enough to be saved in full every time
+        private final Serializable calibration;
+
+        private Entry(final int trialId, final Serializable state,
+                final Serializable calibration) {
+            this.trialId = trialId;
+            this.state = state;
+            this.calibration = calibration;
+        }
+    }
+
+    private final File journalFile;
+    private final File snapshotFile;
+    private final File snapshotTmpFile;
+    private final int interval;
+
+    private FileOutputStream journalStream = null;
+    private DataOutputStream journal = null;
+    private int journaled = 0;
+    // the size of the last record read, used to locate the end of the valid journal
+    private int lastRecordSize = 0;
+    private Serializable calibration = null;
+
+    public CheckpointManager(final String dirPathName, final int interval, final boolean resume)
+            throws IOException {
+        final File dir = new File(dirPathName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("fail to create checkpoint directory " + dirPathName);
+        }
+        this.journalFile = new File(dir, "journal");
+        this.snapshotFile = new File(dir, "snapshot");
+        this.snapshotTmpFile = new File(dir, "snapshot.tmp");
+        this.interval = Math.max(interval, 1);
+        if (!resume) {
+            // a new experiment in the same workspace starts from scratch
+            Files.deleteIfExists(journalFile.toPath());
+            Files.deleteIfExists(snapshotFile.toPath());
+        }
+        Files.deleteIfExists(snapshotTmpFile.toPath());
+    }
+
+    /**
+     * Restore the policy from the last snapshot and the journal after it.
+     *
+     * @return the id of the last completed trial, or -1 if there is no checkpoint
+     */
+    public int recover(final InjectionPolicy policy) throws IOException, ClassNotFoundException {
+        int trialId = -1;
+        if (snapshotFile.exists()) {
+            try (final DataInputStream in = new DataInputStream(
+                    Files.newInputStream(snapshotFile.toPath()))) {
+                final Entry entry = readRecord(in, snapshotFile.length());
+                if (entry == null) {
+                    throw new IOException("corrupted checkpoint snapshot " + snapshotFile);
+                }
+                if (policy instanceof Checkpointable && entry.state != null) {
+                    ((Checkpointable) policy).restore(entry.state);
+                }
+                trialId = entry.trialId;
+                calibration = entry.calibration;
+            }
+        }
+        long valid = 0;
+        int replayed = 0;
+        if (journalFile.exists()) {
+            try (final DataInputStream in = new DataInputStream(
+                    Files.newInputStream(journalFile.toPath()))) {
+                Entry entry;
+                while ((entry = readRecord(in, journalFile.length())) != null) {
+                    valid += lastRecordSize;
+                    // entries before the snapshot remain if we crashed before the truncation
+                    if (entry.trialId > trialId) {
+                        if (policy instanceof Checkpointable && entry.state != null) {
+                            ((Checkpointable) policy).apply(entry.state);
+                        }
+                        trialId = entry.trialId;
+                        calibration = entry.calibration;
+                        replayed++;
+                    }
+                }
+            }
+            if (valid < journalFile.length()) {
+                LOG.warn("discarding {} bytes of torn journal tail", journalFile.length() - valid);
+                try (final FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                    out.getChannel().truncate(valid);
+                }
+            }
+        }
+        journaled = replayed;
+        LOG.info("recovered checkpoint at trial {} with {} journaled trials", trialId, replayed);
+        return trialId;
+    }
+
+    /**
+     * @return the delay calibration recovered with the last completed trial, or null
+     */
+    public Serializable getCalibration() {
+        return calibration;
+    }
+
+    /**
+     * Persist the state after the trial {@code trialId} completes
+     */
+    public void commit(final int trialId, final InjectionPolicy policy,
+            final Serializable calibration) throws IOException {
+        final Checkpointable checkpointable =
+                policy instanceof Checkpointable ? (Checkpointable) policy : null;
+        if (journaled + 1 >= interval) {
+            writeSnapshot(new Entry(trialId,
+                    checkpointable == null ? null : checkpointable.snapshot(), calibration));
+            return;
+        }
+        if (journal == null) {
+            journalStream = new FileOutputStream(journalFile, true);
+            journal = new DataOutputStream(journalStream);
+        }
+        writeRecord(journal, new Entry(trialId,
+                checkpointable == null ? null : checkpointable.delta(), calibration));
+        journal.flush();
+        journalStream.getFD().sync();
+        journaled++;
+    }
+
+    private void writeSnapshot(final Entry entry) throws IOException {
+        try (final FileOutputStream out = new FileOutputStream(snapshotTmpFile)) {
+            final DataOutputStream data = new DataOutputStream(out);
+            writeRecord(data, entry);
+            data.flush();
+            out.getFD().sync();
+        }
+        Files.move(snapshotTmpFile.toPath(), snapshotFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        closeJournal();
+        try (final FileOutputStream out = new FileOutputStream(journalFile)) {
+            out.getFD().sync();
+        }
+        journaled = 0;
+        LOG.info("checkpoint snapshot at trial {}", entry.trialId);
+    }
+
+    private static void writeRecord(final DataOutputStream out, final Entry entry)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(entry);
+        }
+        final byte[] data = bytes.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeLong(crc.getValue());
+    }
+
+    private Entry readRecord(final DataInputStream in, final long limit)
+            throws IOException, ClassNotFoundException {
+        final byte[] data;
+        final long checksum;
+        try {
+            final int length = in.readInt();
+            if (length <= 0 || length > limit) {
+                return null;
+            }
+            data = new byte[length];
+            in.readFully(data);
+            checksum = in.readLong();
+        } catch (final EOFException e) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != checksum) {
+            return null;
+        }
+        lastRecordSize = 4 + data.length + 8;
+        try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Entry) ois.readObject();
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+            journalStream = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            closeJournal();
+        } catch (final IOException e) {
+            LOG.warn("fail to close the checkpoint journal", e);
+        }
+    }
+}
@@ -20,8 +20,12 @@
  */
 package edu.umich.order.legolas.injector.controller;
 
+import edu.umich.order.legolas.common.api.ClientStubFactory;
+import edu.umich.order.legolas.common.api.CoordinatorRemote;
 import edu.umich.order.legolas.common.fault.InjectionPolicy;
 import edu.umich.order.legolas.injector.policy.PolicyFactory;
+import edu.umich.order.legolas.injector.policy.ReproducePolicy;
+import java.io.IOException;
 import java.util.Properties;
 
 /**
@@ -29,14 +33,62 @@ import java.util.Properties;
  */
 public class ControllerFactory {
 
-    public static InjectionController createController(Properties properties) {
+    public static InjectionController createController(Properties properties)
+            throws IOException, ClassNotFoundException {
+        final InjectionController controller = newController(properties);
+        controller.enableCoverage(FaultSpaceCoverage.create(properties));
+        controller.enableSlowdown(SlowdownSpec.create(properties));
+        controller.enableDelayCalibration(DelayCalibrator.create(properties));
+        controller.enableRoleTargeting(properties.getProperty("targetRole"));
+        return controller;
+    }
+
+    private static InjectionController newController(Properties properties)
+            throws IOException, ClassNotFoundException {
+        final String coordinatorPort = properties.getProperty("coordinatorPort");
+        if (coordinatorPort != null) {
+            return createWorkerController(properties, Integer.parseInt(coordinatorPort));
+        }
         final InjectionPolicy policy = PolicyFactory.createPolicy(properties);
+        if (policy instanceof ReproducePolicy) {
+            // by default, the outcome of the recorded trial
+            final ReproducePolicy reproducePolicy = (ReproducePolicy) policy;
+            return new ReproduceController(reproducePolicy,
+                    Integer.parseInt(properties.getProperty("maxTrials", "10")),
+                    properties.getProperty("reproduceOutcome",
+                            reproducePolicy.getRecordedOutcome()),
+                    Integer.parseInt(properties.getProperty("reproduceStopAfter", "1")),
+                    properties.getProperty("workspacePathName"));
+        }
         String controllerType = properties.getProperty("injectionController");
         if (controllerType != null && controllerType.equals("Debug")) {
             return new DebugController(policy);
         }
         int maxTrials = Integer.parseInt(properties.getProperty("maxTrials",
                 "2000"));
-        return new InjectionController(policy, maxTrials);
+        final InjectionController controller = new InjectionController(policy, maxTrials);
+        if (Boolean.parseBoolean(properties.getProperty("checkpoint", "true"))) {
+            final boolean resume = Boolean.parseBoolean(properties.getProperty("resume", "false"));
+            final int interval = Integer.parseInt(properties.getProperty("checkpointInterval",
+                    "20"));
+            controller.enableCheckpoints(new CheckpointManager(
+                    properties.getProperty("workspacePathName") + "/checkpoint", interval,
+                    resume), resume);
+        }
+        return controller;
+    }
+
+    private static InjectionController createWorkerController(final Properties properties,
+            final int coordinatorPort) throws IOException {
+        final CoordinatorRemote coordinator = ClientStubFactory.getCoordinatorStub(coordinatorPort);
+        if (coordinator == null) {
+            throw new IOException("coordinator not found at port " + coordinatorPort);
+        }
+        final int workerId = coordinator.registerWorker(
+                properties.getProperty("workspacePathName") + "/trials");
+        if (workerId < 0) {
+            throw new IOException("no free shard in the coordinator");
+        }
+        return new WorkerController(coordinator, workerId);
     }
 }
@@ -0,0 +1,229 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the length of the injected delays around the effective timeouts of the target, instead
+ * of the fixed 1 min of the agent. The timeouts come from the configuration of the target, e.g.,
+ * tickTime*syncLimit for ZooKeeper. The first trials inject nothing and calibrate the baseline
+ * trial duration, which bounds the delays so that a delayed trial can still finish in time. If
+ * no delay fits, or no baseline trial succeeds within the calibration attempts, delays are not
+ * injected at all rather than with the agent's default.
+ */
+public final class DelayCalibrator {
+    private static final Logger LOG = LoggerFactory.getLogger(DelayCalibrator.class);
+
+    private final int calibrationTrials;
+    private final int maxAttempts;
+    private final long trialTimeout;
+    private final List<Long> timeouts;
+    private final double[] factors;
+
+    private final ArrayList<Long> baseline = new ArrayList<>();
+    private int attempts = 0;
+    private long trialStartMillis = -1;
+    private ArrayList<Long> delays = null;
+    private int next = 0;
+
+    private static final class Calibration implements Serializable {
+        private final ArrayList<Long> baseline;
+        private final int attempts;
+        private final ArrayList<Long> delays;
+
+        private Calibration(final DelayCalibrator calibrator) {
+            this.baseline = new ArrayList<>(calibrator.baseline);
+            this.attempts = calibrator.attempts;
+            this.delays = calibrator.delays == null ? null : new ArrayList<>(calibrator.delays);
+        }
+    }
+
+    public DelayCalibrator(final int calibrationTrials, final int maxAttempts,
+            final long trialTimeout, final List<Long> timeouts, final double[] factors) {
+        this.calibrationTrials = calibrationTrials;
+        this.maxAttempts = Math.max(maxAttempts, calibrationTrials);
+        this.trialTimeout = trialTimeout;
+        this.timeouts = timeouts;
+        this.factors = factors;
+        LOG.info("target timeouts = {} ms", timeouts);
+    }
+
+    /**
+     * @return the calibrator if delayMode is adaptive, otherwise null
+     */
+    public static DelayCalibrator create(final Properties properties) throws IOException {
+        if (!properties.getProperty("delayMode", "fixed").equals("adaptive")) {
+            return null;
+        }
+        final Properties target = new Properties();
+        final String targetConfig = properties.getProperty("targetConfigFile");
+        if (targetConfig != null) {
+            try (InputStream in = Files.newInputStream(Paths.get(targetConfig))) {
+                target.load(in);
+            }
+        }
+        final List<Long> timeouts = new ArrayList<>();
+        for (final String entry : properties.getProperty("delayTimeouts", "").split(",")) {
+            if (!entry.trim().isEmpty()) {
+                timeouts.add(evaluate(entry.trim(), target));
+            }
+        }
+        final String[] factorStrings = properties.getProperty("delayFactors", "0.5,1.5")
+                .split(",");
+        final double[] factors = new double[factorStrings.length];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = Double.parseDouble(factorStrings[i].trim());
+        }
+        final int calibrationTrials = Integer.parseInt(
+                properties.getProperty("delayCalibrationTrials", "3"));
+        return new DelayCalibrator(calibrationTrials,
+                Integer.parseInt(properties.getProperty("delayCalibrationAttempts",
+                        String.valueOf(3 * calibrationTrials))),
+                Long.parseLong(properties.getProperty("trialTimeout", "60000")), timeouts,
+                factors);
+    }
+
+    /**
+     * @param expression a number of ms, or a product of numbers and keys in the target config
+     */
+    static long evaluate(final String expression, final Properties target) {
+        long result = 1;
+        for (final String term : expression.split("\\*")) {
+            final String key = term.trim();
+            final String value = target.getProperty(key, key);
+            try {
+                result *= Long.parseLong(value.trim());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("Unknown timeout term " + key
+                        + " in " + expression, e);
+            }
+        }
+        return result;
+    }
+
+    public boolean isCalibrating() {
+        return delays == null;
+    }
+
+    /**
+     * @return whether the calibrated delays can be injected
+     */
+    public boolean canDelay() {
+        return delays != null && !delays.isEmpty();
+    }
+
+    /**
+     * @return the calibration so far, persisted with the checkpoints of the controller
+     */
+    public Serializable snapshot() {
+        return new Calibration(this);
+    }
+
+    public void restore(final Serializable snapshot) {
+        final Calibration calibration = (Calibration) snapshot;
+        baseline.clear();
+        baseline.addAll(calibration.baseline);
+        attempts = calibration.attempts;
+        delays = calibration.delays;
+        LOG.info("restored calibration: baseline = {} ms, delays = {} ms", baseline, delays);
+    }
+
+    public void onTrialStarted() {
+        trialStartMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @param succeeded whether the trial ended normally, only those measure the baseline
+     */
+    public void onTrialCompleted(final boolean succeeded) {
+        if (!isCalibrating() || trialStartMillis < 0) {
+            return;
+        }
+        final long duration = System.currentTimeMillis() - trialStartMillis;
+        trialStartMillis = -1;
+        attempts++;
+        if (succeeded) {
+            baseline.add(duration);
+        } else {
+            LOG.warn("baseline trial failed after {} ms, not measured", duration);
+        }
+        if (baseline.size() >= calibrationTrials) {
+            calibrate();
+        } else if (attempts >= maxAttempts) {
+            if (baseline.isEmpty()) {
+                delays = new ArrayList<>();
+                LOG.error("no baseline trial succeeded in {} attempts, delays are not injected",
+                        attempts);
+            } else {
+                LOG.warn("only {} baseline trials succeeded in {} attempts", baseline.size(),
+                        attempts);
+                calibrate();
+            }
+        }
+    }
+
+    private void calibrate() {
+        long longest = 0;
+        for (final long duration : baseline) {
+            longest = Math.max(longest, duration);
+        }
+        // a longer delay would outlive the trial
+        final long cap = trialTimeout - longest;
+        final List<Long> scales = new ArrayList<>(timeouts);
+        if (scales.isEmpty()) {
+            Collections.sort(baseline);
+            scales.add(baseline.get(baseline.size() / 2));
+        }
+        delays = new ArrayList<>();
+        for (final long scale : scales) {
+            for (final double factor : factors) {
+                final long delay = Math.min((long) (scale * factor), cap);
+                if (delay > 0 && !delays.contains(delay)) {
+                    delays.add(delay);
+                }
+            }
+        }
+        if (delays.isEmpty()) {
+            // the default of the agent is even longer
+            LOG.error("no room for a delay in trial timeout {} ms, delays are not injected",
+                    trialTimeout);
+        }
+        LOG.info("calibrated delays = {} ms from baseline trials of {} ms", delays, baseline);
+    }
+
+    /**
+     * @return the length of the next delay in ms, only if {@link #canDelay()}
+     */
+    public long nextDelay() {
+        return delays.get(next++ % delays.size());
+    }
+}
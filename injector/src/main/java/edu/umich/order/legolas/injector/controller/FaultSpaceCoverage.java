@@ -0,0 +1,110 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.controller;
+
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.fault.FaultSpaceManifest;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the sites of the static fault space (see FaultSpaceManifest) reached by the injection
+ * requests. The unreached sites are dumped at the end so that the workload can be extended to
+ * reach them.
+ */
+public final class FaultSpaceCoverage {
+    private static final Logger LOG = LoggerFactory.getLogger(FaultSpaceCoverage.class);
+
+    private final FaultSpaceManifest manifest;
+    private final Map<String, FaultSpaceManifest.Site> sites = new HashMap<>();
+    private final int faults;
+    // site key -> the first trial that reached it
+    private final Map<String, Integer> reached = new ConcurrentHashMap<>();
+    // requests from sites missing in the manifest, e.g., from a stale manifest
+    private final Map<String, Integer> unknown = new ConcurrentHashMap<>();
+    private final File output;
+
+    public FaultSpaceCoverage(final FaultSpaceManifest manifest, final File output) {
+        this.manifest = manifest;
+        for (final FaultSpaceManifest.Site site : manifest.sites) {
+            sites.put(site.key(), site);
+        }
+        this.faults = manifest.faults();
+        this.output = output;
+        LOG.info("fault space: {} sites, {} faults", sites.size(), faults);
+    }
+
+    /**
+     * @return the coverage configured by faultSpaceManifest, or null if there is no manifest
+     */
+    public static FaultSpaceCoverage create(final Properties properties) throws IOException {
+        final String path = properties.getProperty("faultSpaceManifest");
+        if (path == null) {
+            return null;
+        }
+        return new FaultSpaceCoverage(FaultSpaceManifest.load(new File(path)),
+                new File(properties.getProperty("workspacePathName"), "fault_space_coverage.csv"));
+    }
+
+    public void reach(final ThreadInjectionRequest request, final int trialId) {
+        final String key = FaultSpaceManifest.key(request.className, request.methodName,
+                request.lineNum, request.op);
+        if (reached.containsKey(key) || unknown.containsKey(key)) {
+            return;
+        }
+        if (sites.containsKey(key)) {
+            reached.putIfAbsent(key, trialId);
+        } else if (unknown.putIfAbsent(key, trialId) == null) {
+            LOG.warn("site {} is not in the fault space manifest", key);
+        }
+    }
+
+    public void report(final int trialId) {
+        int reachedFaults = 0;
+        for (final String key : reached.keySet()) {
+            reachedFaults += sites.get(key).faults();
+        }
+        LOG.info("fault space coverage after trial {}: {}/{} sites, {}/{} faults", trialId,
+                reached.size(), sites.size(), reachedFaults, faults);
+    }
+
+    public void close() {
+        try (PrintWriter writer = new PrintWriter(output)) {
+            writer.println("id,class,method,line,op,faults,equivalence,state_machine,first_trial");
+            for (final FaultSpaceManifest.Site site : manifest.sites) {
+                writer.println(site.id + "," + site.className + ",\"" + site.methodName + "\","
+                        + site.lineNum + ",\"" + site.op + "\"," + site.faults() + ","
+                        + site.equivalence + "," + site.stateMachine + ","
+                        + reached.getOrDefault(site.key(), -1));
+            }
+        } catch (final IOException e) {
+            LOG.error("Failed to write the fault space coverage", e);
+        }
+        LOG.info("{} sites never reached, see {}", sites.size() - reached.size(), output);
+    }
+}
@@ -21,9 +21,17 @@
 package edu.umich.order.legolas.injector.controller;
 
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionEvent;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
 import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import edu.umich.order.legolas.common.fault.TrialOutcome.Kind;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +45,20 @@ public class InjectionController {
     protected int maxTrials;
     protected int trialId;
     private AtomicBoolean ready = new AtomicBoolean(false);
+    // the number of faults injected in the current trial, including those dropped by the agents
+    private final AtomicInteger injections = new AtomicInteger(0);
+    // the injections of the current trial by id, with the commands of the policy, and the number
+    // of them dropped by the agents, which do not count against the fault budget
+    private final Map<Integer, Grant> grants = new ConcurrentHashMap<>();
+    private final AtomicInteger dropped = new AtomicInteger(0);
+    private CheckpointManager checkpoints = null;
+    private FaultSpaceCoverage coverage = null;
+    private SlowdownSpec slowdown = null;
+    private DelayCalibrator calibrator = null;
+    // the live roles of the servers in the current trial, published by the orchestrator
+    private final Map<Integer, String> roles = new ConcurrentHashMap<>();
+    // only inject in the servers of this role when their roles are known, null for any role
+    private String targetRole = null;
 
     public InjectionController(final InjectionPolicy policy) {
         this.policy = policy;
@@ -50,11 +72,72 @@ public class InjectionController {
         LOG.info("# of trials = {}", maxTrials);
     }
 
+    private static final class Grant {
+        private final ThreadInjectionRequest request;
+        private final InjectionRemoteCommand command;
+
+        private Grant(final ThreadInjectionRequest request, final InjectionRemoteCommand command) {
+            this.request = request;
+            this.command = command;
+        }
+    }
+
     public final InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
-        if (!ready.get()) {
+        if (coverage != null) {
+            coverage.reach(request, trialId);
+        }
+        if (!ready.get() || injections.get() - dropped.get() >= policy.getFaultBudget()) {
             return new InjectionRemoteCommand(0,  -1, -1);
         }
-        return policy.inject(request);
+        request.role = roles.get(request.serverId);
+        if (targetRole != null && request.role != null && !targetRole.equals(request.role)) {
+            return new InjectionRemoteCommand(0,  -1, -1);
+        }
+        if (calibrator != null && calibrator.isCalibrating()) {
+            // the baseline trials run without faults
+            return new InjectionRemoteCommand(0,  -1, -1);
+        }
+        final InjectionRemoteCommand command = policy.inject(request);
+        if (command.id == -1) {
+            return command;
+        }
+        if (command.delay == 1 && command.delayMillis == 0 && slowdown == null
+                && calibrator != null && !calibrator.canDelay()) {
+            // no calibrated delay fits in the trial, and the agent's default does not either
+            policy.onInjectionDropped(request, command);
+            return new InjectionRemoteCommand(0,  -1, -1);
+        }
+        // the id numbers the injections of a trial
+        final int id = injections.getAndIncrement();
+        grants.put(id, new Grant(request, command));
+        if (command.delay == 1 && slowdown != null) {
+            return new InjectionRemoteCommand(0, command.eid, id, slowdown.create(request));
+        }
+        if (command.delay == 1 && command.delayMillis == 0 && calibrator != null) {
+            // the policy leaves the length of the delay to the calibration
+            return new InjectionRemoteCommand(1, command.eid, id, null, calibrator.nextDelay());
+        }
+        return new InjectionRemoteCommand(command.delay, command.eid, id, null,
+                command.delayMillis);
+    }
+
+    /**
+     * Roll back an injection of the current trial that the agent dropped, so that it neither
+     * counts against the fault budget nor as tried by the policy
+     *
+     * @param id the id of the injection
+     * @return the dropped injection, or null if the id is unknown in the current trial
+     */
+    public final ThreadInjectionEvent dropInjection(final int id) {
+        final Grant grant = grants.remove(id);
+        if (grant == null) {
+            return null;
+        }
+        dropped.incrementAndGet();
+        policy.onInjectionDropped(grant.request, grant.command);
+        LOG.info("injection {} was dropped by the agent and rolled back", id);
+        return new ThreadInjectionEvent(grant.request, grant.command.delay == 1,
+                grant.command.eid, id);
     }
 
     public final void setReady() {
@@ -65,6 +148,100 @@ public class InjectionController {
         return trialId;
     }
 
+    /**
+     * Persist the exploration state after every completed trial; when resuming, restore the state
+     * and the trial id of the last completed trial first.
+     */
+    public final void enableCheckpoints(final CheckpointManager checkpoints, final boolean resume)
+            throws IOException, ClassNotFoundException {
+        this.checkpoints = checkpoints;
+        if (resume) {
+            trialId = checkpoints.recover(policy);
+            LOG.info("resuming the experiment after trial {}", trialId);
+        }
+    }
+
+    /**
+     * Track the requests against the static fault space
+     */
+    public final void enableCoverage(final FaultSpaceCoverage coverage) {
+        this.coverage = coverage;
+    }
+
+    /**
+     * Inject the delays decided by the policy as slowdown windows
+     */
+    public final void enableSlowdown(final SlowdownSpec slowdown) {
+        this.slowdown = slowdown;
+    }
+
+    /**
+     * Choose the length of the delays around the timeouts of the target
+     */
+    public final void enableDelayCalibration(final DelayCalibrator calibrator) {
+        this.calibrator = calibrator;
+        if (calibrator != null && checkpoints != null && checkpoints.getCalibration() != null) {
+            // the baseline trials are not run again after a resume
+            calibrator.restore(checkpoints.getCalibration());
+        }
+    }
+
+    /**
+     * Only inject in the servers of the given role, e.g., LEADING for the ZooKeeper leader
+     */
+    public final void enableRoleTargeting(final String targetRole) {
+        this.targetRole = targetRole;
+        if (targetRole != null) {
+            LOG.info("target role = {}", targetRole);
+        }
+    }
+
+    public final void setRole(final int serverId, final String role) {
+        roles.put(serverId, role);
+    }
+
+    /**
+     * Invoked when the current trial is completed and should not be redone after a restart
+     */
+    public void checkpoint() {
+        if (checkpoints == null) {
+            return;
+        }
+        try {
+            checkpoints.commit(trialId, policy,
+                    calibrator == null ? null : calibrator.snapshot());
+        } catch (final IOException e) {
+            LOG.error("Failed to checkpoint trial {}", trialId, e);
+        }
+    }
+
+    /**
+     * Invoked with every abstract state update, under the same mutex as the injection requests
+     */
+    public void onStateUpdate(final ThreadStateEvent event) {
+        policy.onStateUpdate(event);
+    }
+
+    /**
+     * Invoked with the outcome of the current trial, see Orchestrator.getTrialOutcome(), also for
+     * the trials that threw; those retried are not counted
+     */
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        if (calibrator != null) {
+            calibrator.onTrialCompleted(outcome.counted && outcome.getKind() == Kind.SUCCESS);
+        }
+        policy.onTrialOutcome(outcome);
+    }
+
+    public void close() {
+        if (checkpoints != null) {
+            checkpoints.close();
+        }
+        if (coverage != null) {
+            coverage.close();
+        }
+    }
+
     public boolean hasNextTrial() {
         // if maxTrials is zero or negative, it means endless; trialId starts from 0
         return maxTrials <= 0 || trialId + 1 < maxTrials;
@@ -77,9 +254,42 @@ public class InjectionController {
      * @param incrementId: true - we should increment the trial id; false - keep the current id.
      */
     public final void setupNewTrial(boolean incrementId) {
+        if (coverage != null && trialId >= 0) {
+            coverage.report(trialId);
+        }
         ready.set(false);
+        injections.set(0);
+        grants.clear();
+        dropped.set(0);
         if (incrementId)
-            trialId++;
+            trialId = nextTrialId();
+        if (calibrator != null) {
+            calibrator.onTrialStarted();
+        }
+        roles.clear();
+        policy.setupNewTrial();
+    }
+
+    protected int nextTrialId() {
+        return trialId + 1;
+    }
+
+    /**
+     * Set up a trial whose id is assigned by the coordinator
+     */
+    public final void setupTrial(final int trialId) {
+        if (coverage != null && this.trialId >= 0) {
+            coverage.report(this.trialId);
+        }
+        ready.set(false);
+        injections.set(0);
+        grants.clear();
+        dropped.set(0);
+        this.trialId = trialId;
+        if (calibrator != null) {
+            calibrator.onTrialStarted();
+        }
+        roles.clear();
         policy.setupNewTrial();
     }
 }
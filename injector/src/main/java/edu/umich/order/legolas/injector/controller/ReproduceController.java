@@ -0,0 +1,138 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.controller;
+
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import edu.umich.order.legolas.injector.policy.ReproducePolicy;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repeats the pinned injection of a ReproducePolicy for at most maxTrials runs, and stops as soon
+ * as the expected outcome has been observed stopAfter times. Every run is appended to
+ * reproduce.csv in the workspace.
+ */
+public final class ReproduceController extends InjectionController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReproduceController.class);
+
+    private final ReproducePolicy reproducePolicy;
+    // null means any outcome in which some client did not finish, e.g., when the recorded trial
+    // predates the outcome in orch.json
+    private final String expectedOutcome;
+    private final int stopAfter;
+    private final long startNano = System.nanoTime();
+    private BufferedWriter csv = null;
+
+    private int runs = 0;
+    private int fired = 0;
+    private int reproduced = 0;
+    private int firstReproduced = -1;
+    private long firstReproducedNano = -1;
+
+    public ReproduceController(final ReproducePolicy policy, final int maxTrials,
+            final String expectedOutcome, final int stopAfter, final String workspacePathName) {
+        super(policy, maxTrials);
+        this.reproducePolicy = policy;
+        this.expectedOutcome = expectedOutcome;
+        this.stopAfter = stopAfter;
+        if (expectedOutcome == null) {
+            LOG.warn("no expected outcome, any run with an unfinished client reproduces");
+        } else {
+            LOG.info("expected outcome = {}", expectedOutcome);
+        }
+        try {
+            csv = new BufferedWriter(new FileWriter(workspacePathName + "/reproduce.csv"));
+            csv.write("trial-id,injected,outcome,reproduced,elapsed-ms\n");
+        } catch (final IOException e) {
+            LOG.error("Failed to create reproduce.csv", e);
+            csv = null;
+        }
+    }
+
+    private boolean isExpected(final TrialOutcome outcome) {
+        if (expectedOutcome == null) {
+            return outcome.getKind() != TrialOutcome.Kind.SUCCESS;
+        }
+        return expectedOutcome.equals(outcome.clients);
+    }
+
+    @Override
+    public boolean hasNextTrial() {
+        return super.hasNextTrial() && (stopAfter <= 0 || reproduced < stopAfter);
+    }
+
+    @Override
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        super.onTrialOutcome(outcome);
+        if (!outcome.counted) {
+            LOG.info("run {} failed and is retried, not counted", trialId);
+            return;
+        }
+        runs++;
+        final boolean injected = reproducePolicy.isInjected();
+        final boolean hit = injected && isExpected(outcome);
+        final long elapsedMillis = (System.nanoTime() - startNano) / 1_000_000;
+        if (injected) {
+            fired++;
+        }
+        if (hit) {
+            reproduced++;
+            if (firstReproduced < 0) {
+                firstReproduced = trialId;
+                firstReproducedNano = System.nanoTime() - startNano;
+            }
+        }
+        LOG.info("run {}: injected = {}, outcome = {}, reproduced {}/{}", trialId, injected,
+                outcome.clients, reproduced, runs);
+        if (csv != null) {
+            try {
+                csv.write(trialId + "," + injected + "," + outcome.clients + "," + hit + ","
+                        + elapsedMillis + "\n");
+                csv.flush();
+            } catch (final IOException e) {
+                LOG.error("Failed to write reproduce.csv", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (firstReproduced < 0) {
+            LOG.info("not reproduced in {} runs, injection fired in {}", runs, fired);
+        } else {
+            LOG.info("reproduced in {}/{} runs ({}%), injection fired in {}, first in trial {} "
+                    + "after {} s", reproduced, runs, runs == 0 ? 0 : 100 * reproduced / runs,
+                    fired, firstReproduced, firstReproducedNano / 1_000_000_000L);
+        }
+        if (csv != null) {
+            try {
+                csv.close();
+            } catch (final IOException e) {
+                LOG.error("Failed to close reproduce.csv", e);
+            }
+            csv = null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.controller;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.Slowdown;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import java.util.Properties;
+
+/**
+ * Turns the delays decided by a policy into slowdown windows, i.e., gray and sustained slowness
+ * instead of a hang
+ */
+public final class SlowdownSpec {
+    private final boolean stateScope;
+    private final String distribution;
+    private final long latencyMillis;
+    private final long windowMillis;
+
+    public SlowdownSpec(final boolean stateScope, final String distribution,
+            final long latencyMillis, final long windowMillis) {
+        this.stateScope = stateScope;
+        this.distribution = distribution;
+        this.latencyMillis = latencyMillis;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @return the spec if timingFault is slowdown, otherwise null
+     */
+    public static SlowdownSpec create(final Properties properties) {
+        if (!properties.getProperty("timingFault", "delay").equals("slowdown")) {
+            return null;
+        }
+        final String scope = properties.getProperty("slowdownScope", "site");
+        if (!scope.equals("site") && !scope.equals("state")) {
+            throw new IllegalArgumentException("Unknown slowdown scope " + scope);
+        }
+        final String distribution = properties.getProperty("slowdownDistribution", "exponential");
+        switch (distribution) {
+            case "fixed": case "uniform": case "exponential": break;
+            default: throw new IllegalArgumentException(
+                    "Unknown slowdown distribution " + distribution);
+        }
+        return new SlowdownSpec(scope.equals("state"), distribution,
+                Long.parseLong(properties.getProperty("slowdownLatency", "200")),
+                Long.parseLong(properties.getProperty("slowdownWindow", "10000")));
+    }
+
+    public Slowdown create(final ThreadInjectionRequest request) {
+        if (stateScope) {
+            return new Slowdown(true, request.stateMachineName, request.state, distribution,
+                    latencyMillis, windowMillis);
+        }
+        return new Slowdown(false, null, null, distribution, latencyMillis, windowMillis);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.controller;
+
+import edu.umich.order.legolas.common.api.CoordinatorRemote;
+import edu.umich.order.legolas.injector.policy.CoordinatedPolicy;
+import java.rmi.RemoteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The controller of a worker in a sharded exploration. The trial ids and the policy state are
+ * owned by the coordinator; the worker only gates the injection on the readiness of its ensemble.
+ */
+public final class WorkerController extends InjectionController {
+    private static final Logger LOG = LoggerFactory.getLogger(WorkerController.class);
+
+    private final CoordinatorRemote coordinator;
+    private final int workerId;
+    private int assignedTrialId = -1;
+
+    public WorkerController(final CoordinatorRemote coordinator, final int workerId) {
+        super(new CoordinatedPolicy(coordinator, workerId));
+        this.coordinator = coordinator;
+        this.workerId = workerId;
+        LOG.info("registered as worker {} in the coordinator", workerId);
+    }
+
+    @Override
+    public boolean hasNextTrial() {
+        if (assignedTrialId < 0) {
+            try {
+                assignedTrialId = coordinator.nextTrial(workerId);
+            } catch (final RemoteException e) {
+                LOG.error("Failed to get the next trial from the coordinator", e);
+                return false;
+            }
+        }
+        return assignedTrialId >= 0;
+    }
+
+    @Override
+    protected int nextTrialId() {
+        final int id = assignedTrialId;
+        assignedTrialId = -1;
+        return id;
+    }
+
+    @Override
+    public void checkpoint() {
+        try {
+            coordinator.trialCompleted(workerId, trialId);
+        } catch (final RemoteException e) {
+            LOG.error("Failed to report trial {} to the coordinator", trialId, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            coordinator.unregisterWorker(workerId);
+        } catch (final RemoteException e) {
+            LOG.warn("Failed to unregister from the coordinator", e);
+        }
+        super.close();
+    }
+}
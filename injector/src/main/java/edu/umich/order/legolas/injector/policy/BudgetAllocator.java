@@ -0,0 +1,152 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import edu.umich.order.legolas.injector.policy.StateOpPolicy.UidInfo;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Decides which state-op receives the injection of the next trial, in place of the fixed budget
+ * of {@link StateOpPolicy}. Each uid is an arm of a multi-armed bandit; a pull is a trial that
+ * targets the uid and injects there, and the reward is 1 if the trial revealed something new.
+ * The arms that were targeted {@link #MAX_MISSES} times in a row without being played are
+ * skipped, so that an unreachable arm never pulled does not win every selection.
+ */
+public abstract class BudgetAllocator {
+    public static final int MAX_MISSES = 3;
+
+    protected final Random rand = new Random();
+
+    /**
+     * @return the target of the next trial, or null if no uid is known yet
+     */
+    public final Uid select(final Map<Uid, UidInfo> visited) {
+        final Uid target = select(visited, true);
+        // all the arms keep missing, try them again
+        return target != null ? target : select(visited, false);
+    }
+
+    private Uid select(final Map<Uid, UidInfo> visited, final boolean skipMissed) {
+        long pulls = 0;
+        for (final UidInfo info : visited.values()) {
+            pulls += info.pulls;
+        }
+        Uid target = null;
+        double best = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        for (final Map.Entry<Uid, UidInfo> entry : visited.entrySet()) {
+            if (skipMissed && entry.getValue().misses >= MAX_MISSES) {
+                continue;
+            }
+            final double score = score(entry.getValue(), pulls);
+            if (score > best) {
+                best = score;
+                target = entry.getKey();
+                ties = 1;
+            } else if (score == best && rand.nextInt(++ties) == 0) {
+                // uniform among the ties, e.g., the arms never pulled
+                target = entry.getKey();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @param pulls the total number of pulls of all the arms
+     */
+    protected abstract double score(UidInfo info, long pulls);
+
+    public static final class UCB1 extends BudgetAllocator {
+        private final double exploration;
+
+        public UCB1(final double exploration) {
+            this.exploration = exploration;
+        }
+
+        @Override
+        protected double score(final UidInfo info, final long pulls) {
+            if (info.pulls == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return (double) info.rewards / info.pulls
+                    + Math.sqrt(exploration * Math.log(pulls) / info.pulls);
+        }
+
+        @Override
+        public String toString() {
+            return "UCB1(" + exploration + ")";
+        }
+    }
+
+    public static final class Thompson extends BudgetAllocator {
+        /**
+         * Sample from the Beta(1 + rewards, 1 + failures) posterior of the arm
+         */
+        @Override
+        protected double score(final UidInfo info, final long pulls) {
+            final double x = gamma(1 + info.rewards);
+            final double y = gamma(1 + info.pulls - info.rewards);
+            return x / (x + y);
+        }
+
+        /**
+         * Marsaglia-Tsang sampling for a shape of at least 1 and a unit scale
+         */
+        private double gamma(final double shape) {
+            final double d = shape - 1.0 / 3, c = 1 / Math.sqrt(9 * d);
+            while (true) {
+                double x, v;
+                do {
+                    x = rand.nextGaussian();
+                    v = 1 + c * x;
+                } while (v <= 0);
+                v = v * v * v;
+                final double u = rand.nextDouble();
+                if (u < 1 - 0.0331 * x * x * x * x
+                        || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+                    return d * v;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Thompson";
+        }
+    }
+
+    /**
+     * @return the allocator configured by budgetAllocator, or null for the fixed budget
+     */
+    public static BudgetAllocator create(final Properties properties) {
+        switch (properties.getProperty("budgetAllocator", "fixed")) {
+            case "ucb1"     :
+                return new UCB1(Double.parseDouble(properties.getProperty("ucbExploration", "2")));
+            case "thompson" : return new Thompson();
+            case "fixed"    : return null;
+            default         : throw new IllegalArgumentException(
+                    "Unknown budget allocator " + properties.getProperty("budgetAllocator"));
+        }
+    }
+}
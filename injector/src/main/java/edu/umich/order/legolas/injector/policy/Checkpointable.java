@@ -0,0 +1,53 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import java.io.Serializable;
+
+/**
+ * A policy whose exploration state can be persisted, so that an interrupted experiment can resume
+ * from the last completed trial.
+ */
+public interface Checkpointable {
+    /**
+     * @return the full exploration state
+     */
+    Serializable snapshot();
+
+    /**
+     * Replace the exploration state with a snapshot
+     */
+    void restore(Serializable snapshot);
+
+    /**
+     * @return the changes since the last call, by default the full state
+     */
+    default Serializable delta() {
+        return snapshot();
+    }
+
+    /**
+     * Apply the changes produced by {@link #delta()} on top of the current state
+     */
+    default void apply(final Serializable delta) {
+        restore(delta);
+    }
+}
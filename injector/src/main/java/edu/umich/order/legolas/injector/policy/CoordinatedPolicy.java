@@ -0,0 +1,103 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.common.api.CoordinatorRemote;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import java.rmi.RemoteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The policy of a worker, which forwards every decision to the shard of the worker in the
+ * coordinator
+ */
+public final class CoordinatedPolicy implements InjectionPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(CoordinatedPolicy.class);
+
+    private final CoordinatorRemote coordinator;
+    private final int workerId;
+
+    public CoordinatedPolicy(final CoordinatorRemote coordinator, final int workerId) {
+        this.coordinator = coordinator;
+        this.workerId = workerId;
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
+        try {
+            return coordinator.inject(workerId, request);
+        } catch (final RemoteException e) {
+            LOG.warn("Failed to query the coordinator, skip injection", e);
+            return new InjectionRemoteCommand(0, -1, -1);
+        }
+    }
+
+    @Override
+    public void onInjectionDropped(final ThreadInjectionRequest request,
+            final InjectionRemoteCommand command) {
+        try {
+            // the id of the command is the one of the injection in the shard
+            coordinator.dropInjection(workerId, command.id);
+        } catch (final RemoteException e) {
+            LOG.warn("Failed to roll back the dropped injection in the coordinator", e);
+        }
+    }
+
+    @Override
+    public void onStateUpdate(final ThreadStateEvent event) {
+        try {
+            coordinator.onStateUpdate(workerId, event);
+        } catch (final RemoteException e) {
+            LOG.warn("Failed to forward the state update to the coordinator", e);
+        }
+    }
+
+    @Override
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        try {
+            coordinator.onTrialOutcome(workerId, outcome);
+        } catch (final RemoteException e) {
+            LOG.warn("Failed to report the trial outcome to the coordinator", e);
+        }
+    }
+
+    /**
+     * The budget is enforced by the shard in the coordinator
+     */
+    @Override
+    public int getFaultBudget() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setupNewTrial() {
+        try {
+            coordinator.setupNewTrial(workerId);
+        } catch (final RemoteException e) {
+            LOG.error("Failed to set up the trial in the coordinator", e);
+        }
+    }
+}
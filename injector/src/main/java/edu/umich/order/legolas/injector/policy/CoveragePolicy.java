@@ -0,0 +1,255 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.asm.AbstractState;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coverage-guided policy, in the spirit of AFL: it keeps a global coverage map of the state-ops and
+ * the state transitions observed in all trials, and credits each injection point with the coverage
+ * that was first reached after injecting there. Each trial targets the point with the best ratio
+ * of recent new coverage to injections, so productive points are revisited and fruitless ones fade.
+ *
+ * The state transitions come from the state updates of the agents. A worker of a sharded
+ * exploration does not forward its updates to the coordinator, so there only the transitions
+ * between the states of successive injection requests are seen.
+ */
+public class CoveragePolicy extends Policy implements Checkpointable {
+    private static final Logger LOG = LoggerFactory.getLogger(CoveragePolicy.class);
+    public static int budget = 5; // max injections per injection point
+
+    protected static final class Transition implements Serializable {
+        final int server;
+        final String name;
+        final AbstractState from;
+        final AbstractState to;
+
+        public Transition(int server, String name, AbstractState from, AbstractState to) {
+            this.server = server;
+            this.name = name;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Transition that = (Transition) o;
+            return server == that.server && Objects.equals(name, that.name)
+                    && Objects.equals(from, that.from) && Objects.equals(to, that.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(server, name, from, to);
+        }
+    }
+
+    protected static final class PointInfo implements Serializable {
+        int injections = 0;
+        int misses = 0; // targeted but not reached
+        double novelty = 0; // new coverage reached after the injections, halved per injection
+
+        double score() {
+            return (novelty + 1.0) / (injections + 1) / (misses + 1);
+        }
+    }
+
+    private static final class CoverageCheckpoint implements Serializable {
+        private final HashSet<Uid> stateOps;
+        private final HashSet<Transition> transitions;
+        private final LinkedHashMap<Uid, PointInfo> points;
+        // the last trial is credited in the next setupNewTrial
+        private final Uid target, injectedAt;
+        private final int newCoverage;
+
+        private CoverageCheckpoint(final CoveragePolicy policy) {
+            this.stateOps = new HashSet<>(policy.stateOps);
+            this.transitions = new HashSet<>(policy.transitions);
+            this.points = new LinkedHashMap<>(policy.points);
+            this.target = policy.target;
+            this.injectedAt = policy.injectedAt;
+            this.newCoverage = policy.newCoverage;
+        }
+    }
+
+    protected final Set<Uid> stateOps = new HashSet<>();
+    protected final Set<Transition> transitions = new HashSet<>();
+    // in the order of discovery, which breaks the ties of scores
+    protected final Map<Uid, PointInfo> points = new LinkedHashMap<>();
+
+    protected volatile boolean injected = false;
+    protected Uid target = null;
+    protected Uid injectedAt = null;
+    protected int newCoverage = 0;
+    // the last state of each state machine instance in the current trial
+    protected final Map<String, AbstractState> lastStates = new HashMap<>();
+
+    public CoveragePolicy(final InjectionType injectionType) {
+        super(injectionType);
+    }
+
+    @Override
+    public void setupNewTrial() {
+        if (injectedAt != null) {
+            final PointInfo info = points.get(injectedAt);
+            info.novelty = info.novelty / 2 + newCoverage;
+            LOG.info("injection in {} reached {} new state-ops and transitions", injectedAt,
+                    newCoverage);
+        } else if (target != null) {
+            points.get(target).misses++;
+        }
+        injected = false;
+        injectedAt = null;
+        newCoverage = 0;
+        lastStates.clear();
+        target = null;
+        double best = -1;
+        for (final Map.Entry<Uid, PointInfo> entry : points.entrySet()) {
+            final PointInfo info = entry.getValue();
+            if (info.injections < budget && info.score() > best) {
+                best = info.score();
+                target = entry.getKey();
+            }
+        }
+        LOG.info("coverage: {} state-ops, {} transitions, {} injection points; target at {}",
+                stateOps.size(), transitions.size(), points.size(), target);
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
+        observe(request);
+        if (injected) {
+            return new InjectionRemoteCommand(0, -1, -1);
+        }
+        if (injectionType != InjectionType.EXCEPTION && request.delay) {
+            final Uid uid = new Uid(request.serverId, request.stateMachineName, request.state,
+                    -1, request.op);
+            if (check(uid)) {
+                return new InjectionRemoteCommand(1, -1, 0);
+            }
+        }
+        if (injectionType != InjectionType.DELAY && request.eids.length > 0) {
+            for (final int eid : request.eids) {
+                final Uid uid = new Uid(request.serverId, request.stateMachineName,
+                        request.state, eid, request.op);
+                if (check(uid)) {
+                    return new InjectionRemoteCommand(0, eid, 0);
+                }
+            }
+        }
+        return new InjectionRemoteCommand(0, -1, -1);
+    }
+
+    @Override
+    public void onStateUpdate(final ThreadStateEvent event) {
+        if (observeState(event) && injected) {
+            newCoverage++;
+        }
+    }
+
+    /**
+     * Record the coverage of the request; the new coverage after the injection is credited to the
+     * injection point at the end of the trial
+     */
+    protected void observe(final ThreadInjectionRequest request) {
+        int found = 0;
+        if (stateOps.add(new Uid(request.serverId, request.stateMachineName, request.state, -1,
+                request.op))) {
+            found++;
+        }
+        // usually already seen in the state updates
+        if (observeState(request)) {
+            found++;
+        }
+        if (injected) {
+            newCoverage += found;
+        }
+    }
+
+    /**
+     * @return whether the event makes a new transition of its state machine instance
+     */
+    private boolean observeState(final ThreadStateEvent event) {
+        final String instance = event.serverId + ":" + event.stateMachineName + ":" +
+                event.instanceId;
+        final AbstractState last = lastStates.put(instance, event.state);
+        return last != null && !last.equals(event.state) && transitions.add(new Transition(
+                event.serverId, event.stateMachineName, last, event.state));
+    }
+
+    /**
+     * Without a target, inject in the first point never seen before
+     */
+    protected boolean check(final Uid uid) {
+        PointInfo info = points.get(uid);
+        final boolean discovered = info == null;
+        if (discovered) {
+            info = new PointInfo();
+            points.put(uid, info);
+        }
+        if (target == null ? !discovered : !target.equals(uid)) {
+            return false;
+        }
+        info.injections++;
+        injected = true;
+        injectedAt = uid;
+        LOG.info("injected in {} with score {}", uid, info.score());
+        return true;
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return new CoverageCheckpoint(this);
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        final CoverageCheckpoint checkpoint = (CoverageCheckpoint) snapshot;
+        stateOps.clear();
+        stateOps.addAll(checkpoint.stateOps);
+        transitions.clear();
+        transitions.addAll(checkpoint.transitions);
+        points.clear();
+        points.putAll(checkpoint.points);
+        target = checkpoint.target;
+        injectedAt = checkpoint.injectedAt;
+        newCoverage = checkpoint.newCoverage;
+    }
+}
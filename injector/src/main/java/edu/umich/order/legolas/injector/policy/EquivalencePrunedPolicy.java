@@ -0,0 +1,177 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import edu.umich.order.legolas.common.fault.FaultSpaceManifest;
+import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restricts a policy to the representative site of each equivalence class in the fault space
+ * manifest, since the equivalent sites tend to produce the same failure. A class is widened to all
+ * its sites if the workload reaches its other sites but never the representative, and all classes
+ * are widened once the policy injects nothing for widenAfter trials in a row.
+ */
+public final class EquivalencePrunedPolicy implements InjectionPolicy, Checkpointable {
+    private static final Logger LOG = LoggerFactory.getLogger(EquivalencePrunedPolicy.class);
+
+    private final InjectionPolicy policy;
+    private final Map<String, FaultSpaceManifest.Site> sites = new HashMap<>();
+    private final int widenAfter;
+
+    private final Set<Integer> reachedRepresentatives = new HashSet<>();
+    private final Set<Integer> widened = new HashSet<>();
+    private volatile boolean widenedAll = false;
+    private volatile int idleTrials = 0;
+    // the classes whose other sites are reached in the current trial
+    private final Set<Integer> pruned = new HashSet<>();
+    // the injections of the current trial that the agents did not drop
+    private volatile int injections = 0;
+    private volatile boolean started = false;
+
+    public EquivalencePrunedPolicy(final InjectionPolicy policy, final FaultSpaceManifest manifest,
+            final int widenAfter) {
+        this.policy = policy;
+        final Set<Integer> classes = new HashSet<>();
+        for (final FaultSpaceManifest.Site site : manifest.sites) {
+            sites.put(site.key(), site);
+            classes.add(site.equivalence);
+        }
+        this.widenAfter = widenAfter;
+        LOG.info("pruned {} sites to {} equivalence classes", sites.size(), classes.size());
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
+        final FaultSpaceManifest.Site site = sites.get(FaultSpaceManifest.key(request.className,
+                request.methodName, request.lineNum, request.op));
+        if (site != null) {
+            if (site.representative) {
+                reachedRepresentatives.add(site.equivalence);
+            } else if (!widenedAll && !widened.contains(site.equivalence)) {
+                pruned.add(site.equivalence);
+                return new InjectionRemoteCommand(0, -1, -1);
+            }
+        }
+        final InjectionRemoteCommand command = policy.inject(request);
+        if (command.id != -1) {
+            injections++;
+        }
+        return command;
+    }
+
+    @Override
+    public void setupNewTrial() {
+        for (final int equivalence : pruned) {
+            if (!reachedRepresentatives.contains(equivalence) && widened.add(equivalence)) {
+                LOG.info("widen equivalence class {} with an unreached representative",
+                        equivalence);
+            }
+        }
+        pruned.clear();
+        if (started) {
+            idleTrials = injections > 0 ? 0 : idleTrials + 1;
+            if (!widenedAll && widenAfter > 0 && idleTrials >= widenAfter) {
+                widenedAll = true;
+                LOG.info("widen all equivalence classes after {} trials without injection",
+                        idleTrials);
+            }
+        }
+        started = true;
+        injections = 0;
+        policy.setupNewTrial();
+    }
+
+    @Override
+    public void onStateUpdate(final ThreadStateEvent event) {
+        policy.onStateUpdate(event);
+    }
+
+    @Override
+    public void onInjectionDropped(final ThreadInjectionRequest request,
+            final InjectionRemoteCommand command) {
+        injections--;
+        policy.onInjectionDropped(request, command);
+    }
+
+    @Override
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        policy.onTrialOutcome(outcome);
+    }
+
+    @Override
+    public int getFaultBudget() {
+        return policy.getFaultBudget();
+    }
+
+    private static final class PrunedCheckpoint implements Serializable {
+        private final Serializable policy;
+        private final HashSet<Integer> reachedRepresentatives, widened, pruned;
+        private final boolean widenedAll, injected;
+        private final int idleTrials;
+
+        private PrunedCheckpoint(final EquivalencePrunedPolicy pruned,
+                final Serializable policy) {
+            this.policy = policy;
+            this.reachedRepresentatives = new HashSet<>(pruned.reachedRepresentatives);
+            this.widened = new HashSet<>(pruned.widened);
+            this.pruned = new HashSet<>(pruned.pruned);
+            this.widenedAll = pruned.widenedAll;
+            this.injected = pruned.injections > 0;
+            this.idleTrials = pruned.idleTrials;
+        }
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return new PrunedCheckpoint(this,
+                policy instanceof Checkpointable ? ((Checkpointable) policy).snapshot() : null);
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        final PrunedCheckpoint checkpoint = (PrunedCheckpoint) snapshot;
+        if (policy instanceof Checkpointable) {
+            ((Checkpointable) policy).restore(checkpoint.policy);
+        }
+        reachedRepresentatives.clear();
+        reachedRepresentatives.addAll(checkpoint.reachedRepresentatives);
+        widened.clear();
+        widened.addAll(checkpoint.widened);
+        pruned.clear();
+        pruned.addAll(checkpoint.pruned);
+        widenedAll = checkpoint.widenedAll;
+        idleTrials = checkpoint.idleTrials;
+        // setupNewTrial counts the last trial
+        injections = checkpoint.injected ? 1 : 0;
+        started = true;
+    }
+}
@@ -22,8 +22,13 @@ package edu.umich.order.legolas.injector.policy;
 
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,7 +36,7 @@ import org.slf4j.LoggerFactory;
 /**
  *
  */
-public final class ExhaustivePolicy extends Policy {
+public final class ExhaustivePolicy extends Policy implements Checkpointable {
     private static final Logger LOG = LoggerFactory.getLogger(ExhaustivePolicy.class);
 
     protected int trialId = 0;
@@ -47,32 +52,139 @@ public final class ExhaustivePolicy extends Policy {
     // we know for a given injection location, how many times we should grant. This assumes
     // the execution is deterministic, which may not be true. But this is the simplest way
     // to determine the injection times for a location, which is otherwise hard to know on the fly.
+    // With several profiling trials, the max count of each request over the trials is kept.
     protected Map<Long, AtomicInteger> initialSequences = new HashMap<>();
     protected Map<Long, AtomicInteger> grantedSequences = new HashMap<>();
+    // request ids whose sequences changed since the last checkpoint
+    private final Set<Long> dirty = new HashSet<>();
+
+    // the trials [1, profilingTrials] only count the requests, 0 if a saved profile is loaded
+    private int profilingTrials = 1;
+    private final Map<Long, Integer> trialCounts = new HashMap<>();
+    private ExhaustiveProfile profile = null;
+
     public ExhaustivePolicy(final InjectionType injectionType) {
         super(injectionType);
     }
 
+    /**
+     * Load the counts from the saved profile unless reprofile is set; otherwise count the requests
+     * in the first profilingTrials trials and merge them into the saved profile.
+     */
+    public ExhaustivePolicy(final InjectionType injectionType, final ExhaustiveProfile profile,
+            final int profilingTrials, final boolean reprofile) {
+        super(injectionType);
+        this.profile = profile;
+        this.profilingTrials = Math.max(profilingTrials, 1);
+        if (reprofile) {
+            return;
+        }
+        try {
+            final Map<Long, Integer> counts = profile.load();
+            if (counts != null) {
+                for (final Map.Entry<Long, Integer> entry : counts.entrySet()) {
+                    initialSequences.put(entry.getKey(), new AtomicInteger(entry.getValue()));
+                }
+                this.profilingTrials = 0;
+                LOG.warn("Applying the saved profile {} with {} requests instead of profiling, "
+                        + "set exhaustiveProfile=refresh to profile again", profile.key,
+                        counts.size());
+            }
+        } catch (final IOException e) {
+            LOG.error("Failed to load the profile {}, profiling again", profile.key, e);
+        }
+    }
+
     @Override
     public void setupNewTrial() {
         LOG.info("initial sequence set size = {}, granted set size = {}", initialSequences.size(),
                 grantedSequences.size());
+        if (profile != null && profilingTrials > 0 && trialId == profilingTrials) {
+            final Map<Long, Integer> counts = new HashMap<>();
+            for (final Map.Entry<Long, AtomicInteger> entry : initialSequences.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().get());
+            }
+            try {
+                profile.save(counts, profilingTrials);
+            } catch (final IOException e) {
+                LOG.error("Failed to save the profile {}", profile.key, e);
+            }
+        }
         injected = false;
+        trialCounts.clear();
         trialId++;
     }
 
+    private static final class ExhaustiveCheckpoint implements Serializable {
+        private final int trialId;
+        private final HashMap<Long, Integer> initialSequences = new HashMap<>();
+        private final HashMap<Long, Integer> grantedSequences = new HashMap<>();
+
+        private ExhaustiveCheckpoint(final ExhaustivePolicy policy, final Collection<Long> ids) {
+            this.trialId = policy.trialId;
+            for (final Long id : ids) {
+                copy(policy.initialSequences, initialSequences, id);
+                copy(policy.grantedSequences, grantedSequences, id);
+            }
+        }
+
+        private static void copy(final Map<Long, AtomicInteger> from,
+                final Map<Long, Integer> to, final Long id) {
+            final AtomicInteger seq = from.get(id);
+            if (seq != null) {
+                to.put(id, seq.get());
+            }
+        }
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return new ExhaustiveCheckpoint(this, initialSequences.keySet());
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        initialSequences.clear();
+        grantedSequences.clear();
+        apply(snapshot);
+    }
+
+    @Override
+    public Serializable delta() {
+        final ExhaustiveCheckpoint checkpoint = new ExhaustiveCheckpoint(this, dirty);
+        dirty.clear();
+        return checkpoint;
+    }
+
+    @Override
+    public void apply(final Serializable delta) {
+        final ExhaustiveCheckpoint checkpoint = (ExhaustiveCheckpoint) delta;
+        trialId = checkpoint.trialId;
+        for (final Map.Entry<Long, Integer> entry : checkpoint.initialSequences.entrySet()) {
+            initialSequences.put(entry.getKey(), new AtomicInteger(entry.getValue()));
+        }
+        for (final Map.Entry<Long, Integer> entry : checkpoint.grantedSequences.entrySet()) {
+            grantedSequences.put(entry.getKey(), new AtomicInteger(entry.getValue()));
+        }
+    }
+
     @Override
     public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
         if (injected) {
             return new InjectionRemoteCommand(0, -1, -1);
         }
         long requestId = request.hashId();
+        dirty.add(requestId);
         if (!initialSequences.containsKey(requestId)) {
             initialSequences.put(requestId, new AtomicInteger(0));
         }
-        if (trialId == 1) {
-            // Only collect the sequence id for each request id in the first trial
-            initialSequences.get(requestId).incrementAndGet();
+        if (trialId <= profilingTrials) {
+            // Only collect the sequence id for each request id in the profiling trials
+            final int count = trialCounts.merge(requestId, 1, Integer::sum);
+            final AtomicInteger maxCount = initialSequences.get(requestId);
+            if (count > maxCount.get()) {
+                maxCount.set(count);
+            }
             return new InjectionRemoteCommand(0, -1, -1);
         }
         // Always not-null
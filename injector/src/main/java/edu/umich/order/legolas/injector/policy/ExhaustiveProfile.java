@@ -0,0 +1,174 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The request counts collected by the profiling trials of ExhaustivePolicy, persisted outside the
+ * workspace so that later experiments with the same system version, workload and
+ * instrumentation skip the profiling. Profiles saved by several runs, possibly in parallel, are
+ * merged by taking the max count of every request id.
+ */
+public final class ExhaustiveProfile {
+    private static final Logger LOG = LoggerFactory.getLogger(ExhaustiveProfile.class);
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final class Artifact implements Serializable {
+        private final int version;
+        private final String key;
+        private int trials = 0;
+        private final HashMap<Long, Integer> counts = new HashMap<>();
+
+        private Artifact(final String key) {
+            this.version = FORMAT_VERSION;
+            this.key = key;
+        }
+    }
+
+    public final String key;
+    private final File file;
+    private final File lockFile;
+    private final File tmpFile;
+
+    public ExhaustiveProfile(final File dir, final String key) {
+        this.key = key;
+        final String name = "exhaustive-" + key.replaceAll("[^A-Za-z0-9._-]", "_");
+        this.file = new File(dir, name + ".profile");
+        this.lockFile = new File(dir, name + ".lock");
+        this.tmpFile = new File(dir, name + ".tmp");
+    }
+
+    /**
+     * The profile key is the target system, its version, the workload and the instrumentation hash,
+     * which defaults to a hash of the names, sizes and modification times of the jars in the
+     * target system path.
+     */
+    public static ExhaustiveProfile create(final Properties properties) throws IOException {
+        String hash = properties.getProperty("instrumentationHash");
+        if (hash == null) {
+            hash = hashJars(properties.getProperty("targetSystemPathName"));
+        }
+        final String key = properties.getProperty("targetSystem", "") + "-"
+                + properties.getProperty("version", "") + "-"
+                + properties.getProperty("workload", "") + "-" + hash;
+        final String dir = properties.getProperty("profileDir",
+                properties.getProperty("workspacePathName") + "/../profiles");
+        return new ExhaustiveProfile(new File(dir), key);
+    }
+
+    private static String hashJars(final String pathName) throws IOException {
+        final CRC32 crc = new CRC32();
+        if (pathName != null && new File(pathName).isDirectory()) {
+            final Path root = new File(pathName).toPath();
+            try (final Stream<Path> paths = Files.walk(root)) {
+                for (final Path path : paths.filter(p -> p.toString().endsWith(".jar"))
+                        .sorted().collect(Collectors.toList())) {
+                    final File jar = path.toFile();
+                    crc.update((root.relativize(path) + ":" + jar.length() + ":"
+                            + jar.lastModified() + "\n").getBytes());
+                }
+            }
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private Artifact read() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (final ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+            final Artifact artifact = (Artifact) in.readObject();
+            if (artifact.version != FORMAT_VERSION || !key.equals(artifact.key)) {
+                LOG.warn("ignoring profile {} of version {} and key {}", file,
+                        artifact.version, artifact.key);
+                return null;
+            }
+            return artifact;
+        } catch (final ClassNotFoundException | ClassCastException e) {
+            throw new IOException("corrupted profile " + file, e);
+        }
+    }
+
+    /**
+     * @return the request counts, or null if there is no profile for the key
+     */
+    public Map<Long, Integer> load() throws IOException {
+        final Artifact artifact = read();
+        if (artifact == null) {
+            return null;
+        }
+        LOG.info("loaded profile {} of {} trials and {} request ids", file, artifact.trials,
+                artifact.counts.size());
+        return artifact.counts;
+    }
+
+    /**
+     * Merge the counts of the given profiling trials into the saved profile
+     */
+    public void save(final Map<Long, Integer> counts, final int trials) throws IOException {
+        final File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("fail to create profile directory " + dir);
+        }
+        try (final RandomAccessFile lock = new RandomAccessFile(lockFile, "rw");
+                final FileLock ignored = lock.getChannel().lock()) {
+            Artifact artifact = read();
+            if (artifact == null) {
+                artifact = new Artifact(key);
+            }
+            artifact.trials += trials;
+            for (final Map.Entry<Long, Integer> entry : counts.entrySet()) {
+                artifact.counts.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+            try (final FileOutputStream out = new FileOutputStream(tmpFile)) {
+                final ObjectOutputStream oos = new ObjectOutputStream(out);
+                oos.writeObject(artifact);
+                oos.flush();
+                out.getFD().sync();
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("saved profile {} of {} trials and {} request ids", file, artifact.trials,
+                    artifact.counts.size());
+        }
+    }
+}
@@ -22,6 +22,7 @@ package edu.umich.order.legolas.injector.policy;
 
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -31,10 +32,12 @@ import org.slf4j.LoggerFactory;
  * Approximae FATE (NSDI '11) injection policy: granting injection requests that are unique based
  * on the failure ids.
  */
-public class FatePolicy extends Policy {
+public class FatePolicy extends Policy implements Checkpointable {
     private static final Logger LOG = LoggerFactory.getLogger(FatePolicy.class);
     protected volatile boolean injected = false;
     protected Set<Long> granted = new HashSet<>();
+    // failure ids granted since the last checkpoint
+    private final Set<Long> newlyGranted = new HashSet<>();
 
     public FatePolicy(final InjectionType injectionType) {
         super(injectionType);
@@ -46,6 +49,31 @@ public class FatePolicy extends Policy {
         injected = false;
     }
 
+    @Override
+    public Serializable snapshot() {
+        return new HashSet<>(granted);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restore(final Serializable snapshot) {
+        granted.clear();
+        granted.addAll((Set<Long>) snapshot);
+    }
+
+    @Override
+    public Serializable delta() {
+        final HashSet<Long> delta = new HashSet<>(newlyGranted);
+        newlyGranted.clear();
+        return delta;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(final Serializable delta) {
+        granted.addAll((Set<Long>) delta);
+    }
+
     @Override
     public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
         if (injected) {
@@ -56,6 +84,7 @@ public class FatePolicy extends Policy {
         if (injectionType != InjectionType.EXCEPTION && request.delay) {
             if (!granted.contains(request.failureId)) {
                 granted.add(request.failureId);
+                newlyGranted.add(request.failureId);
                 LOG.info(msg);
                 injected = true;
                 return new InjectionRemoteCommand(1, -1, 0);
@@ -65,6 +94,7 @@ public class FatePolicy extends Policy {
             for (final int eid : request.eids) {
                 if (!granted.contains(request.failureId)) {
                     granted.add(request.failureId);
+                    newlyGranted.add(request.failureId);
                     LOG.info(msg);
                     injected = true;
                     return new InjectionRemoteCommand(0, eid, 0);
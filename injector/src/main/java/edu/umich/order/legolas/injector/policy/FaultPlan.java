@@ -0,0 +1,67 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered plan of the faults in a trial: a step is only eligible after all the previous steps
+ * are injected.
+ */
+public final class FaultPlan implements Serializable {
+    private final List<Uid> steps;
+    private int next = 0;
+
+    public FaultPlan(final List<Uid> steps) {
+        this.steps = new ArrayList<>(steps);
+    }
+
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * @return the number of steps injected so far
+     */
+    public int getInjected() {
+        return next;
+    }
+
+    public boolean isDone() {
+        return next >= steps.size();
+    }
+
+    public boolean matches(final Uid uid) {
+        return !isDone() && steps.get(next).equals(uid);
+    }
+
+    public void advance() {
+        next++;
+    }
+
+    @Override
+    public String toString() {
+        return "FaultPlan{" + "steps=" + steps + ", injected=" + next + '}';
+    }
+}
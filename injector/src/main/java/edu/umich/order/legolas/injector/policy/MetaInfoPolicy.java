@@ -23,6 +23,7 @@ package edu.umich.order.legolas.injector.policy;
 import edu.umich.order.legolas.common.api.AbstractStateServerRemote.MetaInfoAccess;
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -32,7 +33,7 @@ import org.slf4j.LoggerFactory;
  *  Approximae Meta-Info (SOSP '19) injection policy: granting injection requests when there are
  *  meta info accesses within the last N ms.
  */
-public class MetaInfoPolicy extends Policy {
+public class MetaInfoPolicy extends Policy implements Checkpointable {
     private static final Logger LOG = LoggerFactory.getLogger(MetaInfoPolicy.class);
     protected volatile boolean injected = false;
 
@@ -41,6 +42,8 @@ public class MetaInfoPolicy extends Policy {
     protected MetaInfoAccess lastMetaInfoAccess;
 
     protected Set<Long> grantedAccessId = new HashSet<>();
+    // access ids granted since the last checkpoint
+    private final Set<Long> newlyGranted = new HashSet<>();
 
     public MetaInfoPolicy(InjectionType injectionType) {
         super(injectionType);
@@ -53,20 +56,53 @@ public class MetaInfoPolicy extends Policy {
         injected = false;
     }
 
+    @Override
+    public Serializable snapshot() {
+        return new HashSet<>(grantedAccessId);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restore(final Serializable snapshot) {
+        grantedAccessId.clear();
+        grantedAccessId.addAll((Set<Long>) snapshot);
+    }
+
+    @Override
+    public Serializable delta() {
+        final HashSet<Long> delta = new HashSet<>(newlyGranted);
+        newlyGranted.clear();
+        return delta;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(final Serializable delta) {
+        grantedAccessId.addAll((Set<Long>) delta);
+    }
+
     @Override
     public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
         if (injected || request.lastMetaInfoAccess == null) {
             return new InjectionRemoteCommand(0, -1, -1);
         }
-        long timeDiff = request.lastMetaInfoAccess.accessTime > 0 ?
-                System.currentTimeMillis() - request.lastMetaInfoAccess.accessTime : -1;
+        final boolean withinWindow;
+        if (request.metaInfoAccessAgeNanos >= 0) {
+            // measured by the agent when it sent the query
+            withinWindow = request.metaInfoAccessAgeNanos < accessTimeWindow * 1_000_000;
+        } else {
+            final long timeDiff = request.lastMetaInfoAccess.accessTime > 0 ?
+                    System.currentTimeMillis() - request.lastMetaInfoAccess.accessTime : -1;
+            withinWindow = timeDiff > 0 && timeDiff < accessTimeWindow;
+        }
         // keep a copy of the last access
         lastMetaInfoAccess = new MetaInfoAccess(request.lastMetaInfoAccess);
         String msg = "injected failure in {server=" + request.serverId + ", op='" + request.op + "'}";
         if (injectionType != InjectionType.EXCEPTION && request.delay) {
-            if (timeDiff > 0 && timeDiff < accessTimeWindow) {
+            if (withinWindow) {
                 if (!grantedAccessId.contains(lastMetaInfoAccess.accessId)) {
                     grantedAccessId.add(lastMetaInfoAccess.accessId);
+                    newlyGranted.add(lastMetaInfoAccess.accessId);
                     LOG.info(msg);
                     injected = true;
                     return new InjectionRemoteCommand(1, -1, 0);
@@ -75,9 +111,10 @@ public class MetaInfoPolicy extends Policy {
         }
         if (injectionType != InjectionType.DELAY && request.eids.length > 0) {
             for (final int eid : request.eids) {
-                if (timeDiff > 0 && timeDiff < accessTimeWindow) {
+                if (withinWindow) {
                     if (!grantedAccessId.contains(lastMetaInfoAccess.accessId)) {
                         grantedAccessId.add(lastMetaInfoAccess.accessId);
+                        newlyGranted.add(lastMetaInfoAccess.accessId);
                         LOG.info(msg);
                         injected = true;
                         return new InjectionRemoteCommand(0, eid, 0);
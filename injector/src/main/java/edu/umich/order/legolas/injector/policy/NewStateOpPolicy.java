@@ -23,6 +23,7 @@ package edu.umich.order.legolas.injector.policy;
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
 import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -31,11 +32,13 @@ import org.slf4j.LoggerFactory;
 /**
  *
  */
-public class NewStateOpPolicy extends Policy {
+public class NewStateOpPolicy extends Policy implements Checkpointable {
     private static final Logger LOG = LoggerFactory.getLogger(NewStateOpPolicy.class);
 
     protected volatile boolean injected = false;
     protected Set<Uid> records = new HashSet<>();
+    // state-ops granted since the last checkpoint
+    private final Set<Uid> newRecords = new HashSet<>();
 
     public NewStateOpPolicy(final InjectionType injectionType) {
         super(injectionType);
@@ -47,6 +50,31 @@ public class NewStateOpPolicy extends Policy {
         injected = false;
     }
 
+    @Override
+    public Serializable snapshot() {
+        return new HashSet<>(records);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restore(final Serializable snapshot) {
+        records.clear();
+        records.addAll((Set<Uid>) snapshot);
+    }
+
+    @Override
+    public Serializable delta() {
+        final HashSet<Uid> delta = new HashSet<>(newRecords);
+        newRecords.clear();
+        return delta;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(final Serializable delta) {
+        records.addAll((Set<Uid>) delta);
+    }
+
     @Override
     public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
         if (injected) {
@@ -57,6 +85,7 @@ public class NewStateOpPolicy extends Policy {
                     -1, request.op);
             if (!records.contains(uid)) {
                 records.add(uid);
+                newRecords.add(uid);
                 LOG.info("injected in " + uid);
                 injected = true;
                 return new InjectionRemoteCommand(1, -1, 0);
@@ -68,6 +97,7 @@ public class NewStateOpPolicy extends Policy {
                         request.state, eid, request.op);
                 if (!records.contains(uid)) {
                     records.add(uid);
+                    newRecords.add(uid);
                     LOG.info("injected in " + uid);
                     injected = true;
                     return new InjectionRemoteCommand(0, eid, 0);
@@ -24,6 +24,7 @@ import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCom
 import edu.umich.order.legolas.common.asm.AbstractState;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
 import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Objects;
@@ -33,11 +34,13 @@ import org.slf4j.LoggerFactory;
 /**
  *
  */
-public class NewStatePolicy extends Policy {
+public class NewStatePolicy extends Policy implements Checkpointable {
     private static final Logger LOG = LoggerFactory.getLogger(NewStatePolicy.class);
 
     protected volatile boolean injected = false;
     protected Set<State> records = new HashSet<>();
+    // states granted since the last checkpoint
+    private final Set<State> newRecords = new HashSet<>();
 
     public NewStatePolicy(final InjectionType injectionType) {
         super(injectionType);
@@ -49,6 +52,31 @@ public class NewStatePolicy extends Policy {
         injected = false;
     }
 
+    @Override
+    public Serializable snapshot() {
+        return new HashSet<>(records);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restore(final Serializable snapshot) {
+        records.clear();
+        records.addAll((Set<State>) snapshot);
+    }
+
+    @Override
+    public Serializable delta() {
+        final HashSet<State> delta = new HashSet<>(newRecords);
+        newRecords.clear();
+        return delta;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(final Serializable delta) {
+        records.addAll((Set<State>) delta);
+    }
+
     @Override
     public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
         if (injected) {
@@ -58,6 +86,7 @@ public class NewStatePolicy extends Policy {
             final State state = new State(request.serverId, request.stateMachineName, request.state, -1);
             if (!records.contains(state)) {
                 records.add(state);
+                newRecords.add(state);
                 LOG.info("injected in " + new Uid(request.serverId, request.stateMachineName,
                         request.state, -1, request.op));
                 injected = true;
@@ -69,6 +98,7 @@ public class NewStatePolicy extends Policy {
                 final State state = new State(request.serverId, request.stateMachineName, request.state, eid);
                 if (!records.contains(state)) {
                     records.add(state);
+                    newRecords.add(state);
                     LOG.info("injected in " + new Uid(request.serverId, request.stateMachineName,
                             request.state, eid, request.op));
                     injected = true;
@@ -79,7 +109,7 @@ public class NewStatePolicy extends Policy {
         return new InjectionRemoteCommand(0, -1, -1);
     }
 
-    protected static final class State {
+    protected static final class State implements Serializable {
         final int server;
         final String name;
         final AbstractState state;
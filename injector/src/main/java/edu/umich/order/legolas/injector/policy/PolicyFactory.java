@@ -20,15 +20,62 @@
  */
 package edu.umich.order.legolas.injector.policy;
 
+import edu.umich.order.legolas.common.fault.FaultSpaceManifest;
 import edu.umich.order.legolas.common.fault.InjectionPolicy.InjectionType;
 import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
 
 /**
  *
  */
 public final class PolicyFactory {
+    private static ExhaustivePolicy createExhaustivePolicy(final Properties properties,
+            final InjectionType injectionType) {
+        // off: profile in the first trial only; auto: load the saved profile if there is one;
+        // refresh: profile again and merge into the saved profile
+        final String mode = properties.getProperty("exhaustiveProfile", "off");
+        if (mode.equals("off")) {
+            return new ExhaustivePolicy(injectionType);
+        }
+        final ExhaustiveProfile profile;
+        try {
+            profile = ExhaustiveProfile.create(properties);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Failed to compute the profile key", e);
+        }
+        return new ExhaustivePolicy(injectionType, profile,
+                Integer.parseInt(properties.getProperty("profilingTrials", "1")),
+                mode.equals("refresh"));
+    }
+
+    /**
+     * Create the configured policy. With pruneEquivalentSites, it is wrapped in an
+     * EquivalencePrunedPolicy, which hides the requests at pruned sites from the wrapped policy:
+     * the counts of that policy, e.g., the sequences of Exhaustive or the coverage of Coverage,
+     * leave them out until their class is widened.
+     */
     public static InjectionPolicy createPolicy(final Properties properties) {
+        final InjectionPolicy policy = createBasePolicy(properties);
+        // a reproduction pins one injection, which pruning must not hide
+        if (!Boolean.parseBoolean(properties.getProperty("pruneEquivalentSites", "false"))
+                || policy instanceof ReproducePolicy) {
+            return policy;
+        }
+        final String manifest = properties.getProperty("faultSpaceManifest");
+        if (manifest == null) {
+            throw new IllegalArgumentException("pruneEquivalentSites requires faultSpaceManifest");
+        }
+        try {
+            return new EquivalencePrunedPolicy(policy, FaultSpaceManifest.load(new File(manifest)),
+                    Integer.parseInt(properties.getProperty("pruneWidenAfter", "5")));
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Failed to load the fault space manifest", e);
+        }
+    }
+
+    private static InjectionPolicy createBasePolicy(final Properties properties) {
         InjectionType injectionType;
         switch (properties.getProperty("injectionType", "all")) {
             case "delay"     : injectionType = InjectionType.DELAY;     break;
@@ -39,19 +86,28 @@ public final class PolicyFactory {
         if (randomRate != null) {
             RandomPolicy.rate = Integer.parseInt(randomRate);
         }
+        final String coverageBudget = properties.getProperty("coverageBudget");
+        if (coverageBudget != null) {
+            CoveragePolicy.budget = Integer.parseInt(coverageBudget);
+        }
         final String metaInfoWindow = properties.getProperty("metaInfoWindow");
         if (metaInfoWindow != null) {
             MetaInfoPolicy.accessTimeWindow = Integer.parseInt(metaInfoWindow);
         }
         switch (properties.getProperty("injectionPolicy", "")) {
-            case "StateOp"           : return new StateOpPolicy(injectionType);
+            case "StateOp"           :
+                return new StateOpPolicy(injectionType, BudgetAllocator.create(properties),
+                        Boolean.parseBoolean(properties.getProperty("roleAware", "false")));
             case "RoundRobinStateOp" : return new RoundRobinStateOpPolicy(injectionType);
             case "Random"            : return new RandomPolicy(injectionType);
             case "NewState"          : return new NewStatePolicy(injectionType);
             case "NewStateOp"        : return new NewStateOpPolicy(injectionType);
-            case "Exhaustive"        : return new ExhaustivePolicy(injectionType);
+            case "Exhaustive"        : return createExhaustivePolicy(properties, injectionType);
             case "Fate"              : return new FatePolicy(injectionType);
             case "MetaInfo"          : return new MetaInfoPolicy(injectionType);
+            case "Coverage"          : return new CoveragePolicy(injectionType);
+            case "StateOpPair"       : return new StateOpPairPolicy(injectionType);
+            case "Reproduce"         : return ReproducePolicy.create(properties);
             case "FocusedRoundRobinStateOp" :
                 return new FocusedStateOpPolicy(
                         properties.getProperty("targetThread"), injectionType);
@@ -0,0 +1,167 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.asm.AbstractState;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.record.TraceLoader;
+import edu.umich.order.legolas.common.record.TraceLoader.Injection;
+import edu.umich.order.legolas.common.record.TraceLoader.Trace;
+import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Grants exactly one injection in every trial: the given occurrence (counted from the ready
+ * event) of a request at the target state-op that offers the target fault.
+ */
+public final class ReproducePolicy extends Policy {
+    private static final Logger LOG = LoggerFactory.getLogger(ReproducePolicy.class);
+
+    private final Uid target;
+    private final int occurrence;
+    // the client outcome of the recorded trial, null if unknown
+    private final String recordedOutcome;
+    private int seen = 0;
+    private volatile boolean injected = false;
+
+    public ReproducePolicy(final Uid target, final int occurrence) {
+        this(target, occurrence, null);
+    }
+
+    public ReproducePolicy(final Uid target, final int occurrence, final String recordedOutcome) {
+        super(InjectionType.ALL);
+        this.target = target;
+        this.occurrence = occurrence;
+        this.recordedOutcome = recordedOutcome;
+        LOG.info("reproducing {} at occurrence {}", target, occurrence);
+    }
+
+    /**
+     * The target is either the injection of a recorded trial (reproduceTrial in the workspace
+     * reproduceWorkspace, and reproduceInjection for the n-th injection of a multi-fault trial),
+     * or the tuple reproduceServer, reproduceStateMachine, reproduceState, reproduceStateId,
+     * reproduceOp, reproduceFault (an exception id or "delay") and reproduceOccurrence.
+     * The runs write their trials to workspacePathName, which must not be the recorded workspace.
+     */
+    public static ReproducePolicy create(final Properties properties) {
+        final String trial = properties.getProperty("reproduceTrial");
+        if (trial != null) {
+            final String recorded = properties.getProperty("reproduceWorkspace");
+            if (recorded == null) {
+                throw new IllegalArgumentException("reproduceTrial needs reproduceWorkspace, the "
+                        + "workspace of the recorded trial");
+            }
+            try {
+                if (new File(recorded).getCanonicalFile().equals(new File(
+                        properties.getProperty("workspacePathName")).getCanonicalFile())) {
+                    throw new IllegalArgumentException("the runs would overwrite the recorded "
+                            + "trials, reproduce in another workspace than " + recorded);
+                }
+                return fromTrial(new File(recorded + "/trials/" + trial), Integer.parseInt(trial),
+                        Integer.parseInt(properties.getProperty("reproduceInjection", "0")));
+            } catch (final IOException e) {
+                throw new IllegalArgumentException("Failed to load trial " + trial, e);
+            }
+        }
+        final String fault = properties.getProperty("reproduceFault", "delay");
+        final Uid target = new Uid(
+                Integer.parseInt(properties.getProperty("reproduceServer")),
+                properties.getProperty("reproduceStateMachine"),
+                new AbstractState(properties.getProperty("reproduceState"),
+                        Integer.parseInt(properties.getProperty("reproduceStateId"))),
+                fault.equals("delay") ? -1 : Integer.parseInt(fault),
+                properties.getProperty("reproduceOp"));
+        return new ReproducePolicy(target,
+                Integer.parseInt(properties.getProperty("reproduceOccurrence", "1")));
+    }
+
+    public static ReproducePolicy fromTrial(final File trialDir, final int trialId,
+            final int injection) throws IOException {
+        final Trace trace = TraceLoader.load(trialDir, trialId);
+        if (injection >= trace.injections.size()) {
+            throw new IOException("trial " + trialId + " has only " + trace.injections.size()
+                    + " injections");
+        }
+        final Injection granted = trace.injections.get(injection);
+        final ThreadInjectionRequest request = trace.requests.get(granted.index);
+        final Uid target = new Uid(request.serverId, request.stateMachineName, request.state,
+                granted.delay ? -1 : granted.eid, request.op);
+        // only the requests after the ready event (and before the previous injections used up
+        // the budget) reach the policy
+        int occurrence = 0;
+        for (int i = trace.readyIndex; i <= granted.index; i++) {
+            if (matches(target, trace.requests.get(i))) {
+                occurrence++;
+            }
+        }
+        return new ReproducePolicy(target, occurrence, trace.outcome);
+    }
+
+    /**
+     * @return the client outcome of the recorded trial, or null if unknown
+     */
+    public String getRecordedOutcome() {
+        return recordedOutcome;
+    }
+
+    private static boolean matches(final Uid target, final ThreadInjectionRequest request) {
+        if (request.serverId != target.server || !request.op.equals(target.op)
+                || !request.stateMachineName.equals(target.name)
+                || !request.state.equals(target.state)) {
+            return false;
+        }
+        if (target.eid == -1) {
+            return request.delay;
+        }
+        for (final int eid : request.eids) {
+            if (eid == target.eid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isInjected() {
+        return injected;
+    }
+
+    @Override
+    public void setupNewTrial() {
+        seen = 0;
+        injected = false;
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
+        if (injected || !matches(target, request) || ++seen < occurrence) {
+            return new InjectionRemoteCommand(0, -1, -1);
+        }
+        injected = true;
+        LOG.info("injected in " + target);
+        return target.eid == -1 ? new InjectionRemoteCommand(1, -1, 0)
+                : new InjectionRemoteCommand(0, target.eid, 0);
+    }
+}
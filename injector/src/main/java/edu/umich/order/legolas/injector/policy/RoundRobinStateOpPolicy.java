@@ -20,6 +20,8 @@
  */
 package edu.umich.order.legolas.injector.policy;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +37,10 @@ public class RoundRobinStateOpPolicy extends StateOpPolicy {
     }
 
     private final LinkedList<Uid> roundRobinList = new LinkedList<>();
+    // the uids appended to the list since the last delta, with null for each removal of the head
+    private final ArrayList<Uid> listUpdates = new ArrayList<>();
+    // whether the list was cleared since the last delta
+    private boolean listCleared = false;
     protected volatile int full = 0;
     private volatile int injectionNum = 0, trialNum = 0;
 
@@ -49,15 +55,15 @@ public class RoundRobinStateOpPolicy extends StateOpPolicy {
         }
         while (roundRobinList.size() > 0) {
             final Uid uid = roundRobinList.getFirst();
-            roundRobinList.removeFirst();
+            removeHead();
             final UidInfo info = visited.get(uid);
             if (info == null || info.budget > 0) {
-                roundRobinList.add(uid);
+                append(uid);
                 break;
             }
         }
         while (roundRobinList.size() > 0 && visited.get(roundRobinList.getFirst()).budget == 0) {
-            roundRobinList.removeFirst();
+            removeHead();
         }
         if (roundRobinList.size() > 0) {
             System.out.println("target at " + roundRobinList.getFirst());
@@ -66,11 +72,96 @@ public class RoundRobinStateOpPolicy extends StateOpPolicy {
         LOG.info("round robin list length = " + roundRobinList.size());
     }
 
+    private void append(final Uid uid) {
+        roundRobinList.add(uid);
+        listUpdates.add(uid);
+    }
+
+    private void removeHead() {
+        roundRobinList.removeFirst();
+        listUpdates.add(null);
+    }
+
+    private static final class RoundRobinCheckpoint implements Serializable {
+        private final Serializable visited;
+        // the whole list in a snapshot, the list updates in a delta
+        private final ArrayList<Uid> roundRobinList;
+        // whether the list is cleared before the updates are replayed
+        private final boolean cleared;
+        private final int full, injectionNum, trialNum;
+        private final boolean injected;
+
+        private RoundRobinCheckpoint(final RoundRobinStateOpPolicy policy,
+                final Serializable visited, final ArrayList<Uid> roundRobinList,
+                final boolean cleared) {
+            this.visited = visited;
+            this.roundRobinList = roundRobinList;
+            this.cleared = cleared;
+            this.full = policy.full;
+            this.injectionNum = policy.injectionNum;
+            this.trialNum = policy.trialNum;
+            this.injected = policy.injected;
+        }
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return new RoundRobinCheckpoint(this, super.snapshot(), new ArrayList<>(roundRobinList),
+                true);
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        final RoundRobinCheckpoint checkpoint = (RoundRobinCheckpoint) snapshot;
+        super.restore(checkpoint.visited);
+        load(checkpoint);
+        listUpdates.clear();
+        listCleared = false;
+    }
+
+    /**
+     * The list rotates by a few uids per trial, so the delta replays the rotation
+     */
+    @Override
+    public Serializable delta() {
+        final RoundRobinCheckpoint delta = new RoundRobinCheckpoint(this, super.delta(),
+                new ArrayList<>(listUpdates), listCleared);
+        listUpdates.clear();
+        listCleared = false;
+        return delta;
+    }
+
+    @Override
+    public void apply(final Serializable delta) {
+        final RoundRobinCheckpoint checkpoint = (RoundRobinCheckpoint) delta;
+        super.apply(checkpoint.visited);
+        load(checkpoint);
+    }
+
+    private void load(final RoundRobinCheckpoint checkpoint) {
+        if (checkpoint.cleared) {
+            roundRobinList.clear();
+        }
+        for (final Uid uid : checkpoint.roundRobinList) {
+            if (uid == null) {
+                roundRobinList.removeFirst();
+            } else {
+                roundRobinList.add(uid);
+            }
+        }
+        full = checkpoint.full;
+        injectionNum = checkpoint.injectionNum;
+        trialNum = checkpoint.trialNum;
+        // setupNewTrial counts the injection of the last trial
+        injected = checkpoint.injected;
+    }
+
     @Override
     protected boolean check(final Uid uid) {
+        touch(uid);
         if (!visited.containsKey(uid)) {
             visited.put(uid, new UidInfo());
-            roundRobinList.add(uid);
+            append(uid);
         }
         if (roundRobinList.isEmpty()) {
             return false;
@@ -91,11 +182,21 @@ public class RoundRobinStateOpPolicy extends StateOpPolicy {
         return false;
     }
 
+    @Override
+    protected void refund(final UidInfo info) {
+        if (info.budget == 0) {
+            full--;
+        }
+        super.refund(info);
+    }
+
     protected void reset() {
         trialNum = 0;
         injectionNum = 0;
-        visited.clear();
+        clearVisited();
         roundRobinList.clear();
+        listUpdates.clear();
+        listCleared = true;
         full = 0;
         LOG.info("reset the budget");
     }
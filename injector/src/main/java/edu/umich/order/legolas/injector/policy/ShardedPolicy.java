@@ -0,0 +1,113 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Restricts a policy to one shard of the injection space, so that the workers of a sharded
+ * exploration never inject in the same state-op.
+ */
+public final class ShardedPolicy implements InjectionPolicy, Checkpointable {
+    private final InjectionPolicy policy;
+    private final int shard;
+    private final int shards;
+    // without abstract states (FATE and meta-info modes), the failure id is the injection point
+    private final boolean byFailureId;
+
+    public ShardedPolicy(final InjectionPolicy policy, final int shard, final int shards,
+            final boolean byFailureId) {
+        this.policy = policy;
+        this.shard = shard;
+        this.shards = shards;
+        this.byFailureId = byFailureId;
+    }
+
+    public int shardOf(final ThreadInjectionRequest request) {
+        final int hash = byFailureId ? Long.hashCode(request.failureId) :
+                Objects.hash(request.serverId, request.stateMachineName, request.state, request.op);
+        return Math.floorMod(hash, shards);
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
+        if (shardOf(request) != shard) {
+            return new InjectionRemoteCommand(0, -1, -1);
+        }
+        return policy.inject(request);
+    }
+
+    @Override
+    public void setupNewTrial() {
+        policy.setupNewTrial();
+    }
+
+    @Override
+    public void onStateUpdate(final ThreadStateEvent event) {
+        policy.onStateUpdate(event);
+    }
+
+    @Override
+    public void onInjectionDropped(final ThreadInjectionRequest request,
+            final InjectionRemoteCommand command) {
+        policy.onInjectionDropped(request, command);
+    }
+
+    @Override
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        policy.onTrialOutcome(outcome);
+    }
+
+    @Override
+    public int getFaultBudget() {
+        return policy.getFaultBudget();
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return policy instanceof Checkpointable ? ((Checkpointable) policy).snapshot() : null;
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        if (policy instanceof Checkpointable) {
+            ((Checkpointable) policy).restore(snapshot);
+        }
+    }
+
+    @Override
+    public Serializable delta() {
+        return policy instanceof Checkpointable ? ((Checkpointable) policy).delta() : null;
+    }
+
+    @Override
+    public void apply(final Serializable delta) {
+        if (policy instanceof Checkpointable) {
+            ((Checkpointable) policy).apply(delta);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.policy;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.injector.policy.StateOpPolicy.Uid;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Injects an ordered pair of state-ops in each trial, e.g., an exception followed by a delay in
+ * another node. The pairs are enumerated lazily over the state-ops in the order of discovery, so
+ * the state-ops found in later trials join the enumeration without restarting it.
+ */
+public class StateOpPairPolicy extends Policy implements Checkpointable {
+    private static final Logger LOG = LoggerFactory.getLogger(StateOpPairPolicy.class);
+
+    protected final ArrayList<Uid> points = new ArrayList<>();
+    protected final Set<Uid> discovered = new HashSet<>();
+    // the pair cursor: all pairs among the first m points are explored; k walks the pairs with m
+    protected int m = 1, k = 0;
+    protected FaultPlan plan = null;
+
+    private static final class PairCheckpoint implements Serializable {
+        private final ArrayList<Uid> points;
+        private final int m, k;
+
+        private PairCheckpoint(final StateOpPairPolicy policy) {
+            this.points = new ArrayList<>(policy.points);
+            this.m = policy.m;
+            this.k = policy.k;
+        }
+    }
+
+    public StateOpPairPolicy(final InjectionType injectionType) {
+        super(injectionType);
+    }
+
+    @Override
+    public int getFaultBudget() {
+        return 2;
+    }
+
+    @Override
+    public void setupNewTrial() {
+        if (plan != null && plan.getInjected() < plan.size()) {
+            LOG.info("only {} of the faults injected in {}", plan.getInjected(), plan);
+        }
+        plan = null;
+        // pairs (i, m) and (m, i) for i < m
+        if (m < points.size()) {
+            final int i = k / 2;
+            plan = new FaultPlan(k % 2 == 0 ? Arrays.asList(points.get(i), points.get(m)) :
+                    Arrays.asList(points.get(m), points.get(i)));
+            if (++k == 2 * m) {
+                m++;
+                k = 0;
+            }
+        }
+        LOG.info("state-op set size = {}, plan = {}", points.size(), plan);
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final ThreadInjectionRequest request) {
+        if (injectionType != InjectionType.EXCEPTION && request.delay) {
+            final Uid uid = new Uid(request.serverId, request.stateMachineName, request.state,
+                    -1, request.op);
+            if (check(uid)) {
+                return new InjectionRemoteCommand(1, -1, 0);
+            }
+        }
+        if (injectionType != InjectionType.DELAY && request.eids.length > 0) {
+            for (final int eid : request.eids) {
+                final Uid uid = new Uid(request.serverId, request.stateMachineName,
+                        request.state, eid, request.op);
+                if (check(uid)) {
+                    return new InjectionRemoteCommand(0, eid, 0);
+                }
+            }
+        }
+        return new InjectionRemoteCommand(0, -1, -1);
+    }
+
+    protected boolean check(final Uid uid) {
+        if (discovered.add(uid)) {
+            points.add(uid);
+        }
+        if (plan == null || !plan.matches(uid)) {
+            return false;
+        }
+        plan.advance();
+        LOG.info("injected in " + uid + " as fault " + plan.getInjected() + " of " + plan.size());
+        return true;
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return new PairCheckpoint(this);
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        final PairCheckpoint checkpoint = (PairCheckpoint) snapshot;
+        points.clear();
+        points.addAll(checkpoint.points);
+        discovered.clear();
+        discovered.addAll(checkpoint.points);
+        m = checkpoint.m;
+        k = checkpoint.k;
+    }
+}
@@ -23,45 +23,239 @@ package edu.umich.order.legolas.injector.policy;
 import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
 import edu.umich.order.legolas.common.asm.AbstractState;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import java.io.Serializable;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  *
  */
-public class StateOpPolicy extends Policy {
+public class StateOpPolicy extends Policy implements Checkpointable {
     private static final Logger LOG = LoggerFactory.getLogger(StateOpPolicy.class);
 
+    // the injection probability of a uid is scaled by this for each benign trial injected there
+    private static final double BENIGN_DECAY = 0.5;
+
     protected volatile boolean injected = false;
     protected final Random rand = new Random();
 
+    // null for the fixed budget of every uid
+    protected final BudgetAllocator allocator;
+    // the uid that the allocator picks for the current trial
+    private volatile Uid target = null;
+    // the uid injected in the current trial
+    private volatile Uid injectedUid = null;
+    private volatile TrialOutcome outcome = null;
+    // the uids first visited after the injection of the current trial
+    private volatile int newStates = 0;
+
+    // the uids of the servers with known roles are keyed by the role instead of the server id
+    protected final boolean roleAware;
+
     public StateOpPolicy(final InjectionType injectionType) {
+        this(injectionType, null, false);
+    }
+
+    public StateOpPolicy(final InjectionType injectionType, final BudgetAllocator allocator,
+            final boolean roleAware) {
         super(injectionType);
+        this.allocator = allocator;
+        this.roleAware = roleAware;
+        if (allocator != null) {
+            LOG.info("budget allocator = {}", allocator);
+        }
+        if (roleAware) {
+            LOG.info("role aware");
+        }
     }
 
-    protected static final class UidInfo {
+    protected static final class UidInfo implements Serializable {
         public volatile int c = 0;
         public volatile double prob = 0.0; // FIXME
         public volatile int budget = 5; // FIXME
+        // the trials injected at this uid that still succeeded
+        public volatile int benign = 0;
+        // the bandit statistics, only used with a budget allocator
+        public volatile int pulls = 0;
+        public volatile int rewards = 0;
+        // the trials in a row that targeted this uid without injecting there
+        public volatile int misses = 0;
+        public final Set<String> outcomes = new HashSet<>();
     }
 
     protected final Map<Uid, UidInfo> visited = new HashMap<>();
+    // the uids whose info changed since the last delta
+    private final Set<Uid> touched = new HashSet<>();
+    // whether visited was cleared since the last delta
+    private boolean cleared = false;
+
+    private static final class StateOpCheckpoint implements Serializable {
+        // every uid in a snapshot, only the touched ones in a delta
+        private final HashMap<Uid, UidInfo> visited;
+        // whether visited is cleared before the uids are put back
+        private final boolean cleared;
+        // the last trial is rewarded in the next setupNewTrial
+        private final Uid target, injectedUid;
+        private final TrialOutcome outcome;
+        private final int newStates;
+        private final boolean injected;
+
+        private StateOpCheckpoint(final StateOpPolicy policy,
+                final HashMap<Uid, UidInfo> visited, final boolean cleared) {
+            this.visited = visited;
+            this.cleared = cleared;
+            this.target = policy.target;
+            this.injectedUid = policy.injectedUid;
+            this.outcome = policy.outcome;
+            this.newStates = policy.newStates;
+            this.injected = policy.injected;
+        }
+    }
+
+    /**
+     * A trial is a pull of its target only if it injected there. It is rewarding if it failed
+     * (see Orchestrator.getTrialOutcome()) with a client outcome never seen at the target, or if
+     * it reached new states after the injection
+     */
+    private void reward() {
+        if (target == null) {
+            return;
+        }
+        touched.add(target);
+        final UidInfo info = visited.get(target);
+        if (!injected) {
+            // the target was not reached or the coin flip declined it, the arm was not played
+            info.misses++;
+            LOG.info("no reward for {}, missed {} times in a row", target, info.misses);
+            return;
+        }
+        final boolean failed = outcome != null && outcome.getKind() != TrialOutcome.Kind.SUCCESS;
+        final boolean rewarded = newStates > 0 || (failed && info.outcomes.add(outcome.clients));
+        info.misses = 0;
+        info.pulls++;
+        if (rewarded) {
+            info.rewards++;
+        }
+        LOG.info("reward {} for {} ({}/{}), outcome = {}, new states = {}", rewarded ? 1 : 0,
+                target, info.rewards, info.pulls, outcome, newStates);
+    }
+
+    /**
+     * Make the uids whose injections keep producing benign trials less likely to be injected
+     */
+    private void deprioritize() {
+        if (injectedUid == null || outcome == null || !outcome.isBenign()) {
+            return;
+        }
+        touched.add(injectedUid);
+        final UidInfo info = visited.get(injectedUid);
+        info.benign++;
+        LOG.info("benign trial #{} for {}", info.benign, injectedUid);
+    }
+
+    @Override
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        this.outcome = outcome;
+        if (!outcome.counted) {
+            // the attempt is retried, it neither rewards nor deprioritizes anything
+            target = null;
+            injectedUid = null;
+        }
+    }
 
     @Override
     public void setupNewTrial() {
+        if (allocator != null) {
+            reward();
+        }
+        deprioritize();
+        target = null;
+        injectedUid = null;
+        outcome = null;
+        newStates = 0;
         injected = false;
         for (final Map.Entry<Uid, UidInfo> entry : visited.entrySet()) {
             final UidInfo info = entry.getValue();
             final Uid uid = entry.getKey();
-            final double p = 1 - Math.exp(Math.log(0.01)/(info.c + 1));
+            final double p = (1 - Math.exp(Math.log(0.01)/(info.c + 1)))
+                    * Math.pow(BENIGN_DECAY, info.benign);
+            final double prob = info.prob;
+            if (info.c != 0) touched.add(uid);
             info.c = 0;
             if (info.prob < 1e-6) info.prob = p;
             else info.prob = Math.min(info.prob, p);
+            if (info.prob != prob) touched.add(uid);
         }
+        if (allocator != null) {
+            target = allocator.select(visited);
+            if (target != null) {
+                LOG.info("target at " + target);
+            }
+        }
+    }
+
+    @Override
+    public Serializable snapshot() {
+        return new StateOpCheckpoint(this, new HashMap<>(visited), true);
+    }
+
+    @Override
+    public void restore(final Serializable snapshot) {
+        load((StateOpCheckpoint) snapshot);
+        touched.clear();
+        cleared = false;
+    }
+
+    /**
+     * Most uids are not reached in a trial, so the delta only holds the touched ones
+     */
+    @Override
+    public Serializable delta() {
+        final HashMap<Uid, UidInfo> changes = new HashMap<>();
+        for (final Uid uid : touched) {
+            changes.put(uid, visited.get(uid));
+        }
+        final StateOpCheckpoint delta = new StateOpCheckpoint(this, changes, cleared);
+        touched.clear();
+        cleared = false;
+        return delta;
+    }
+
+    @Override
+    public void apply(final Serializable delta) {
+        load((StateOpCheckpoint) delta);
+    }
+
+    private void load(final StateOpCheckpoint checkpoint) {
+        if (checkpoint.cleared) {
+            visited.clear();
+        }
+        visited.putAll(checkpoint.visited);
+        target = checkpoint.target;
+        injectedUid = checkpoint.injectedUid;
+        outcome = checkpoint.outcome;
+        newStates = checkpoint.newStates;
+        injected = checkpoint.injected;
+    }
+
+    /**
+     * Record that the info of the uid changed, see {@link #delta()}
+     */
+    protected final void touch(final Uid uid) {
+        touched.add(uid);
+    }
+
+    protected final void clearVisited() {
+        visited.clear();
+        touched.clear();
+        cleared = true;
     }
 
     @Override
@@ -71,18 +265,20 @@ public class StateOpPolicy extends Policy {
         }
         if (injectionType != InjectionType.DELAY) {
             for (final int eid : request.eids) {
-                final Uid uid = new Uid(request.serverId, request.stateMachineName, request.state, eid, request.op);
+                final Uid uid = newUid(request, eid);
                 if (check(uid)) {
                     injected = true;
+                    injectedUid = uid;
                     LOG.info("injected in " + uid + " with probability " + visited.get(uid).prob);
                     return new InjectionRemoteCommand(0, eid, 0);
                 }
             }
         }
         if (injectionType != InjectionType.EXCEPTION) {
-            final Uid uid = new Uid(request.serverId, request.stateMachineName, request.state, -1, request.op);
+            final Uid uid = newUid(request, -1);
             if (check(uid)) {
                 injected = true;
+                injectedUid = uid;
                 LOG.info("injected in " + uid + " with probability " + visited.get(uid).prob);
                 return new InjectionRemoteCommand(1, -1, 0);
             }
@@ -90,14 +286,62 @@ public class StateOpPolicy extends Policy {
         return new InjectionRemoteCommand(0, -1, -1);
     }
 
+    /**
+     * The uid is no longer injected in this trial, and its budget is refunded
+     */
+    @Override
+    public void onInjectionDropped(final ThreadInjectionRequest request,
+            final InjectionRemoteCommand command) {
+        final Uid uid = newUid(request, command.delay == 1 ? -1 : command.eid);
+        if (!uid.equals(injectedUid)) {
+            return;
+        }
+        injected = false;
+        injectedUid = null;
+        final UidInfo info = visited.get(uid);
+        if (info != null) {
+            refund(info);
+        }
+        LOG.info("rolled back the dropped injection in " + uid);
+    }
+
+    /**
+     * Give back the budget spent by {@link #check(Uid)} on an injection that did not happen
+     */
+    protected void refund(final UidInfo info) {
+        if (allocator == null) {
+            info.budget++;
+        }
+    }
+
+    /**
+     * With roleAware, a fault at a state-op is covered once per role, e.g., on whichever server
+     * is the leader, rather than once per server
+     */
+    private Uid newUid(final ThreadInjectionRequest request, final int eid) {
+        if (roleAware && request.role != null) {
+            return new Uid(-1, request.role, request.stateMachineName, request.state, eid,
+                    request.op);
+        }
+        return new Uid(request.serverId, request.stateMachineName, request.state, eid, request.op);
+    }
+
     protected boolean check(final Uid uid) {
+        touched.add(uid);
         if (!visited.containsKey(uid)) {
             visited.put(uid, new UidInfo());
+            if (injected) {
+                newStates++;
+            }
 //            LOG.debug("Uid {} has not been visited", uid);
         }
         final UidInfo info = visited.get(uid);
 //        LOG.debug("Budget for Uid {} is {}", uid, info.budget);
         info.c++;
+        if (allocator != null) {
+            // the allocator spends the budget by picking one target per trial
+            return uid.equals(target) && rand.nextDouble() < info.prob;
+        }
         double p = rand.nextDouble();
         if (info.budget > 0 && p < info.prob) {
 //            LOG.debug("Roll {} passes threshold {}", p, info.prob);
@@ -109,15 +353,21 @@ public class StateOpPolicy extends Policy {
         return false;
     }
 
-    protected static final class Uid {
+    protected static final class Uid implements Serializable {
         final int server;
+        final String role; // null unless role aware
         final String name;
         final AbstractState state;
         final int eid;
         final String op;
 
         public Uid(int server, String name, AbstractState state, int eid, String op) {
+            this(server, null, name, state, eid, op);
+        }
+
+        public Uid(int server, String role, String name, AbstractState state, int eid, String op) {
             this.server = server;
+            this.role = role;
             this.name = name;
             this.state = state;
             this.eid = eid;
@@ -133,19 +383,21 @@ public class StateOpPolicy extends Policy {
                 return false;
             }
             Uid uid = (Uid) o;
-            return server == uid.server && eid == uid.eid && Objects.equals(name, uid.name)
+            return server == uid.server && eid == uid.eid && Objects.equals(role, uid.role)
+                    && Objects.equals(name, uid.name)
                     && Objects.equals(state, uid.state) && Objects.equals(op, uid.op);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(server, name, state, eid, op);
+            return Objects.hash(server, role, name, state, eid, op);
         }
 
         @Override
         public String toString() {
             return "Uid{" +
                     "server=" + server +
+                    ", role=" + role +
                     ", name='" + name + '\'' +
                     ", state=" + state +
                     ", eid=" + eid +
@@ -0,0 +1,339 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.server;
+
+import edu.umich.order.legolas.common.api.CoordinatorRemote;
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.event.ThreadStateEvent;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import edu.umich.order.legolas.common.server.RmiServerBase;
+import edu.umich.order.legolas.injector.controller.CheckpointManager;
+import edu.umich.order.legolas.injector.controller.InjectionController;
+import edu.umich.order.legolas.injector.policy.PolicyFactory;
+import edu.umich.order.legolas.injector.policy.ShardedPolicy;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The coordinator of a sharded exploration. It owns one controller per shard and hands out the
+ * trials to the workers; each shard only grants the injections in its part of the state-op space.
+ * The results of all workers are aggregated in trials.csv of the coordinator workspace.
+ *
+ * When a worker leaves in the middle of a trial, or registers again with the same trials
+ * directory after it died, the shard is rolled back to its state before that trial and the trial
+ * is given again to the next worker of the shard.
+ */
+public final class CoordinatorServer extends RmiServerBase implements CoordinatorRemote {
+    private static final Logger LOG = LoggerFactory.getLogger(CoordinatorServer.class);
+
+    private static final class Shard {
+        private final InjectionController controller;
+        private final ShardedPolicy policy;
+        private volatile String trialsDir = null; // null if no worker owns this shard
+        private volatile int trialId = -1; // the current trial of the worker, -1 if idle
+        private int lostTrialId = -1; // the trial to redo on this shard, -1 if none
+        private byte[] beforeTrial = null; // the policy state before the current trial
+        private long startTime;
+        private int injections;
+        private TrialOutcome outcome; // of the current trial, null until the worker reports it
+
+        private Shard(final InjectionController controller, final ShardedPolicy policy) {
+            this.controller = controller;
+            this.policy = policy;
+        }
+    }
+
+    private final Shard[] shards;
+    private final int maxTrials;
+    private int nextTrialId = 0;
+    private int completed = 0;
+    private final List<Integer> redone = new ArrayList<>();
+    private final BufferedWriter results;
+
+    public CoordinatorServer(final Properties properties, final int port, final Registry registry,
+            final boolean tryCreateReg) throws RemoteException {
+        super(CoordinatorRemote.REMOTE_NAME, port, "CoordinatorServer", registry, tryCreateReg);
+        final int workers = Integer.parseInt(properties.getProperty("workers", "2"));
+        maxTrials = Integer.parseInt(properties.getProperty("maxTrials", "2000"));
+        final boolean byFailureId =
+                Boolean.parseBoolean(properties.getProperty("metainfo_mode", "false")) ||
+                Boolean.parseBoolean(properties.getProperty("fate_mode", "false"));
+        final boolean checkpoint =
+                Boolean.parseBoolean(properties.getProperty("checkpoint", "true"));
+        final boolean resume = Boolean.parseBoolean(properties.getProperty("resume", "false"));
+        final int interval = Integer.parseInt(properties.getProperty("checkpointInterval", "20"));
+        final String workspace = properties.getProperty("workspacePathName");
+        shards = new Shard[workers];
+        try {
+            for (int i = 0; i < workers; i++) {
+                final ShardedPolicy policy = new ShardedPolicy(
+                        PolicyFactory.createPolicy(properties), i, workers, byFailureId);
+                final InjectionController controller = new InjectionController(policy);
+                if (checkpoint) {
+                    controller.enableCheckpoints(new CheckpointManager(
+                            workspace + "/checkpoint/shard-" + i, interval, resume), resume);
+                    // the trials in flight when the coordinator died are not redone
+                    nextTrialId = Math.max(nextTrialId, controller.getTrialId() + 1);
+                }
+                shards[i] = new Shard(controller, policy);
+            }
+            final File file = new File(workspace + "/trials.csv");
+            final boolean header = !resume || !file.exists();
+            results = new BufferedWriter(new FileWriter(file, !header));
+            if (header) {
+                results.write("trial-id,worker-id,injections,elapsed-ms,outcome,clients,"
+                        + "trial-dir\n");
+                results.flush();
+            }
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new RemoteException("Failed to set up the shards", e);
+        }
+        LOG.info("{} shards, # of trials = {}, starting from trial {}", workers, maxTrials,
+                nextTrialId);
+    }
+
+    @Override
+    public synchronized int registerWorker(final String trialsDir) {
+        for (int i = 0; i < shards.length; i++) {
+            if (trialsDir.equals(shards[i].trialsDir)) {
+                // the previous worker with these trials died without unregistering
+                LOG.warn("worker {} registered again with trials in {}", i, trialsDir);
+                requeue(i);
+                shards[i].trialId = -1;
+                return i;
+            }
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i].trialsDir == null) {
+                shards[i].trialsDir = trialsDir;
+                shards[i].trialId = -1;
+                LOG.info("worker {} registered with trials in {}", i, trialsDir);
+                return i;
+            }
+        }
+        LOG.warn("no free shard for the worker with trials in {}", trialsDir);
+        return -1;
+    }
+
+    @Override
+    public synchronized void unregisterWorker(final int workerId) {
+        final Shard shard = shards[workerId];
+        requeue(workerId);
+        shard.trialsDir = null;
+        shard.trialId = -1;
+        LOG.info("worker {} unregistered", workerId);
+        notifyAll();
+    }
+
+    /**
+     * Roll the shard back to its state before the trial in flight, if any, and queue the trial
+     * for the next worker of the shard
+     */
+    private void requeue(final int workerId) {
+        final Shard shard = shards[workerId];
+        if (shard.trialId < 0) {
+            return;
+        }
+        LOG.warn("worker {} left without completing trial {}, the trial will be redone",
+                workerId, shard.trialId);
+        synchronized (shard) {
+            if (shard.beforeTrial != null) {
+                try (final ObjectInputStream in = new ObjectInputStream(
+                        new ByteArrayInputStream(shard.beforeTrial))) {
+                    shard.policy.restore((Serializable) in.readObject());
+                    // the changes of the lost trial must not reach the checkpoint journal
+                    shard.policy.delta();
+                } catch (final IOException | ClassNotFoundException e) {
+                    LOG.error("Failed to roll back shard {}, trial {} is not redone", workerId,
+                            shard.trialId, e);
+                    return;
+                }
+            }
+        }
+        shard.lostTrialId = shard.trialId;
+        shard.trialId = -1;
+        redone.add(shard.lostTrialId);
+    }
+
+    @Override
+    public synchronized int nextTrial(final int workerId) {
+        final Shard shard = shards[workerId];
+        if (shard.lostTrialId >= 0) {
+            shard.trialId = shard.lostTrialId;
+            shard.lostTrialId = -1;
+            return shard.trialId;
+        }
+        if (maxTrials > 0 && nextTrialId >= maxTrials) {
+            return -1;
+        }
+        shard.trialId = nextTrialId++;
+        return shard.trialId;
+    }
+
+    @Override
+    public void setupNewTrial(final int workerId) {
+        final Shard shard = shards[workerId];
+        synchronized (shard) {
+            // a deep copy, the policies update their state in place
+            final Serializable snapshot = shard.policy.snapshot();
+            shard.beforeTrial = null;
+            if (snapshot != null) {
+                try {
+                    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                        out.writeObject(snapshot);
+                    }
+                    shard.beforeTrial = bytes.toByteArray();
+                } catch (final IOException e) {
+                    LOG.warn("Failed to keep the state of shard {} before trial {}", workerId,
+                            shard.trialId, e);
+                }
+            }
+            shard.controller.setupTrial(shard.trialId);
+            // the worker gates the injection on the readiness of its own ensemble
+            shard.controller.setReady();
+            shard.startTime = System.currentTimeMillis();
+            shard.injections = 0;
+            shard.outcome = null;
+        }
+    }
+
+    @Override
+    public InjectionRemoteCommand inject(final int workerId, final ThreadInjectionRequest request) {
+        final Shard shard = shards[workerId];
+        synchronized (shard) {
+            final InjectionRemoteCommand command = shard.controller.inject(request);
+            if (command.id != -1) {
+                shard.injections++;
+            }
+            return command;
+        }
+    }
+
+    @Override
+    public void dropInjection(final int workerId, final int injectionId) {
+        final Shard shard = shards[workerId];
+        synchronized (shard) {
+            if (shard.controller.dropInjection(injectionId) != null) {
+                shard.injections--;
+            }
+        }
+    }
+
+    @Override
+    public void onStateUpdate(final int workerId, final ThreadStateEvent event) {
+        final Shard shard = shards[workerId];
+        synchronized (shard) {
+            shard.controller.onStateUpdate(event);
+        }
+    }
+
+    @Override
+    public void onTrialOutcome(final int workerId, final TrialOutcome outcome) {
+        final Shard shard = shards[workerId];
+        synchronized (shard) {
+            shard.controller.onTrialOutcome(outcome);
+            shard.outcome = outcome;
+        }
+    }
+
+    @Override
+    public void trialCompleted(final int workerId, final int trialId) {
+        final Shard shard = shards[workerId];
+        synchronized (shard) {
+            shard.controller.checkpoint();
+            final TrialOutcome outcome = shard.outcome;
+            try {
+                results.write(trialId + "," + workerId + "," + shard.injections + "," +
+                        (System.currentTimeMillis() - shard.startTime) + "," +
+                        (outcome == null ? "," : outcome.getKind() + "," + outcome.clients) +
+                        "," + shard.trialsDir + "/" + trialId + "\n");
+                results.flush();
+            } catch (final IOException e) {
+                LOG.warn("Failed to record the result of trial {}", trialId, e);
+            }
+        }
+        synchronized (this) {
+            shard.trialId = -1;
+            completed++;
+            notifyAll();
+        }
+        LOG.info("worker {} completed trial {}", workerId, trialId);
+    }
+
+    /**
+     * Wait until all the trials are assigned and no worker is in the middle of a trial
+     */
+    public synchronized void awaitCompletion() throws InterruptedException {
+        while (!isDone()) {
+            wait();
+        }
+        LOG.info("{} trials completed, {} redone after their worker left: {}", completed,
+                redone.size(), redone);
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i].lostTrialId >= 0) {
+                LOG.warn("trial {} of shard {} is lost, no worker took the shard again",
+                        shards[i].lostTrialId, i);
+            }
+        }
+    }
+
+    private boolean isDone() {
+        if (maxTrials <= 0 || nextTrialId < maxTrials) {
+            return false;
+        }
+        for (final Shard shard : shards) {
+            // a lost trial waits only for a worker of its shard
+            if (shard.trialId >= 0 || (shard.lostTrialId >= 0 && shard.trialsDir != null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        super.shutdown();
+        for (final Shard shard : shards) {
+            shard.controller.close();
+        }
+        try {
+            results.close();
+        } catch (final IOException e) {
+            LOG.warn("Failed to close the trial results", e);
+        }
+    }
+}
@@ -24,8 +24,10 @@ import edu.umich.order.legolas.common.api.FaultInjectorRemote;
 import edu.umich.order.legolas.common.asm.AbstractState;
 import edu.umich.order.legolas.common.asm.AbstractStateMachine;
 import edu.umich.order.legolas.common.asm.AbstractStateMachineManager;
+import edu.umich.order.legolas.common.event.DroppedInjectionEvent;
 import edu.umich.order.legolas.common.event.ThreadInjectionEvent;
 import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
 import edu.umich.order.legolas.common.record.OrchestratorStats;
 import edu.umich.order.legolas.common.server.AbstractStateServer;
 import edu.umich.order.legolas.common.server.RmiServerBase;
@@ -37,7 +39,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.rmi.RemoteException;
 import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +67,18 @@ public final class FaultInjectorServer extends RmiServerBase implements FaultInj
     protected final String workspacePath;
     protected BufferedWriter traceWriter;
 
+    // with a query deadline in the agents, the queries of the current trial, the number of them
+    // reported late by the agents, the queries refused because their deadline had passed, and
+    // the injections granted in time but dropped and rolled back, guarded by the mutex
+    private final boolean trackDeadlines;
+    private long queries = 0;
+    private long missedDeadlines = 0;
+    private long refused = 0;
+    private final List<Integer> droppedInjections = new ArrayList<>();
+
+    // beyond this gap, the clock of the agent is not the one of this process, e.g., on another host
+    private static final long MAX_CLOCK_GAP_NANOS = 10_000_000_000L;
+
     private static final InjectionRemoteCommand empty_command = new InjectionRemoteCommand(0, -1, -1);
 
     public FaultInjectorServer(OrchestratorStats stats, AbstractStateServer asServer, Properties properties, Mutex mutex,
@@ -70,11 +87,17 @@ public final class FaultInjectorServer extends RmiServerBase implements FaultInj
         this.mutex = mutex;
         this.stats = stats;
         this.asServer = asServer;
-        controller = ControllerFactory.createController(properties);
+        try {
+            controller = ControllerFactory.createController(properties);
+        } catch (final Exception e) {
+            throw new RemoteException("Failed to create the injection controller", e);
+        }
+        asServer.setUpdateHandler(controller::onStateUpdate);
         workspacePath = properties.getProperty("workspacePathName") + "/trials";
         META_INFO_MODE = Boolean.parseBoolean(properties.getProperty("metainfo_mode", "false"));
         FATE_MODE = Boolean.parseBoolean(properties.getProperty("fate_mode", "false"));
         TRACE = Boolean.parseBoolean(properties.getProperty("traceDecision", "false"));
+        trackDeadlines = Long.parseLong(properties.getProperty("queryDeadlineMicros", "0")) > 0;
     }
 
     public int getTrialId() {
@@ -87,6 +110,12 @@ public final class FaultInjectorServer extends RmiServerBase implements FaultInj
 
     public void setupNewTrial(boolean incrementId) {
         controller.setupNewTrial(incrementId);
+        synchronized (mutex) {
+            queries = 0;
+            missedDeadlines = 0;
+            refused = 0;
+            droppedInjections.clear();
+        }
         if (TRACE) {
             try {
                 String trialPath = workspacePath + "/" + getTrialId();
@@ -109,22 +138,123 @@ public final class FaultInjectorServer extends RmiServerBase implements FaultInj
             // reset traceWriter regardless
             traceWriter = null;
         }
+        if (trackDeadlines) {
+            dumpDeadlineMisses();
+        }
+    }
+
+    /**
+     * The misses reported with the last queries of a trial are counted in the next trial. The
+     * dropped injections are also marked in orch.csv.
+     */
+    private void dumpDeadlineMisses() {
+        final long total;
+        final long missed;
+        final long late;
+        final String dropped;
+        synchronized (mutex) {
+            total = queries;
+            missed = missedDeadlines;
+            late = refused;
+            dropped = droppedInjections.stream().map(String::valueOf)
+                    .collect(Collectors.joining(" "));
+        }
+        LOG.info("{} of {} injection queries missed the deadline ({}%), {} refused late",
+                missed, total, total == 0 ? 0 : String.format("%.2f", 100.0 * missed / total),
+                late);
+        if (!dropped.isEmpty()) {
+            LOG.warn("the injections {} were granted but dropped by the agents, rolled back",
+                    dropped);
+        }
+        try (final BufferedWriter writer = new BufferedWriter(new FileWriter(
+                workspacePath + "/" + getTrialId() + "/deadline_misses.txt"))) {
+            writer.write("queries,missed,refused,dropped-injections\n" + total + "," + missed
+                    + "," + late + "," + dropped + "\n");
+        } catch (IOException e) {
+            LOG.error("Failed to write the deadline misses", e);
+        }
+    }
+
+    @Override
+    public void dropInjection(final int serverId, final int trialId, final int injectionId)
+            throws RemoteException {
+        synchronized (mutex) {
+            if (asServer.isFenced(trialId)) {
+                return;
+            }
+            final ThreadInjectionEvent granted = controller.dropInjection(injectionId);
+            if (granted == null) {
+                LOG.warn("server {} dropped the unknown injection {}", serverId, injectionId);
+                return;
+            }
+            droppedInjections.add(injectionId);
+            stats.record(new DroppedInjectionEvent(System.nanoTime(), granted));
+        }
+    }
+
+    /**
+     * The deadline is taken on the clock of the agent if it is the same as ours, which is the case
+     * for a JVM on the same Linux host; otherwise it counts from the arrival of the query
+     */
+    private static boolean isPastDeadline(final InjectionRemoteQuery query, final long arrival) {
+        final long now = System.nanoTime();
+        final long gap = arrival - query.sentNanos;
+        final long start = gap >= 0 && gap < MAX_CLOCK_GAP_NANOS ? query.sentNanos : arrival;
+        return now - start > query.deadlineMicros * 1000;
     }
 
     public void setReady() {
         controller.setReady();
     }
 
+    public void setRole(final int serverId, final String role) {
+        synchronized (mutex) {
+            controller.setRole(serverId, role);
+        }
+    }
+
+    public void onTrialOutcome(final TrialOutcome outcome) {
+        synchronized (mutex) {
+            controller.onTrialOutcome(outcome);
+        }
+    }
+
+    public void checkpoint() {
+        synchronized (mutex) {
+            controller.checkpoint();
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        super.shutdown();
+        controller.close();
+    }
+
     @Override
     public InjectionRemoteCommand inject(final InjectionRemoteQuery query) throws RemoteException {
+        final long arrival = System.nanoTime();
         synchronized (mutex) {
+            if (asServer.isFenced(query.trialId)) {
+                LOG.debug("Ignoring the query of trial {} from server {}", query.trialId,
+                        query.serverId);
+                return empty_command;
+            }
+            queries++;
+            missedDeadlines += query.missedDeadlines;
             ThreadInjectionRequest request;
             if (FATE_MODE || META_INFO_MODE) {
                 request = new ThreadInjectionRequest(query);
                 request.state = dummyAS;
                 request.stateMachineName = "DummyASM";
                 if (META_INFO_MODE) {
-                  request.lastMetaInfoAccess = asServer.getLastMetaInfoAccess();
+                    if (query.lastMetaInfoAccess != null) {
+                        request.lastMetaInfoAccess = query.lastMetaInfoAccess;
+                        request.metaInfoAccessAgeNanos = query.metaInfoAccessAgeNanos;
+                    } else {
+                        // the agents that still report every access
+                        request.lastMetaInfoAccess = asServer.getLastMetaInfoAccess();
+                    }
                 }
             } else {
                 final AbstractStateMachineManager asmm = asServer.getAsmManagerByServer(
@@ -145,6 +275,12 @@ public final class FaultInjectorServer extends RmiServerBase implements FaultInj
                 }
                 request = asm.createInjectionRequest(query);
             }
+            if (query.deadlineMicros > 0 && isPastDeadline(query, arrival)) {
+                // the agent no longer waits, a grant would be recorded but never injected
+                refused++;
+                stats.record(request);
+                return empty_command;
+            }
             InjectionRemoteCommand command;
             if (TRACE && traceWriter != null) {
                 long startTime = System.nanoTime();
@@ -161,8 +297,9 @@ public final class FaultInjectorServer extends RmiServerBase implements FaultInj
             if (command.id == -1) {
                 stats.record(request);
             } else {
-                stats.record(new ThreadInjectionEvent(request, command.delay==1,
-                        command.eid, command.id));
+                // a slowdown is recorded as a delay
+                stats.record(new ThreadInjectionEvent(request,
+                        command.delay == 1 || command.slowdown != null, command.eid, command.id));
             }
             return command;
         }
@@ -0,0 +1,201 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.server;
+
+import edu.umich.order.legolas.common.api.InjectorServiceRemote;
+import edu.umich.order.legolas.common.event.Event;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import edu.umich.order.legolas.common.record.OrchestratorStats;
+import edu.umich.order.legolas.common.server.AbstractStateServer;
+import edu.umich.order.legolas.common.server.RmiServerBase;
+import edu.umich.order.legolas.common.util.Mutex;
+import java.rmi.RemoteException;
+import java.rmi.registry.Registry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The standalone injector service. It hosts the state server and the fault injector on its own
+ * registry, so that the agents query it without going through the orchestrator, and lets the
+ * connected orchestrators take turns on the injection controller.
+ */
+public final class InjectorServiceServer extends RmiServerBase implements InjectorServiceRemote {
+    private static final Logger LOG = LoggerFactory.getLogger(InjectorServiceServer.class);
+
+    private final OrchestratorStats stats = new OrchestratorStats();
+    private final Mutex mutex = new Mutex();
+    private final AbstractStateServer asServer;
+    private final FaultInjectorServer fiServer;
+
+    // a session that does not complete its trial in time loses the service, e.g., when its
+    // orchestrator dies in the middle of a trial
+    private final long leaseMillis;
+
+    private final Map<Integer, String> sessions = new HashMap<>();
+    private int nextSession = 0;
+    private int holder = -1; // the session running a trial, -1 if the service is free
+    private long leaseEnd = 0;
+
+    public InjectorServiceServer(final Properties properties, final int port,
+            final Registry registry) throws RemoteException {
+        super(InjectorServiceRemote.REMOTE_NAME, port, "InjectorServiceServer", registry, false);
+        stats.recordStates = Boolean.parseBoolean(properties.getProperty("recordStates", "false"));
+        leaseMillis = Long.parseLong(properties.getProperty("injectorLeaseMillis", "600000"));
+        asServer = new AbstractStateServer(stats, mutex, properties, port, registry, false);
+        fiServer = new FaultInjectorServer(stats, asServer, properties, mutex, port, registry,
+                false);
+    }
+
+    @Override
+    public void start() throws Exception {
+        asServer.start();
+        fiServer.start();
+        super.start();
+    }
+
+    @Override
+    public synchronized int connect(final String owner) {
+        final int session = nextSession++;
+        sessions.put(session, owner);
+        LOG.info("session {} connected from {}", session, owner);
+        return session;
+    }
+
+    @Override
+    public synchronized void disconnect(final int session) {
+        if (holder == session) {
+            LOG.warn("session {} leaves in the middle of trial {}", session,
+                    fiServer.getTrialId());
+            release();
+        }
+        LOG.info("session {} from {} disconnected", session, sessions.remove(session));
+    }
+
+    @Override
+    public boolean hasNextTrial() {
+        synchronized (mutex) {
+            return fiServer.hasNextTrial();
+        }
+    }
+
+    private void release() {
+        holder = -1;
+        notifyAll();
+    }
+
+    private synchronized void acquire(final int session) throws RemoteException {
+        while (holder != -1 && holder != session && System.currentTimeMillis() < leaseEnd) {
+            try {
+                wait(leaseEnd - System.currentTimeMillis());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Interrupted while waiting for the service", e);
+            }
+        }
+        if (holder != -1 && holder != session) {
+            LOG.warn("the lease of session {} expired", holder);
+        }
+        holder = session;
+        leaseEnd = System.currentTimeMillis() + leaseMillis;
+    }
+
+    private synchronized void check(final int session) throws RemoteException {
+        if (holder != session) {
+            throw new RemoteException("session " + session + " does not hold the service");
+        }
+    }
+
+    @Override
+    public int setupNewTrial(final int session, final boolean incrementId)
+            throws RemoteException {
+        if (incrementId) {
+            acquire(session);
+        } else {
+            check(session);
+        }
+        synchronized (mutex) {
+            stats.drainEvents();
+            fiServer.setupNewTrial(incrementId);
+            // the agents left over by a session that lost its lease must not reach this trial
+            asServer.fence(fiServer.getTrialId());
+            LOG.info("session {} runs trial {}", session, fiServer.getTrialId());
+            return fiServer.getTrialId();
+        }
+    }
+
+    @Override
+    public void prepareServer(final int session, final int serverId) throws RemoteException {
+        check(session);
+        asServer.createAsmManagerForServer(serverId, true);
+    }
+
+    @Override
+    public void setReady(final int session) throws RemoteException {
+        check(session);
+        fiServer.setReady();
+    }
+
+    @Override
+    public void setRole(final int session, final int serverId, final String role)
+            throws RemoteException {
+        check(session);
+        fiServer.setRole(serverId, role);
+    }
+
+    @Override
+    public void reportOutcome(final int session, final TrialOutcome outcome)
+            throws RemoteException {
+        check(session);
+        fiServer.onTrialOutcome(outcome);
+    }
+
+    @Override
+    public List<Event> drainEvents(final int session) throws RemoteException {
+        check(session);
+        return stats.drainEvents();
+    }
+
+    @Override
+    public void trialStopped(final int session) throws RemoteException {
+        check(session);
+        fiServer.onTrialStopped();
+    }
+
+    @Override
+    public void trialCompleted(final int session) throws RemoteException {
+        check(session);
+        fiServer.checkpoint();
+        synchronized (this) {
+            release();
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        super.shutdown();
+        fiServer.shutdown();
+        asServer.shutdown();
+    }
+}
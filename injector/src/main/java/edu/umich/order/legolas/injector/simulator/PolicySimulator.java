@@ -0,0 +1,276 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.injector.simulator;
+
+import edu.umich.order.legolas.common.api.FaultInjectorRemote.InjectionRemoteCommand;
+import edu.umich.order.legolas.common.event.ThreadInjectionRequest;
+import edu.umich.order.legolas.common.fault.InjectionPolicy;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
+import edu.umich.order.legolas.common.record.TraceLoader;
+import edu.umich.order.legolas.common.record.TraceLoader.StateUpdate;
+import edu.umich.order.legolas.common.record.TraceLoader.Trace;
+import edu.umich.order.legolas.injector.controller.InjectionController;
+import edu.umich.order.legolas.injector.policy.PolicyFactory;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives an injection policy offline with the request and state update streams of recorded
+ * trials. Simulated trials replay the recorded traces round-robin, and the simulated time of a
+ * trial is the recorded duration of its trace plus a fixed restart overhead. Each trial ends with
+ * the recorded client outcome of its trace, as if the simulated injections had produced it.
+ */
+public final class PolicySimulator {
+    private static final Logger LOG = LoggerFactory.getLogger(PolicySimulator.class);
+
+    private final InjectionController controller;
+    private final List<Trace> traces;
+    private final long overheadNano;
+
+    private final Set<String> covered = new HashSet<>();
+    private long decisions = 0;
+    private long decisionNano = 0;
+    private long maxDecisionNano = 0;
+    private long injections = 0;
+    private long simulatedNano = 0;
+    // the end of the last trial with an injection, and of the last trial covering a new point
+    private int lastInjectedTrial = -1;
+    private long lastInjectedNano = 0;
+    private long lastCoveredNano = 0;
+
+    public PolicySimulator(final InjectionPolicy policy, final List<Trace> traces,
+            final double overheadSeconds) {
+        this.controller = new InjectionController(policy);
+        this.traces = traces;
+        this.overheadNano = (long) (overheadSeconds * 1e9);
+    }
+
+    private static String getUid(final ThreadInjectionRequest request,
+            final InjectionRemoteCommand command) {
+        return request.serverId + "," + request.stateMachineName + "," + request.state.methodSig
+                + "," + request.state.id + "," + request.op + ","
+                + (command.delay == 1 ? "delay" : String.valueOf(command.eid));
+    }
+
+    /**
+     * Replay the state updates that came before the request at the given index
+     *
+     * @return the index of the next state update to replay
+     */
+    private int replayStates(final Trace trace, int state, final int index) {
+        for (; state < trace.states.size() && trace.states.get(state).index <= index; state++) {
+            controller.onStateUpdate(trace.states.get(state).event);
+        }
+        return state;
+    }
+
+    /**
+     * @return the number of injections in this trial
+     */
+    private int runTrial(final Trace trace) {
+        controller.setupNewTrial(true);
+        int injected = 0;
+        boolean newCoverage = false;
+        final Set<Integer> injectedServers = new HashSet<>();
+        final List<ThreadInjectionRequest> requests = trace.requests;
+        int state = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            if (i == trace.readyIndex) {
+                controller.setReady();
+            }
+            state = replayStates(trace, state, i);
+            final ThreadInjectionRequest request = requests.get(i);
+            final long start = System.nanoTime();
+            final InjectionRemoteCommand command = controller.inject(request);
+            final long elapsed = System.nanoTime() - start;
+            decisions++;
+            decisionNano += elapsed;
+            maxDecisionNano = Math.max(maxDecisionNano, elapsed);
+            if (command.id != -1) {
+                injected++;
+                injectedServers.add(request.serverId);
+                newCoverage |= covered.add(getUid(request, command));
+            }
+        }
+        replayStates(trace, state, Integer.MAX_VALUE);
+        if (trace.outcome != null) {
+            // the progress and the crashed servers are not recorded
+            controller.onTrialOutcome(new TrialOutcome(trace.outcome, 0, 0, injectedServers,
+                    Collections.emptySet(), false));
+        }
+        injections += injected;
+        simulatedNano += trace.durationNano + overheadNano;
+        if (injected > 0) {
+            lastInjectedTrial = controller.getTrialId();
+            lastInjectedNano = simulatedNano;
+        }
+        if (newCoverage) {
+            lastCoveredNano = simulatedNano;
+        }
+        return injected;
+    }
+
+    /**
+     * Simulate until the policy has not injected in idleTrials consecutive trials or maxTrials
+     * trials have been simulated.
+     *
+     * @return whether the policy exhausted its injection space
+     */
+    public boolean run(final int maxTrials, final int idleTrials, final BufferedWriter timeline)
+            throws IOException {
+        if (timeline != null) {
+            timeline.write("trial-id,trace-id,simulated-seconds,requests,injections,"
+                    + "distinct-uids,decision-ns\n");
+        }
+        int idle = 0;
+        for (int trial = 0; trial < maxTrials; trial++) {
+            final Trace trace = traces.get(trial % traces.size());
+            final long nano = decisionNano;
+            final int injected = runTrial(trace);
+            if (timeline != null) {
+                timeline.write(String.format("%d,%d,%.3f,%d,%d,%d,%d\n", trial, trace.trialId,
+                        simulatedNano / 1e9, trace.requests.size(), injected, covered.size(),
+                        decisionNano - nano));
+            }
+            idle = injected > 0 ? 0 : idle + 1;
+            if (idle >= idleTrials) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void printStats(final boolean exhausted) {
+        final int trials = controller.getTrialId() + 1;
+        System.out.printf("Simulated %d trials over %d recorded traces\n", trials, traces.size());
+        System.out.printf("|- decisions       : %d (%.1f ns mean, %.1f us max)\n", decisions,
+                decisions == 0 ? 0.0 : (double) decisionNano / decisions, maxDecisionNano / 1e3);
+        System.out.printf("|- throughput      : %.0f decisions/s\n",
+                decisionNano == 0 ? 0.0 : decisions * 1e9 / decisionNano);
+        System.out.printf("|- injections      : %d\n", injections);
+        System.out.printf("|- distinct uids   : %d (last new uid at %.1f s)\n", covered.size(),
+                lastCoveredNano / 1e9);
+        if (exhausted) {
+            System.out.printf("|- exhaustion      : after trial %d, %.1f s\n", lastInjectedTrial,
+                    lastInjectedNano / 1e9);
+        } else {
+            System.out.printf("|- exhaustion      : not reached, > %.1f s\n",
+                    simulatedNano / 1e9);
+        }
+    }
+
+    public static void main(final String[] args) {
+        final CommandLine cmd = parse(args);
+        final Properties properties = new Properties();
+        try {
+            properties.load(Files.newInputStream(Paths.get(cmd.getOptionValue("config"))));
+        } catch (final IOException e) {
+            throw new RuntimeException("Fail to load the config", e);
+        }
+        final List<Trace> traces;
+        try {
+            traces = TraceLoader.load(cmd.getOptionValue("experiment") + "/trials");
+        } catch (final IOException e) {
+            throw new RuntimeException("Fail to load the traces", e);
+        }
+        if (traces.isEmpty()) {
+            System.err.println("No injection requests recorded in the experiment");
+            System.exit(1);
+        }
+        // the state-op policies learn from the outcomes, which older recordings do not keep
+        final String name = properties.getProperty("injectionPolicy", "");
+        if (name.endsWith("StateOp") && !name.equals("NewStateOp")) {
+            for (final Trace trace : traces) {
+                if (trace.outcome == null) {
+                    System.err.println("Trial " + trace.trialId + " does not record its outcome,"
+                            + " which policy " + name + " learns from");
+                    System.exit(1);
+                }
+            }
+        }
+        final int maxTrials = Integer.parseInt(cmd.getOptionValue("number", "10000"));
+        final int idleTrials = cmd.hasOption("idle") ?
+                Integer.parseInt(cmd.getOptionValue("idle")) : traces.size();
+        final double overhead = Double.parseDouble(cmd.getOptionValue("overhead", "0"));
+
+        // the simulated requests do not carry the real locations, keep them out of saved profiles
+        properties.setProperty("exhaustiveProfile", "off");
+        final InjectionPolicy policy = PolicyFactory.createPolicy(properties);
+        LOG.info("simulating policy {}", policy.getClass().getSimpleName());
+        final PolicySimulator simulator = new PolicySimulator(policy, traces, overhead);
+        final boolean exhausted;
+        try {
+            if (cmd.hasOption("output")) {
+                try (final BufferedWriter timeline = new BufferedWriter(
+                        new FileWriter(cmd.getOptionValue("output")))) {
+                    exhausted = simulator.run(maxTrials, idleTrials, timeline);
+                }
+            } else {
+                exhausted = simulator.run(maxTrials, idleTrials, null);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        simulator.printStats(exhausted);
+    }
+
+    private static CommandLine parse(final String[] args) {
+        final Options options = new Options();
+
+        options.addRequiredOption("c", "config", true, "the injector properties (injectionPolicy, etc.)");
+        options.addRequiredOption("e", "experiment", true, "the directory of the recorded experiment");
+
+        options.addOption("n", "number", true, "max number of simulated trials (default 10000)");
+        options.addOption(null, "idle", true,
+                "trials without injection before the policy is exhausted (default # of traces)");
+        options.addOption(null, "overhead", true, "seconds to restart the targets per trial (default 0)");
+        options.addOption("o", "output", true, "the csv file for the per-trial coverage timeline");
+        options.addOption("h", "help", false, "print help message");
+
+        HelpFormatter help = new HelpFormatter();
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+            if (cmd.hasOption("help")) {
+                help.printHelp("PolicySimulator", options);
+                System.exit(0);
+            }
+            return cmd;
+        } catch (org.apache.commons.cli.ParseException e) {
+            help.printHelp("PolicySimulator", options);
+            throw new RuntimeException("Fail to parse the args:", e);
+        }
+    }
+}
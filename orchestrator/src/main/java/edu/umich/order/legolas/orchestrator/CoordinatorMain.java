@@ -0,0 +1,72 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project  
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.orchestrator;
+
+import edu.umich.order.legolas.common.api.CoordinatorRemote;
+import edu.umich.order.legolas.common.api.RegistryFactory;
+import edu.umich.order.legolas.injector.server.CoordinatorServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.rmi.RemoteException;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry of the coordinator of a sharded exploration. The workers are ordinary orchestrators whose
+ * configuration sets coordinatorPort, each with its own workspace, rmiPort and ensemble ports.
+ */
+public class CoordinatorMain {
+    private static final Logger LOG = LoggerFactory.getLogger(CoordinatorMain.class);
+
+    public static void main(String[] args) {
+        String configFile = args[0];
+        final Properties properties = new Properties();
+        try {
+            properties.load(Files.newInputStream(Paths.get(configFile)));
+        } catch (IOException e) {
+            LOG.error("Failed to load configuration file {}", configFile);
+            System.exit(1);
+        }
+        LOG.info("Bootstrapping Legolas coordinator");
+        final int port = Integer.parseInt(properties.getProperty("coordinatorPort",
+                String.valueOf(CoordinatorRemote.REMOTE_PORT)));
+        CoordinatorServer server = null;
+        try {
+            server = new CoordinatorServer(properties, port,
+                    RegistryFactory.getRegistry(port, true), false);
+            server.start();
+            server.awaitCompletion();
+        } catch (RemoteException ex) {
+            LOG.error("Failed to initialize the coordinator", ex);
+        } catch (InterruptedException ex) {
+            LOG.warn("Interrupted while waiting for the workers");
+        } catch (Exception ex) {
+            LOG.error("Failed to start the coordinator", ex);
+        } finally {
+            if (server != null) {
+                server.shutdown();
+            }
+        }
+        LOG.info("Legolas coordinator ends");
+    }
+}
@@ -20,6 +20,7 @@
  */
 package edu.umich.order.legolas.orchestrator;
 
+import edu.umich.order.legolas.common.fault.TrialOutcome;
 import edu.umich.order.legolas.orchestrator.instance.cassandra.CassandraOrchestrator;
 import edu.umich.order.legolas.orchestrator.instance.flink.FlinkOrchestrator;
 import edu.umich.order.legolas.orchestrator.instance.hadoop.HadoopOrchestrator;
@@ -27,18 +28,30 @@ import edu.umich.order.legolas.orchestrator.instance.hbase.HBaseOrchestrator;
 import edu.umich.order.legolas.orchestrator.instance.kafka.KafkaOrchestrator;
 import edu.umich.order.legolas.orchestrator.system.ServerNode;
 import edu.umich.order.legolas.orchestrator.server.MegaServer;
+import edu.umich.order.legolas.orchestrator.workload.ClientHost;
 import edu.umich.order.legolas.orchestrator.workload.Workload;
 import edu.umich.order.legolas.orchestrator.instance.zookeeper.ZooKeeperOrchestrator;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 import java.util.Collection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -64,7 +77,7 @@ public abstract class Orchestrator implements AutoCloseable {
 
     public final boolean runNextWorkload(final long endTime) throws Exception {
         final Workload workload = workloads.get(progress);
-        megaServer.setWorkload(workload);
+        megaServer.setWorkload(workload, progress);
         workload.run(endTime);
         progress++;
         return workload.isFinished();
@@ -76,6 +89,54 @@ public abstract class Orchestrator implements AutoCloseable {
         }
     }
 
+    /**
+     * @return the outcomes of the workloads separated by slashes, with - for the ones not run
+     */
+    public final String getOutcome() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < workloads.size(); i++) {
+            if (i > 0) {
+                builder.append('/');
+            }
+            builder.append(i < progress ? workloads.get(i).getOutcome() : "-");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Summarize the trial for the injection policy. Invoked before the ensemble is shut down, so
+     * that the crashed server nodes can be told apart.
+     */
+    public final TrialOutcome getTrialOutcome() {
+        int done = 0;
+        int expected = 0;
+        for (final Workload workload : workloads) {
+            done += workload.getProgress();
+            expected += workload.getExpected();
+        }
+        final Set<Integer> injected = new TreeSet<>();
+        final Set<Integer> crashed = new TreeSet<>();
+        final Collection<Integer> ids = getServerNodeIds();
+        if (ids != null) {
+            for (final int id : ids) {
+                final ServerNode node = getServerNodeById(id);
+                if (node == null) {
+                    continue;
+                }
+                if (node.isInjected()) {
+                    injected.add(id);
+                }
+                if (node.isCrashed()) {
+                    crashed.add(id);
+                }
+            }
+        }
+        final TrialOutcome outcome = new TrialOutcome(getOutcome(), done, expected, injected,
+                crashed, hasNextWorkload());
+        LOG.info("trial {} outcome: {}", trialId, outcome);
+        return outcome;
+    }
+
     public final int trialId;
     public final String workspacePathName;
     public final String targetSystemPathName;
@@ -87,6 +148,20 @@ public abstract class Orchestrator implements AutoCloseable {
     public final int warmupMillis;
     public final boolean useLogMonitor;
     public final boolean waitActiveEnsemble;
+    public final boolean parallelStartup;
+    public final boolean waitReady;
+    public final boolean useDriverHost;
+    // how long a killed client has to return in the driver host before the host is killed
+    public final long driverHostKillGraceMillis;
+    public final String readyProbeHost;
+    // the live role detection of the server nodes, see ServerNode.getRoleLogPattern()
+    public final String roleLogPattern;
+    public final Pattern rolePattern;
+    public final int roleGroup;
+    // the deadline of the injection queries of the agents, 0 to wait for the answers
+    public final long queryDeadlineMicros;
+    public final String lateDecision;
+    private final Map<Integer, Integer> readyProbePorts = new HashMap<>();
 
     public Orchestrator(final MegaServer megaServer, final Properties properties) throws Exception {
         this.megaServer = megaServer;
@@ -125,12 +200,103 @@ public abstract class Orchestrator implements AutoCloseable {
             properties.getProperty("useLogMonitor", "true"));
         waitActiveEnsemble = Boolean.parseBoolean(
             properties.getProperty("waitActiveEnsemble", "false"));
+        parallelStartup = Boolean.parseBoolean(
+            properties.getProperty("parallelStartup", "true"));
+        waitReady = Boolean.parseBoolean(
+            properties.getProperty("waitReady", "true"));
+        readyProbeHost = properties.getProperty("readyProbeHost", "localhost");
+        roleLogPattern = properties.getProperty("roleLogPattern");
+        final String roleRegex = properties.getProperty("roleRegex");
+        rolePattern = roleRegex == null ? null : Pattern.compile(roleRegex);
+        roleGroup = Integer.parseInt(properties.getProperty("roleGroup", "1"));
+        queryDeadlineMicros = Long.parseLong(properties.getProperty("queryDeadlineMicros", "0"));
+        lateDecision = properties.getProperty("lateDecision", "drop");
+        useDriverHost = Boolean.parseBoolean(
+            properties.getProperty("driverHost", "false"));
+        driverHostKillGraceMillis = Long.parseLong(
+            properties.getProperty("driverHostKillGraceMillis", "5000"));
+        for (final String key : properties.stringPropertyNames()) {
+            if (key.startsWith("readyProbePort.")) {
+                readyProbePorts.put(Integer.parseInt(key.substring("readyProbePort.".length())),
+                        Integer.parseInt(properties.getProperty(key)));
+            }
+        }
+    }
+
+    public final int getRmiPort() {
+        return megaServer.getRmiPort();
+    }
+
+    /**
+     * @return the driver host running the clients of this trial, launched on first use
+     */
+    public final ClientHost getClientHost() throws Exception {
+        return megaServer.getClientHost(workspacePathName, getTrialDir());
+    }
+
+    /**
+     * @param serverId
+     * @return the port probed to detect the readiness of a server node, or -1 if there is none
+     */
+    public final int getReadyProbePort(final int serverId) {
+        return readyProbePorts.getOrDefault(serverId, -1);
     }
 
     public abstract void startEnsemble(long endTime) throws Exception;
+
+    /**
+     * Prepare the data of and start the given server nodes, concurrently if parallelStartup is
+     * set. Every node that started successfully is put into the started map, even if some other
+     * node fails, so that it can be shut down later.
+     */
+    protected final <T extends ServerNode> void startServerNodes(final Collection<T> nodes,
+            final Map<Integer, T> started) throws Exception {
+        if (!parallelStartup || nodes.size() <= 1) {
+            for (final T node : nodes) {
+                node.preparePersistentData();
+                node.start();
+                started.put(node.serverId, node);
+            }
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(nodes.size());
+        try {
+            final Map<T, Future<?>> futures = new LinkedHashMap<>();
+            for (final T node : nodes) {
+                futures.put(node, executor.submit(() -> {
+                    node.preparePersistentData();
+                    node.start();
+                    return null;
+                }));
+            }
+            Exception failure = null;
+            for (final Map.Entry<T, Future<?>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().get();
+                    started.put(entry.getKey().serverId, entry.getKey());
+                } catch (final ExecutionException e) {
+                    LOG.warn("Fail to start server node {}", entry.getKey().serverId, e.getCause());
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
     public abstract Collection<Integer> getServerNodeIds();
     public abstract ServerNode getServerNodeById(int id);
 
+    /**
+     * Wait until the given servers (all of them if null) are active, for at most until endTime.
+     *
+     * @return false if the time limit is already exceeded or the wait is interrupted; a timeout
+     * is only logged, and still returns true as the nodes that are not active yet may catch up
+     */
     public boolean waitForServersActive(Collection<Integer> waitIds, long endTime) {
         final long now = System.currentTimeMillis();
         if (now >= endTime) {
@@ -138,49 +304,22 @@ public abstract class Orchestrator implements AutoCloseable {
             // already exceeded the timeout
             return false;
         }
-        final long waitTime = endTime - now;
-        final CountDownLatch allActive = new CountDownLatch(1);
         if (waitIds == null) {
             waitIds = getServerNodeIds(); // wait for all servers if none is specified
             if (waitIds == null)
                 return false;
         }
-        final boolean active[] = new boolean[waitIds.size()];
-        final int ids[] = new int[waitIds.size()];
-        int index = 0;
+        final List<ServerNode> nodes = new ArrayList<>();
         for (int id : waitIds) {
-            active[index] = false;
-            ids[index] = id;
-            index++;
-        }
-        final Thread ensembleWaiter = new Thread(() -> {
-            int cnt = active.length;
-            while (System.currentTimeMillis() < endTime && cnt > 0) {
-                int i = 0;
-                for (int id : ids) {
-                    if (!active[i]) {
-                        final ServerNode node = getServerNodeById(id);
-                        if (node == null) {
-                            active[i] = true; // forget about this node
-                            continue;
-                        }
-                        active[i] = node.waitActive(10);
-                        if (active[i]) {
-                            LOG.info("Node {} is now active", id);
-                            cnt--;
-                        }
-                    }
-                    i++;
-                }
+            final ServerNode node = getServerNodeById(id);
+            if (node != null) { // otherwise forget about this node
+                nodes.add(node);
             }
-            if (cnt > 0) {
+        }
+        try {
+            if (!awaitReady(nodes, nodes.size(), endTime - now)) {
                 LOG.warn("Not all nodes are active");
             }
-            allActive.countDown();
-        });
-        ensembleWaiter.start();
-        try {
-            allActive.await(waitTime, TimeUnit.MILLISECONDS);
             return true;
         } catch (InterruptedException e) {
             LOG.warn("Interrupted waiting for ensemble to become active", e);
@@ -188,9 +327,38 @@ public abstract class Orchestrator implements AutoCloseable {
         }
     }
 
+    /**
+     * Wait until a quorum of the given nodes is ready, for at most warmupMillis (and never past
+     * the endTime). Sleeps for the whole warmupMillis when waitReady is disabled.
+     *
+     * @return whether the quorum is ready
+     */
+    protected final boolean warmup(final Collection<? extends ServerNode> nodes, final int quorum,
+            final long endTime) throws InterruptedException {
+        if (!waitReady) {
+            Thread.sleep(warmupMillis);
+            return true;
+        }
+        final long timeout = Math.min(warmupMillis, endTime - System.currentTimeMillis());
+        final long begin = System.nanoTime();
+        final boolean ready = awaitReady(nodes, quorum, timeout);
+        final long elapsed = (System.nanoTime() - begin) / 1_000_000;
+        if (ready) {
+            LOG.info("{} of {} nodes are ready after {} ms", quorum, nodes.size(), elapsed);
+        } else {
+            LOG.warn("Fewer than {} of {} nodes are ready after {} ms", quorum, nodes.size(), elapsed);
+        }
+        return ready;
+    }
 
-
-
+    private static boolean awaitReady(final Collection<? extends ServerNode> nodes,
+            final int quorum, final long timeoutMS) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(quorum);
+        for (final ServerNode node : nodes) {
+            node.getReadyFuture().thenRun(latch::countDown);
+        }
+        return latch.await(Math.max(timeoutMS, 0), TimeUnit.MILLISECONDS);
+    }
 
     public final String getTrialDir() {
         return workspacePathName + "/trials/" + trialId;
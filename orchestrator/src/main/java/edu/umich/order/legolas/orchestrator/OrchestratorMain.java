@@ -20,6 +20,7 @@
  */
 package edu.umich.order.legolas.orchestrator;
 
+import edu.umich.order.legolas.common.fault.TrialOutcome;
 import edu.umich.order.legolas.orchestrator.server.MegaServer;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -72,37 +73,52 @@ public class OrchestratorMain {
                     LOG.info("starting trial {}{}", trialId, retryStr);
                     final long endTime = System.currentTimeMillis() + trialTimeout;
                     megaServer.initStats();
+                    // the outcome of the trial if it throws, taken while the ensemble is still up
+                    TrialOutcome failedOutcome = null;
                     try (final Orchestrator orch = Orchestrator.buildOrchestrator(megaServer,
                             properties)) {
-                        orch.startEnsemble(endTime);
-                        while (orch.hasNextWorkload() && System.currentTimeMillis() < endTime) {
-                            if (!orch.runNextWorkload(endTime)) {
-                                // not finish this workload
-                                break;
+                        try {
+                            orch.startEnsemble(endTime);
+                            while (orch.hasNextWorkload() && System.currentTimeMillis() < endTime) {
+                                if (!orch.runNextWorkload(endTime)) {
+                                    // not finish this workload
+                                    break;
+                                }
                             }
+                        } catch (Exception e) {
+                            failedOutcome = orch.getTrialOutcome();
+                            throw e;
                         }
                         orch.reportResult();
+                        megaServer.reportOutcome(orch.getTrialOutcome());
                     } catch (Exception e) {
                         LOG.error("Exception start orchestrator server in trial {}", trialId, e);
-                        megaServer.onTrialStopped(); // still call on trial stopped to clean up file resources
+                        boolean retry = false;
                         if (stopOnFail) {
                             stop = true;
-                            break;
-                        }
-                        retries++;
-                        if (failTrialRetries == 0 || (failTrialRetries > 0 && retries > failTrialRetries)) {
-                            LOG.error("failed trial {} after {} retries", trialId, retries - 1);
-                            break;
+                        } else {
+                            retries++;
+                            if (failTrialRetries == 0 || (failTrialRetries > 0 && retries > failTrialRetries)) {
+                                LOG.error("failed trial {} after {} retries", trialId, retries - 1);
+                            } else {
+                                totalRetries++;
+                                if (maxTotalRetries == 0 || (maxTotalRetries > 0 && totalRetries > maxTotalRetries)) {
+                                    LOG.error("failed trial {} after {} retries", trialId, retries - 1);
+                                    LOG.error("Too many ({}) experiment retries. Stopping experiment..",
+                                            totalRetries - 1);
+                                    stop = true;
+                                } else {
+                                    retry = true;
+                                }
+                            }
                         }
-                        totalRetries++;
-                        if (maxTotalRetries == 0 || (maxTotalRetries > 0 && totalRetries > maxTotalRetries)) {
-                            LOG.error("failed trial {} after {} retries", trialId, retries - 1);
-                            LOG.error("Too many ({}) experiment retries. Stopping experiment..",
-                                    totalRetries - 1);
-                            stop = true;
-                            break;
+                        // the policy learns from the failure unless the trial is tried again
+                        reportFailedOutcome(megaServer, failedOutcome, !retry);
+                        megaServer.onTrialStopped(); // still call on trial stopped to clean up file resources
+                        if (retry) {
+                            continue;
                         }
-                        continue;
+                        break;
                     }
                     megaServer.dumpStats(properties);
                     megaServer.onTrialStopped();
@@ -112,10 +128,23 @@ public class OrchestratorMain {
                     }
                     break;
                 }
+                if (!stop) {
+                    megaServer.onTrialCompleted();
+                }
             }
         } catch (RemoteException ex) {
             LOG.error("Failed to initialize servers", ex);
         }
         LOG.info("Legolas orchestrator server ends");
     }
+
+    private static void reportFailedOutcome(final MegaServer megaServer,
+            final TrialOutcome outcome, final boolean counted) {
+        try {
+            megaServer.reportOutcome(outcome == null ?
+                    TrialOutcome.aborted(counted) : outcome.abort(counted));
+        } catch (final RuntimeException e) {
+            LOG.error("Failed to report the outcome of the failed trial", e);
+        }
+    }
 }
@@ -58,7 +58,7 @@ public final class CassandraOrchestrator extends Orchestrator {
         if (waitActiveEnsemble) {
             waitForServersActive(null, endTime);
         } else {
-            Thread.sleep(this.warmupMillis);
+            warmup(nodes.values(), nodes.size(), endTime);
         }
     }
 
@@ -58,7 +58,8 @@ public final class CassandraServerNode extends ServerNode {
     }
 
     protected LogMonitor getLogMonitor() throws Exception {
-        return new LogMonitor(this) {
+        return new LogMonitor(this, " - Startup complete",
+                "Startup completed!", "Not starting RPC server as requested.") {
             @Override
             protected void handle(String line) {
                 boolean active = false;
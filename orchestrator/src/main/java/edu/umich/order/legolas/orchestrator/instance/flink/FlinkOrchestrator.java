@@ -68,7 +68,10 @@ public final class FlinkOrchestrator extends Orchestrator {
             tms.put(id, tm);
             nodeIds.add(id);
         }
-        Thread.sleep(this.warmupMillis);
+        final List<ServerNode> ensemble = new ArrayList<>();
+        ensemble.add(jm);
+        ensemble.addAll(tms.values());
+        warmup(ensemble, ensemble.size(), endTime);
     }
 
     @Override
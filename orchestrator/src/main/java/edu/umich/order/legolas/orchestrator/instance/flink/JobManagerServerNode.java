@@ -75,16 +75,13 @@ public final class JobManagerServerNode extends ServerNode {
     @Override
     public final synchronized void start() throws Exception {
         new File(getLogDirPathName()).mkdirs();
-        final ProcessBuilder pb = new ProcessBuilder();
-        pb.command("bash", orchestrator.workspacePathName + "/server.sh",
-                String.valueOf(trialId), String.valueOf(serverId), String.valueOf(instanceId));
-        pb.redirectErrorStream(true);
-        megaServer.prepareNodeStart(serverId);
+        final ProcessBuilder pb = getServerProcessBuilder();
+        prepareStart();
         pb.start();
         logMonitor = getLogMonitor();
         logMonitor.start();
         latch.await(5, TimeUnit.SECONDS);
-        pid = megaServer.getRecentPid();
+        pid = megaServer.waitForPid(serverId);
         if (pid == -1) {
             throw new Exception("Fail to receive PID from ServerNode "
                 + serverId + ". This may happen because the target is not instrumented..");
@@ -121,8 +118,13 @@ public final class JobManagerServerNode extends ServerNode {
         super.shutdown();
     }
 
+    @Override
+    protected String getReadyLogPattern() {
+        return "Rest endpoint listening at";
+    }
+
     protected LogMonitor getLogMonitor() throws Exception {
-        return new LogMonitor(this) {
+        return new LogMonitor(this, "----------") {
             @Override
             protected void handle(String line) {
                 if (line.contains("----------")) {
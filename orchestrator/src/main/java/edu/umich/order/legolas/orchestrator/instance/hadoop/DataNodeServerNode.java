@@ -52,6 +52,11 @@ public final class DataNodeServerNode extends ServerNode {
         return logFileName;
     }
 
+    @Override
+    protected String getReadyLogPattern() {
+        return "successfully registered with NN";
+    }
+
     protected LogMonitor getLogMonitor() throws Exception {
         return new LogMonitor(this) {
             @Override
@@ -59,7 +59,10 @@ public final class HadoopOrchestrator extends Orchestrator {
             datanodes.put(id, datanode);
             nodeIds.add(id);
         }
-        Thread.sleep(this.warmupMillis);
+        final List<ServerNode> ensemble = new ArrayList<>();
+        ensemble.add(namenode);
+        ensemble.addAll(datanodes.values());
+        warmup(ensemble, ensemble.size(), endTime);
         megaServer.setReady();
     }
 
@@ -53,6 +53,11 @@ public final class NameNodeServerNode extends ServerNode {
         return logFileName;
     }
 
+    @Override
+    protected String getReadyLogPattern() {
+        return "NameNode RPC up at";
+    }
+
     protected LogMonitor getLogMonitor() throws Exception {
         return new LogMonitor(this) {
             @Override
@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Properties;
 import java.util.TreeMap;
 import java.util.Collection;
+import java.util.Collections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,13 +63,16 @@ public final class HBaseOrchestrator extends Orchestrator {
         master.start();
         this.master = master;
         nodeIds.add(1);
-        Thread.sleep(this.warmupMillis);
+        warmup(Collections.singletonList(master), 1, endTime);
+        // the region servers only depend on the master, so they can be started together
+        final List<HRSServerNode> ensemble = new ArrayList<>();
         for (int id = 2; id <= 3; id++) {
-            final HRSServerNode regionServer = new HRSServerNode(megaServer, this, trialId, id, id);
-            regionServer.preparePersistentData();
-            regionServer.start();
-            regionServers.put(id, regionServer);
-            nodeIds.add(id);
+            ensemble.add(new HRSServerNode(megaServer, this, trialId, id, id));
+        }
+        try {
+            startServerNodes(ensemble, regionServers);
+        } finally {
+            nodeIds.addAll(regionServers.keySet());
         }
     }
 
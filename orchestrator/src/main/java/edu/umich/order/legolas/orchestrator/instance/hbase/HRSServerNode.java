@@ -60,16 +60,13 @@ public final class HRSServerNode extends ServerNode {
     @Override
     public final synchronized void start() throws Exception {
         new File(getLogDirPathName()).mkdirs();
-        final ProcessBuilder pb = new ProcessBuilder();
-        pb.command("bash", orchestrator.workspacePathName + "/server.sh",
-                String.valueOf(trialId), String.valueOf(serverId), String.valueOf(instanceId));
-        pb.redirectErrorStream(true);
-        megaServer.prepareNodeStart(serverId);
+        final ProcessBuilder pb = getServerProcessBuilder();
+        prepareStart();
         pb.start();
         logMonitor = getLogMonitor();
         logMonitor.start();
         latch.await(5, TimeUnit.SECONDS);
-        pid = megaServer.getRecentPid();
+        pid = megaServer.waitForPid(serverId);
         LOG.info("Server node {} of instance id {} started with pid {}", serverId, instanceId, pid);
         started = true;
         setStatus("started");
@@ -99,9 +96,15 @@ public final class HRSServerNode extends ServerNode {
         return logFileName;
     }
 
+    @Override
+    protected String getReadyLogPattern() {
+        // logged once the region server has reported for duty to the master
+        return "Serving as ";
+    }
+
     @Override
     protected LogMonitor getLogMonitor() throws Exception {
-        return new LogMonitor(this) {
+        return new LogMonitor(this, "STARTING executorService HRegionServer") {
             @Override
             protected void handle(String line) {
                 if (line.contains("STARTING executorService HRegionServer")) {
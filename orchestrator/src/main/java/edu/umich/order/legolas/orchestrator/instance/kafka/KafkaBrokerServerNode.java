@@ -47,16 +47,13 @@ public class KafkaBrokerServerNode extends ServerNode {
     @Override
     public final synchronized void start() throws Exception {
         new File(getLogDirPathName()).mkdirs();
-        final ProcessBuilder pb = new ProcessBuilder();
-        pb.command("bash", orchestrator.workspacePathName + "/server.sh",
-                String.valueOf(trialId), String.valueOf(serverId), String.valueOf(instanceId));
-        pb.redirectErrorStream(true);
-        megaServer.prepareNodeStart(serverId);
+        final ProcessBuilder pb = getServerProcessBuilder();
+        prepareStart();
         pb.start();
         logMonitor = getLogMonitor();
         logMonitor.start();
         latch.await(5, TimeUnit.SECONDS);
-        pid = megaServer.getRecentPid();
+        pid = megaServer.waitForPid(serverId);
         if (pid == -1) {
             throw new Exception("Fail to receive PID from ServerNode "
                 + serverId + ". This may happen because the target is not instrumented..");
@@ -91,9 +88,14 @@ public class KafkaBrokerServerNode extends ServerNode {
         return "kafkaServer.out";
     }
 
+    @Override
+    protected String getReadyLogPattern() {
+        return "started (kafka.server.KafkaServer)";
+    }
+
     @Override
     protected LogMonitor getLogMonitor() throws Exception {
-        return new LogMonitor(this) {
+        return new LogMonitor(this, "INFO Registered kafka:type=kafka.Log4jController MBean") {
             @Override
             protected void handle(String line) {
                 if (line.contains("INFO Registered kafka:type=kafka.Log4jController MBean")) {
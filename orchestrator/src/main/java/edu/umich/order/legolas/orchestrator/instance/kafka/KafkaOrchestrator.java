@@ -27,6 +27,8 @@ import edu.umich.order.legolas.orchestrator.instance.kafka.workload.CreateWorklo
 import edu.umich.order.legolas.orchestrator.server.MegaServer;
 import edu.umich.order.legolas.orchestrator.system.ServerNode;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
@@ -55,12 +57,13 @@ public final class KafkaOrchestrator extends Orchestrator {
         pb.redirectErrorStream(true);
         pb.start().waitFor();
         megaServer.setReady();
+        final List<KafkaBrokerServerNode> ensemble = new ArrayList<>();
         for (int id = 1; id <= 3; id++) {
-            final KafkaBrokerServerNode broker = new KafkaBrokerServerNode(megaServer, this, trialId, id, id);
-            broker.preparePersistentData();
-            broker.start();
-            brokers.put(id, broker);
+            ensemble.add(new KafkaBrokerServerNode(megaServer, this, trialId, id, id));
         }
+        startServerNodes(ensemble, brokers);
+        // the workloads connect to every broker
+        warmup(ensemble, ensemble.size(), endTime);
     }
 
     @Override
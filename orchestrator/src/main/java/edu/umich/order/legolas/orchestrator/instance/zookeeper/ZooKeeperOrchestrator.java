@@ -28,6 +28,8 @@ import edu.umich.order.legolas.orchestrator.instance.zookeeper.workload.ReadWrit
 import edu.umich.order.legolas.orchestrator.instance.zookeeper.workload.WatcherZNodeCreateWorkload;
 import edu.umich.order.legolas.orchestrator.instance.zookeeper.workload.WatcherZNodeReadWriteDeleteWorkload;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
@@ -46,13 +48,13 @@ public final class ZooKeeperOrchestrator extends Orchestrator {
     @Override
     public synchronized void startEnsemble(long endTime) throws Exception {
         megaServer.setReady();
+        final List<ZooKeeperServerNode> ensemble = new ArrayList<>();
         for (int id = 1; id <= 3; id++) {
-            final ZooKeeperServerNode node = new ZooKeeperServerNode(megaServer, this, trialId, id, id);
-            node.preparePersistentData();
-            node.start();
-            nodes.put(id, node);
+            ensemble.add(new ZooKeeperServerNode(megaServer, this, trialId, id, id));
         }
-        Thread.sleep(this.warmupMillis);
+        startServerNodes(ensemble, nodes);
+        // the workloads can start as soon as a majority has formed the quorum
+        warmup(ensemble, ensemble.size() / 2 + 1, endTime);
     }
 
     @Override
@@ -26,6 +26,8 @@ import edu.umich.order.legolas.orchestrator.system.LogMonitor;
 import edu.umich.order.legolas.orchestrator.system.ServerNode;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +38,10 @@ import org.slf4j.LoggerFactory;
 public final class ZooKeeperServerNode extends ServerNode {
     private static final Logger LOG = LoggerFactory.getLogger(ServerNode.class);
 
+    // e.g., "... - FOLLOWING - LEADER ELECTION TOOK - 57 MS", as in the reporter spec
+    private static final Pattern ROLE_PATTERN =
+            Pattern.compile(" - (FOLLOWING|LEADING|OBSERVING) - LEADER ELECTION TOOK");
+
     protected static String logFileName = null;
 
     protected final boolean isNewVersion;
@@ -81,6 +87,27 @@ public final class ZooKeeperServerNode extends ServerNode {
         return logFileName;
     }
 
+    /**
+     * The election line is logged before a follower syncs with the leader, so it does not tell
+     * that the node serves requests. The leader is ready once a quorum has acknowledged it, and a
+     * follower once it has received the UPTODATE message at the end of the sync.
+     */
+    @Override
+    protected String[] getReadyLogPatterns() {
+        return new String[] {"Have quorum of supporters", "Learner received UPTODATE message"};
+    }
+
+    @Override
+    protected String getRoleLogPattern() {
+        return "LEADER ELECTION TOOK";
+    }
+
+    @Override
+    protected String parseRole(final String line) {
+        final Matcher matcher = ROLE_PATTERN.matcher(line);
+        return matcher.find() ? matcher.group(1) : super.parseRole(line);
+    }
+
     protected LogMonitor getLogMonitor() throws Exception {
         return new LogMonitor(this) {
             @Override
@@ -20,18 +20,21 @@
  */
 package edu.umich.order.legolas.orchestrator.server;
 
-import edu.umich.order.legolas.common.api.AbstractStateServerRemote;
-import edu.umich.order.legolas.common.api.FaultInjectorRemote;
+import edu.umich.order.legolas.common.api.ClientStubFactory;
+import edu.umich.order.legolas.common.api.InjectorServiceRemote;
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
 import edu.umich.order.legolas.common.api.RegistryFactory;
 import edu.umich.order.legolas.common.asm.AbstractStateMachineManager;
 import edu.umich.order.legolas.common.event.ReadyEvent;
 import edu.umich.order.legolas.common.event.ShutdownEvent;
+import edu.umich.order.legolas.common.fault.TrialOutcome;
 import edu.umich.order.legolas.common.event.StartEvent;
+import edu.umich.order.legolas.common.record.LatencyStats;
 import edu.umich.order.legolas.common.record.OrchestratorStats;
 import edu.umich.order.legolas.common.server.AbstractStateServer;
 import edu.umich.order.legolas.common.util.Mutex;
 import edu.umich.order.legolas.injector.server.FaultInjectorServer;
+import edu.umich.order.legolas.orchestrator.workload.ClientHost;
 import edu.umich.order.legolas.orchestrator.workload.Workload;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -42,6 +45,8 @@ import java.rmi.registry.Registry;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.json.Json;
 import javax.json.JsonObjectBuilder;
 import org.slf4j.Logger;
@@ -54,25 +59,44 @@ public final class MegaServer implements AutoCloseable {
     private static final Logger LOG = LoggerFactory.getLogger(MegaServer.class);
 
     private final OrchestratorServer orchServer;
+    // null if the injection is decided by the standalone injector service
     private final FaultInjectorServer fiServer;
+    private final InjectorServiceRemote injector;
+    private final int injectorPort;
+    private final int session;
+    private int trialId = -1;
     private final AbstractStateServer asServer;
     private final OrchestratorStats stats = new OrchestratorStats();
+    private final LatencyStats latencyStats;
     private final Mutex mutex = new Mutex();
+    // ready hooks of the server nodes, triggered by LegolasAgent.sysReady in the target
+    private final ConcurrentMap<Integer, Runnable> readyCallbacks = new ConcurrentHashMap<>();
 
     private final boolean recordStates;
+    private final int rmiPort;
+
+    // the driver host of the current trial, if any
+    private ClientHost clientHost = null;
+    // the outcome reported for the current trial, null until then
+    private volatile TrialOutcome outcome = null;
+    private int clientHostCounter = 0;
 
     // Maps from ports to registry
     private final Map<Integer, Registry> registryMap = new HashMap<>();
 
     public MegaServer(final Properties properties,
             final int orch_port, final int fi_port, final int as_port) throws RemoteException {
+        this.rmiPort = orch_port;
         final String recordStates = properties.getProperty("recordStates");
         this.recordStates = recordStates != null && recordStates.equals("true");
         this.stats.recordStates = this.recordStates;
+        this.latencyStats = new LatencyStats(
+                Long.parseLong(properties.getProperty("latencyWindowMillis", "1000")));
         if (!registryMap.containsKey(orch_port)) {
             registryMap.put(orch_port, RegistryFactory.getRegistry(orch_port, true));
         }
-        orchServer = new OrchestratorServer(properties, mutex, orch_port, registryMap.get(orch_port), false);
+        orchServer = new OrchestratorServer(properties, latencyStats, mutex,
+                orch_port, registryMap.get(orch_port), false);
         if (!registryMap.containsKey(as_port)) {
             registryMap.put(as_port, RegistryFactory.getRegistry(as_port, true));
         }
@@ -81,39 +105,164 @@ public final class MegaServer implements AutoCloseable {
         if (!registryMap.containsKey(fi_port)) {
             registryMap.put(fi_port, RegistryFactory.getRegistry(fi_port, true));
         }
-        fiServer = new FaultInjectorServer(stats, asServer, properties, mutex,
-                fi_port, registryMap.get(fi_port), false);
+        injectorPort = Integer.parseInt(properties.getProperty("injectorPort", "-1"));
+        if (injectorPort > 0) {
+            injector = ClientStubFactory.getInjectorServiceStub(injectorPort);
+            if (injector == null) {
+                throw new RemoteException("Failed to reach the injector service at port "
+                        + injectorPort);
+            }
+            session = injector.connect(properties.getProperty("workspacePathName"));
+            fiServer = null;
+            LOG.info("connected to the injector service at port {} as session {}",
+                    injectorPort, session);
+        } else {
+            injector = null;
+            session = -1;
+            fiServer = new FaultInjectorServer(stats, asServer, properties, mutex,
+                    fi_port, registryMap.get(fi_port), false);
+        }
+        asServer.setReadyHandler(serverId -> {
+            final Runnable callback = readyCallbacks.get(serverId);
+            if (callback != null) {
+                callback.run();
+            }
+        });
     }
 
-    public void setWorkload(final Workload workload) {
-        orchServer.setWorkload(workload);
+    public void setWorkload(final Workload workload, final int phase) {
+        orchServer.setWorkload(workload, phase);
+    }
+
+    private interface InjectorCall<T> {
+        T call() throws RemoteException;
+    }
+
+    private <T> T callInjector(final InjectorCall<T> call) {
+        try {
+            return call.call();
+        } catch (final RemoteException e) {
+            throw new IllegalStateException("Failed to call the injector service", e);
+        }
+    }
+
+    /**
+     * @return the port of the standalone injector service, or -1 if the injector is embedded
+     */
+    public int getInjectorPort() {
+        return injectorPort;
     }
 
     public boolean hasNextTrial() {
+        if (injector != null) {
+            return callInjector(injector::hasNextTrial);
+        }
         return fiServer.hasNextTrial();
     }
 
     public void setupNewTrial(boolean incrementId) {
+        outcome = null;
+        if (injector != null) {
+            trialId = callInjector(() -> injector.setupNewTrial(session, incrementId));
+            return;
+        }
         fiServer.setupNewTrial(incrementId);
     }
 
+    /**
+     * Report the outcome of the trial to the injection controller
+     */
+    public void reportOutcome(final TrialOutcome outcome) {
+        this.outcome = outcome;
+        if (injector != null) {
+            callInjector(() -> {
+                injector.reportOutcome(session, outcome);
+                return null;
+            });
+            return;
+        }
+        fiServer.onTrialOutcome(outcome);
+    }
+
     /**
      * Invoked when a trial ends
      */
     public void onTrialStopped() {
-        fiServer.onTrialStopped();
+        if (injector != null) {
+            callInjector(() -> {
+                injector.trialStopped(session);
+                return null;
+            });
+        } else {
+            fiServer.onTrialStopped();
+        }
+        closeClientHost();
+    }
+
+    /**
+     * Invoked when a trial is done for good, i.e., it succeeds or runs out of retries
+     */
+    public void onTrialCompleted() {
+        if (injector != null) {
+            callInjector(() -> {
+                injector.trialCompleted(session);
+                return null;
+            });
+            return;
+        }
+        fiServer.checkpoint();
+    }
+
+    public synchronized ClientHost getClientHost(final String workspacePathName,
+            final String trialDir) throws Exception {
+        if (clientHost == null) {
+            final ClientHost host = new ClientHost(++clientHostCounter, trialDir);
+            orchServer.setClientHost(host);
+            host.start(workspacePathName, rmiPort);
+            clientHost = host;
+        }
+        return clientHost;
+    }
+
+    private synchronized void closeClientHost() {
+        if (clientHost != null) {
+            orchServer.setClientHost(null);
+            clientHost.shutdown();
+            clientHost = null;
+        }
     }
 
     public int getTrialId() {
-        return fiServer.getTrialId();
+        return injector != null ? trialId : fiServer.getTrialId();
     }
 
     public void setReady() {
         LOG.info("ready for injection");
         stats.record(new ReadyEvent(System.nanoTime()));
+        if (injector != null) {
+            callInjector(() -> {
+                injector.setReady(session);
+                return null;
+            });
+            return;
+        }
         fiServer.setReady();
     }
 
+    /**
+     * Publish the role of a server node detected from its log to the injection controller
+     */
+    public void setRole(final int serverId, final String role) {
+        if (injector != null) {
+            callInjector(() -> {
+                injector.setRole(session, serverId, role);
+                return null;
+            });
+            return;
+        }
+        fiServer.setRole(serverId, role);
+    }
+
     public void setStart(final int serverId) {
         stats.record(new StartEvent(System.nanoTime(), serverId));
     }
@@ -124,15 +273,25 @@ public final class MegaServer implements AutoCloseable {
 
     public void initStats() {
         orchServer.initStats(stats);
+        latencyStats.init();
     }
 
     public void dumpStats(final Properties properties) {
+        dumpLatencyStats(properties);
         if (!recordStates) {
             return;
         }
+        if (injector != null) {
+            // the states and the injections are recorded by the service on the same host
+            stats.merge(callInjector(() -> injector.drainEvents(session)));
+        }
         final JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
         jsonBuilder.add("target_system", properties.getProperty("targetSystem"));
         jsonBuilder.add("trial_id", getTrialId());
+        if (outcome != null) {
+            // the outcome to reproduce, see ReproducePolicy
+            jsonBuilder.add("outcome", outcome.clients);
+        }
         final String path = properties.getProperty("workspacePathName") + "/trials/" + getTrialId();
         try (final BufferedWriter csv = new BufferedWriter(new FileWriter(
                 new File(path + "/orch.csv")))) {
@@ -145,15 +304,46 @@ public final class MegaServer implements AutoCloseable {
         }
     }
 
+    /**
+     * The client latency histograms are written to latency.csv next to orch.csv, with the time
+     * windows relative to the first injection of the trial.
+     */
+    private void dumpLatencyStats(final Properties properties) {
+        if (latencyStats.isEmpty()) {
+            return;
+        }
+        final String path = properties.getProperty("workspacePathName") + "/trials/" + getTrialId();
+        try (final BufferedWriter csv = new BufferedWriter(new FileWriter(
+                new File(path + "/latency.csv")))) {
+            latencyStats.dump(csv, stats.getFirstInjectionNano());
+        } catch (final IOException e) {
+            LOG.warn("exception when dumping the latency stats", e);
+        }
+    }
+
+    /**
+     * All the servers share the registry at the rmiPort, which is passed to the target systems and
+     * the clients via {@link RegistryFactory#RMI_PORT_ENV}
+     */
     public MegaServer(final Properties properties) throws RemoteException {
-        this(properties, OrchestratorRemote.REMOTE_PORT, FaultInjectorRemote.REMOTE_PORT,
-                AbstractStateServerRemote.REMOTE_PORT);
+        this(properties, Integer.parseInt(properties.getProperty("rmiPort",
+                String.valueOf(OrchestratorRemote.REMOTE_PORT))));
+    }
+
+    private MegaServer(final Properties properties, final int rmiPort) throws RemoteException {
+        this(properties, rmiPort, rmiPort, rmiPort);
+    }
+
+    public int getRmiPort() {
+        return rmiPort;
     }
 
     public void start() throws RemoteException {
         try {
             asServer.start();
-            fiServer.start();
+            if (fiServer != null) {
+                fiServer.start();
+            }
             orchServer.start();
             LOG.info("Successfully started the mega server");
         } catch (Exception e) {
@@ -161,20 +351,36 @@ public final class MegaServer implements AutoCloseable {
         }
     }
 
-    public long getRecentPid() {
-        return orchServer.getRecentPid();
+    public long waitForPid(final int serverId) {
+        return orchServer.waitForPid(serverId, 10_000);
     }
 
-    public void prepareNodeStart(final int serverId) {
+    public void prepareNodeStart(final int serverId, final Runnable onReady) {
+        readyCallbacks.put(serverId, onReady);
         orchServer.prepareSid(serverId);
         // TODO: record this asmm
         final AbstractStateMachineManager newAsmm = asServer.createAsmManagerForServer(serverId, true);
+        if (injector != null) {
+            callInjector(() -> {
+                injector.prepareServer(session, serverId);
+                return null;
+            });
+        }
     }
 
     @Override
     public void close() {
+        closeClientHost();
         asServer.shutdown();
-        fiServer.shutdown();
+        if (injector != null) {
+            try {
+                injector.disconnect(session);
+            } catch (final RemoteException e) {
+                LOG.warn("Failed to disconnect from the injector service", e);
+            }
+        } else {
+            fiServer.shutdown();
+        }
         orchServer.shutdown();
     }
 }
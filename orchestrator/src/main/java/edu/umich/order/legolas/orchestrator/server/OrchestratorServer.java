@@ -22,16 +22,23 @@ package edu.umich.order.legolas.orchestrator.server;
 
 import edu.umich.order.legolas.common.api.OrchestratorRemote;
 import edu.umich.order.legolas.common.fault.ExceptionTableParser;
+import edu.umich.order.legolas.common.record.LatencyHistogram;
+import edu.umich.order.legolas.common.record.LatencyStats;
 import edu.umich.order.legolas.common.record.OrchestratorStats;
 import edu.umich.order.legolas.common.server.RmiServerBase;
 import edu.umich.order.legolas.common.util.Mutex;
+import edu.umich.order.legolas.orchestrator.workload.ClientHost;
 import edu.umich.order.legolas.orchestrator.workload.Workload;
 import java.rmi.RemoteException;
 import java.rmi.registry.Registry;
+import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,15 +48,29 @@ import org.slf4j.LoggerFactory;
 public class OrchestratorServer extends RmiServerBase implements OrchestratorRemote {
     private static final Logger LOG = LoggerFactory.getLogger(OrchestratorServer.class);
 
-    private final BlockingQueue<Long> signalQueue = new LinkedBlockingDeque<>();
+    /**
+     * Registration of one server node, completed when its agent registers
+     */
+    private static final class Registration {
+        private final CompletableFuture<Long> registered = new CompletableFuture<>();
+        // sometime a sid will be registered twice (e.g., in HBase HMaster), keep the latest pid
+        private volatile long pid = -1;
+    }
+
+    private final ConcurrentMap<Integer, Registration> registrations = new ConcurrentHashMap<>();
+    // only used by agents that do not carry a sid token
     private volatile int currentSid = -1;
     private final Mutex mutex;
     private final String[] exceptionNames;
-    private Workload workload = null;
+    private final LatencyStats latencyStats;
+    private volatile Workload workload = null;
+    private volatile int phase = -1;
+    private volatile ClientHost clientHost = null;
 
-    public OrchestratorServer(Properties properties, Mutex mutex,
+    public OrchestratorServer(Properties properties, LatencyStats latencyStats, Mutex mutex,
             int port, Registry registry, boolean tryCreateReg) throws RemoteException {
         super(OrchestratorRemote.REMOTE_NAME, port, "OrchestratorServer", registry, tryCreateReg);
+        this.latencyStats = latencyStats;
         this.mutex = mutex;
         final String exceptionTablePath = properties.getProperty("exceptionTableFilePath");
         this.exceptionNames = ExceptionTableParser.parse(exceptionTablePath);
@@ -61,24 +82,49 @@ public class OrchestratorServer extends RmiServerBase implements OrchestratorRem
 
     @Override
     public RegistryRemoteInfo register(long pid) throws RemoteException {
-        LOG.info("Received registration request from pid " + pid);
-        synchronized (signalQueue) {
-            signalQueue.clear();
-            signalQueue.add(pid);
-            final int result = currentSid;
-            // sometime currentSid will be used twice (e.g., in HBase HMaster)
-            // currentSid = -1;
-            return new RegistryRemoteInfo(result, exceptionNames);
+        LOG.info("Received registration request from pid " + pid + " without sid token");
+        return register(currentSid, pid);
+    }
+
+    @Override
+    public RegistryRemoteInfo register(int sid, long pid) throws RemoteException {
+        LOG.info("Received registration request from pid " + pid + " with sid " + sid);
+        final Registration registration = registrations.get(sid);
+        if (registration == null) {
+            LOG.warn("Received registration for unprepared sid " + sid);
+        } else {
+            registration.pid = pid;
+            registration.registered.complete(pid);
         }
+        return new RegistryRemoteInfo(sid, exceptionNames);
     }
 
-    public final void setWorkload(final Workload workload) {
+    public final void setWorkload(final Workload workload, final int phase) {
         this.workload = workload;
+        this.phase = phase;
+    }
+
+    /*
+     * Not synchronized, the progress of each client is kept in atomic counters
+     */
+    @Override
+    public final ClientFeedbackResponse send(final ClientFeedback feedback) throws RemoteException {
+        workload.proceed(feedback.clientId, 1, feedback.duration, feedback.duration);
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(feedback.duration);
+        latencyStats.record(phase, feedback.clientId, "request", histogram);
+        return new ClientFeedbackResponse(1);
     }
 
     @Override
-    public final synchronized ClientFeedbackResponse send(final ClientFeedback feedback) throws RemoteException {
-        workload.proceed(feedback.clientId);
+    public final ClientFeedbackResponse sendBatch(final ClientFeedbackBatch batch) throws RemoteException {
+        workload.proceed(batch.clientId, batch.count, batch.totalDuration, batch.maxDuration);
+        if (batch.latencies != null) {
+            final int phase = this.phase;
+            for (final Map.Entry<String, LatencyHistogram> entry : batch.latencies.entrySet()) {
+                latencyStats.record(phase, batch.clientId, entry.getKey(), entry.getValue());
+            }
+        }
         return new ClientFeedbackResponse(1);
     }
 
@@ -87,24 +133,54 @@ public class OrchestratorServer extends RmiServerBase implements OrchestratorRem
         return workload.registerClient(clientId, pid);
     }
 
+    public final void setClientHost(final ClientHost clientHost) {
+        this.clientHost = clientHost;
+    }
+
+    @Override
+    public DriverHostCommand pollDriverHost(final int hostId, final long pid,
+            final long timeoutMillis) throws RemoteException {
+        final ClientHost host = clientHost;
+        if (host == null || host.hostId != hostId) {
+            // a driver host left over from an earlier trial
+            return new DriverHostCommand(DriverHostCommand.EXIT, -1, null);
+        }
+        try {
+            return host.poll(pid, timeoutMillis);
+        } catch (final InterruptedException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void clientFinished(final int clientId) throws RemoteException {
+        final ClientHost host = clientHost;
+        if (host != null) {
+            host.onClientFinished(clientId);
+        }
+    }
+
     public void prepareSid(final int sid) {
+        registrations.put(sid, new Registration());
         currentSid = sid;
     }
 
     /**
-     * Get the most recent pid
+     * Wait for the process of a server node to register
      *
-     * @return
+     * @param sid
+     * @param timeoutMS
+     * @return the most recent pid registered under the sid, or -1 on timeout
      */
-    public long getRecentPid() {
+    public long waitForPid(final int sid, final long timeoutMS) {
+        final Registration registration = registrations.get(sid);
+        if (registration == null) {
+            return -1;
+        }
         try {
-            final Long result = signalQueue.poll(10, TimeUnit.SECONDS);
-            //final Long result = signalQueue.poll();
-            if (result == null) {
-                return -1;
-            }
-            return result;
-        } catch (final InterruptedException e) {
+            registration.registered.get(timeoutMS, TimeUnit.MILLISECONDS);
+            return registration.pid;
+        } catch (final InterruptedException | ExecutionException | TimeoutException e) {
             return -1;
         }
     }
@@ -0,0 +1,113 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.orchestrator.system;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over raw bytes, so that log lines can be matched against all the
+ * interesting patterns in a single pass without decoding them into strings first.
+ *
+ * Pattern i is reported as bit (1 << i) in the output mask of a state, so at most 64 patterns
+ * are supported by one matcher.
+ */
+public final class BytePatternMatcher {
+    private static final int ALPHABET = 256;
+
+    private final int[][] transitions; // state -> byte -> next state
+    private final long[] outputs; // state -> mask of patterns ending at this state
+
+    public BytePatternMatcher(final String... patterns) {
+        if (patterns.length > Long.SIZE) {
+            throw new IllegalArgumentException("too many patterns: " + patterns.length);
+        }
+        final List<int[]> gotos = new ArrayList<>();
+        final List<Long> masks = new ArrayList<>();
+        gotos.add(newState());
+        masks.add(0L);
+        for (int i = 0; i < patterns.length; i++) {
+            int state = 0;
+            for (final byte b : patterns[i].getBytes(StandardCharsets.UTF_8)) {
+                final int c = b & 0xff;
+                if (gotos.get(state)[c] == -1) {
+                    gotos.get(state)[c] = gotos.size();
+                    gotos.add(newState());
+                    masks.add(0L);
+                }
+                state = gotos.get(state)[c];
+            }
+            masks.set(state, masks.get(state) | (1L << i));
+        }
+        transitions = gotos.toArray(new int[0][]);
+        outputs = new long[masks.size()];
+        for (int s = 0; s < outputs.length; s++) {
+            outputs[s] = masks.get(s);
+        }
+        // breadth-first construction of the failure links, folded into the transition table
+        final int[] fail = new int[transitions.length];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            final int next = transitions[0][c];
+            if (next == -1) {
+                transitions[0][c] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+            outputs[state] |= outputs[fail[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                final int next = transitions[state][c];
+                if (next == -1) {
+                    transitions[state][c] = transitions[fail[state]][c];
+                } else {
+                    fail[next] = transitions[fail[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private static int[] newState() {
+        final int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    public int next(final int state, final byte b) {
+        return transitions[state][b & 0xff];
+    }
+
+    /**
+     * @param state
+     * @return the mask of patterns that end at this state
+     */
+    public long output(final int state) {
+        return outputs[state];
+    }
+}
@@ -20,78 +20,198 @@
  */
 package edu.umich.order.legolas.orchestrator.system;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- *
+ * Tails the log file of a server node. All the monitors are driven by the shared
+ * {@link LogReactor} thread, which reads the appended bytes and matches them against the
+ * patterns of the monitor before decoding anything. Only the lines containing one of the
+ * patterns given to the constructor are decoded and passed to {@link #handle(String)}, and only
+ * the lines containing the role pattern of the server node are decoded for its role.
  */
-public abstract class LogMonitor extends Thread {
+public abstract class LogMonitor {
     private static final Logger LOG = LoggerFactory.getLogger(LogMonitor.class);
 
     public static final String INJECTION_LOG_ENTRY = "LegolasAgent injecting";
 
+    private static final long INJECTION_MASK = 1L; // pattern 0 is always the injection entry
+
     protected final ServerNode serverNode;
 
-    private final File file;
+    private final Path path;
+    private final BytePatternMatcher matcher;
+    private final long handleMask;  // the patterns given to the constructor
+    private final long readyMask;   // the ready patterns of the server node, if any
+    private final long roleMask;    // the role pattern of the server node, if any
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    // the states below are only touched by the reactor thread
+    private FileChannel channel = null;
+    private long position = 0;      // file offset of the next byte to read
+    private long lineStart = 0;     // file offset of the first byte of the current line
+    private int matchState = 0;
+    private long lineMatches = 0;
 
-    public LogMonitor(final ServerNode serverNode) {
+    /**
+     * @param serverNode
+     * @param patterns the lines containing any of these patterns will be handled
+     */
+    public LogMonitor(final ServerNode serverNode, final String... patterns) {
         this.serverNode = serverNode;
-        final String pathName = serverNode.getLogFilePathName();
-        this.file = new File(pathName);
-        // timeout: 10s
-        for (int retries = 0; retries < 100; retries++) {
-            try {
-                if (file.exists()) {
-                    break;
-                }
-                Thread.sleep(100); // warm up for 100 to tolerate the late log file
-            } catch (InterruptedException ignored) {}
+        this.path = Paths.get(serverNode.getLogFilePathName());
+        final String[] readyPatterns = serverNode.getReadyLogPatterns();
+        final String rolePattern = serverNode.getRoleLogPattern();
+        final int count = patterns.length + 1 + readyPatterns.length
+                + (rolePattern == null ? 0 : 1);
+        final String[] allPatterns = new String[count];
+        allPatterns[0] = INJECTION_LOG_ENTRY;
+        System.arraycopy(patterns, 0, allPatterns, 1, patterns.length);
+        System.arraycopy(readyPatterns, 0, allPatterns, patterns.length + 1,
+                readyPatterns.length);
+        if (rolePattern != null) {
+            allPatterns[count - 1] = rolePattern;
         }
-        if (!file.exists()) {
-            LOG.error("Log file " + pathName + " does not exist");
+        this.matcher = new BytePatternMatcher(allPatterns);
+        this.handleMask = ((1L << patterns.length) - 1) << 1;
+        this.readyMask = ((1L << readyPatterns.length) - 1) << (patterns.length + 1);
+        this.roleMask = rolePattern == null ? 0 : 1L << (count - 1);
+    }
+
+    public final void start() {
+        if (started.compareAndSet(false, true)) {
+            LOG.info("LogMonitor for ServerNode {} started to watch {}",
+                serverNode.serverId, path);
+            LogReactor.getInstance().register(this);
         }
     }
 
     public final void shutdown() {
-        if (started.get()) {
-            started.set(false);
+        if (started.compareAndSet(true, false)) {
+            closed = true;
+            LogReactor.getInstance().unregister(this);
         }
     }
 
     abstract protected void handle(final String line);
 
-    @Override
-    public final void run() {
-        started.set(true);
-        LOG.info("LogMonitor for ServerNode {} started to watch {}",
-            serverNode.serverId, file);
-        try {
-            // wait for 3 more seconds if log file has not appeared yet
-            for (int retries = 0; retries < 30; retries++) {
-                if (file.exists())
-                    break;
-                Thread.sleep(100);
+    final Path getPath() {
+        return path;
+    }
+
+    final boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Read everything appended to the log file since the last call. Must only be invoked by the
+     * reactor thread.
+     *
+     * @param buffer scratch buffer owned by the reactor
+     * @throws IOException
+     */
+    final void drain(final ByteBuffer buffer) throws IOException {
+        if (channel == null) {
+            if (!Files.exists(path)) {
+                return; // the target has not created its log file yet
             }
-            final BufferedReader br = new BufferedReader(new FileReader(file));
-            while (started.get()) {
-                final String line = br.readLine();
-                if (line == null) {
-                    Thread.sleep(10); // TODO: make it configurable
-                } else {
-                    if (line.contains(INJECTION_LOG_ENTRY)) {
-                        serverNode.setInjected();
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        if (channel.size() < position) {
+            LOG.warn("Log file {} is truncated, reading from the beginning", path);
+            position = 0;
+            lineStart = 0;
+            matchState = 0;
+            lineMatches = 0;
+        }
+        while (!closed) {
+            buffer.clear();
+            final int n = channel.read(buffer, position);
+            if (n <= 0) {
+                return;
+            }
+            final long base = position;
+            for (int i = 0; i < n; i++) {
+                final byte b = buffer.get(i);
+                if (b == '\n') {
+                    if (lineMatches != 0) {
+                        dispatch(buffer, base, base + i);
                     }
-                    handle(line);
+                    matchState = 0;
+                    lineMatches = 0;
+                    lineStart = base + i + 1;
+                } else {
+                    matchState = matcher.next(matchState, b);
+                    lineMatches |= matcher.output(matchState);
                 }
             }
-        } catch (Exception e) {
-            LOG.error("Exception in the log monitor thread of server " + serverNode.serverId + " due to ", e);
+            position = base + n;
+        }
+    }
+
+    private void dispatch(final ByteBuffer buffer, final long base, final long end)
+            throws IOException {
+        if ((lineMatches & INJECTION_MASK) != 0) {
+            serverNode.setInjected();
+        }
+        if ((lineMatches & readyMask) != 0) {
+            serverNode.setActive(true);
+        }
+        if ((lineMatches & (handleMask | roleMask)) == 0 || closed) {
+            return;
+        }
+        final String line = decode(buffer, base, end);
+        if ((lineMatches & roleMask) != 0) {
+            serverNode.onRoleLogLine(line);
+        }
+        if ((lineMatches & handleMask) != 0) {
+            handle(line);
+        }
+    }
+
+    private String decode(final ByteBuffer buffer, final long base, final long end)
+            throws IOException {
+        final int length = (int) (end - lineStart);
+        final byte[] bytes = new byte[length];
+        if (lineStart >= base) {
+            // the whole line is still in the buffer
+            final ByteBuffer view = buffer.duplicate();
+            view.position((int) (lineStart - base));
+            view.get(bytes);
+        } else {
+            // the line started in an earlier read, fetch it again from the file
+            final ByteBuffer line = ByteBuffer.wrap(bytes);
+            while (line.hasRemaining()) {
+                if (channel.read(line, lineStart + line.position()) <= 0) {
+                    break;
+                }
+            }
+        }
+        int size = length;
+        if (size > 0 && bytes[size - 1] == '\r') {
+            size--;
+        }
+        return new String(bytes, 0, size, StandardCharsets.UTF_8);
+    }
+
+    final void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOG.warn("Failed to close the log file " + path, e);
+            }
+            channel = null;
         }
     }
 }
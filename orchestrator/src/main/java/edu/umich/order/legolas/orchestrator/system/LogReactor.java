@@ -0,0 +1,220 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.orchestrator.system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single thread that drives all the {@link LogMonitor}s. It waits for file system
+ * notifications (inotify on Linux) on the log directories and only reads the files that have
+ * changed, plus each file once when its monitor registers. Every few seconds it also reads all
+ * the files, as a fallback for the file systems that do not deliver notifications. The files are
+ * polled instead when the watch service or the watch of their directory is unavailable.
+ */
+public final class LogReactor implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(LogReactor.class);
+
+    // the wakeup interval, which is also the polling interval without notifications
+    private static final long POLL_MILLIS = 100;
+    // the interval of the full scan when there are notifications
+    private static final long SCAN_MILLIS = 5000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static LogReactor instance = null;
+
+    public static synchronized LogReactor getInstance() {
+        if (instance == null) {
+            instance = new LogReactor();
+            final Thread thread = new Thread(instance, "LogReactor");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    private final WatchService watcher;
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private final Map<Path, Set<LogMonitor>> monitors = new HashMap<>(); // dir -> monitors
+    private final Set<LogMonitor> all = new CopyOnWriteArraySet<>();
+    // the monitors whose directory is not watched, which are polled
+    private final Set<LogMonitor> unwatched = new CopyOnWriteArraySet<>();
+    private final ConcurrentLinkedQueue<LogMonitor> registered = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<LogMonitor> closing = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private LogReactor() {
+        WatchService service = null;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (final IOException e) {
+            LOG.warn("Failed to create the watch service, fall back to polling the log files", e);
+        }
+        watcher = service;
+    }
+
+    synchronized void register(final LogMonitor monitor) {
+        final Path dir = monitor.getPath().toAbsolutePath().getParent();
+        monitors.computeIfAbsent(dir, d -> new HashSet<>()).add(monitor);
+        all.add(monitor);
+        if (watcher != null && !keys.containsKey(dir)) {
+            try {
+                keys.put(dir, dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY));
+            } catch (final IOException e) {
+                LOG.warn("Failed to watch {}, the log files inside will only be polled", dir, e);
+            }
+        }
+        if (!keys.containsKey(dir)) {
+            unwatched.add(monitor);
+        }
+        // the content written before the watch is read once by the reactor thread
+        registered.add(monitor);
+    }
+
+    synchronized void unregister(final LogMonitor monitor) {
+        final Path dir = monitor.getPath().toAbsolutePath().getParent();
+        final Set<LogMonitor> set = monitors.get(dir);
+        if (set != null) {
+            set.remove(monitor);
+            if (set.isEmpty()) {
+                monitors.remove(dir);
+                final WatchKey key = keys.remove(dir);
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        }
+        all.remove(monitor);
+        unwatched.remove(monitor);
+        closing.add(monitor); // the file channel is owned and closed by the reactor thread
+    }
+
+    private synchronized Set<LogMonitor> getMonitors(final Path dir) {
+        final Set<LogMonitor> set = monitors.get(dir);
+        return set == null ? new HashSet<>() : new HashSet<>(set);
+    }
+
+    /*
+     * the watch of the directory is no longer valid, e.g., the directory was deleted
+     */
+    private synchronized void onUnwatched(final Path dir, final WatchKey key) {
+        if (keys.get(dir) == key) {
+            keys.remove(dir);
+            final Set<LogMonitor> set = monitors.get(dir);
+            if (set != null) {
+                unwatched.addAll(set);
+            }
+        }
+    }
+
+    private void drain(final LogMonitor monitor) {
+        if (monitor.isClosed()) {
+            return;
+        }
+        try {
+            monitor.drain(buffer);
+        } catch (final Exception e) {
+            LOG.error("Exception in the log monitor of server " + monitor.serverNode.serverId +
+                    " due to ", e);
+        }
+    }
+
+    private void handle(final WatchKey key) {
+        final Path dir = (Path) key.watchable();
+        final Set<Path> changed = new HashSet<>();
+        boolean overflow = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            onUnwatched(dir, key);
+        }
+        for (final LogMonitor monitor : getMonitors(dir)) {
+            if (overflow || changed.contains(monitor.getPath().toAbsolutePath())) {
+                drain(monitor);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        final long scanNanos = TimeUnit.MILLISECONDS.toNanos(SCAN_MILLIS);
+        long lastScan = System.nanoTime();
+        while (true) {
+            try {
+                LogMonitor monitor;
+                while ((monitor = closing.poll()) != null) {
+                    monitor.close();
+                }
+                while ((monitor = registered.poll()) != null) {
+                    drain(monitor);
+                }
+                if (watcher == null) {
+                    Thread.sleep(POLL_MILLIS);
+                    for (final LogMonitor m : all) {
+                        drain(m);
+                    }
+                    continue;
+                }
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handle(key);
+                    key = watcher.poll();
+                }
+                for (final LogMonitor m : unwatched) {
+                    drain(m);
+                }
+                final long now = System.nanoTime();
+                if (now - lastScan >= scanNanos) {
+                    lastScan = now;
+                    for (final LogMonitor m : all) {
+                        drain(m);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                LOG.warn("LogReactor is interrupted");
+                return;
+            } catch (final Exception e) {
+                LOG.error("Exception in the LogReactor thread", e);
+            }
+        }
+    }
+}
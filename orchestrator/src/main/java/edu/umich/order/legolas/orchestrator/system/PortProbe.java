@@ -0,0 +1,70 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.orchestrator.system;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Probes the ports of the server nodes from one shared daemon thread. A server node becomes
+ * ready as soon as its port accepts a connection.
+ */
+final class PortProbe {
+    private static final Logger LOG = LoggerFactory.getLogger(PortProbe.class);
+
+    private static final int PROBE_MILLIS = 100;
+
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "PortProbe");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private PortProbe() { }
+
+    /**
+     * Keep probing the port until the task is cancelled, which the server node does once it is
+     * ready or shut down.
+     */
+    static ScheduledFuture<?> schedule(final ServerNode serverNode, final String host,
+            final int port) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            if (serverNode.isActive()) {
+                return;
+            }
+            try (final Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), PROBE_MILLIS);
+            } catch (final IOException e) {
+                return;
+            }
+            LOG.info("Port {} of ServerNode {} accepts connections", port, serverNode.serverId);
+            serverNode.setActive(true);
+        }, PROBE_MILLIS, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -20,16 +20,23 @@
  */
 package edu.umich.order.legolas.orchestrator.system;
 
+import edu.umich.order.legolas.common.api.FaultInjectorRemote;
+import edu.umich.order.legolas.common.api.OrchestratorRemote;
+import edu.umich.order.legolas.common.api.RegistryFactory;
 import edu.umich.order.legolas.orchestrator.Orchestrator;
 import edu.umich.order.legolas.orchestrator.server.MegaServer;
 import java.io.File;
 import java.io.IOException;
+import java.util.regex.Matcher;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  *
@@ -49,10 +56,15 @@ public abstract class ServerNode {
     protected volatile boolean injected = false;
     protected volatile boolean active = false;    // ready to accept client workloads
 
+    protected volatile String role = null;  // e.g., leader or follower, null if unknown
+
     protected volatile long pid = -1;
     protected volatile LogMonitor logMonitor = null;
 
-    protected final CountDownLatch activeLatch = new CountDownLatch(1);
+    // completed by whichever readiness signal comes first: the agent ready hook, the ready
+    // pattern in the log, or the port probe
+    protected final CompletableFuture<ServerNode> readyFuture = new CompletableFuture<>();
+    private volatile ScheduledFuture<?> portProbe = null;
 
     public ServerNode(final MegaServer megaServer, final Orchestrator orchestrator,
             final int trialId, final int serverId, final int instanceId) {
@@ -102,6 +114,58 @@ public abstract class ServerNode {
 
     protected abstract LogMonitor getLogMonitor() throws Exception;
 
+    /**
+     * @return the log line pattern indicating that the server is ready, or null if there is none
+     */
+    protected String getReadyLogPattern() {
+        return null;
+    }
+
+    /**
+     * @return the log line patterns indicating that the server is ready, any of which is enough
+     */
+    protected String[] getReadyLogPatterns() {
+        final String pattern = getReadyLogPattern();
+        return pattern == null ? new String[0] : new String[] {pattern};
+    }
+
+    /**
+     * @return the log line pattern of the lines telling the role of the server, or null if the
+     * role is not tracked
+     */
+    protected String getRoleLogPattern() {
+        return orchestrator.roleLogPattern;
+    }
+
+    /**
+     * @return the role told by a line containing the role pattern, or null if there is none
+     */
+    protected String parseRole(final String line) {
+        if (orchestrator.rolePattern == null) {
+            return null;
+        }
+        final Matcher matcher = orchestrator.rolePattern.matcher(line);
+        return matcher.find() ? matcher.group(orchestrator.roleGroup) : null;
+    }
+
+    final void onRoleLogLine(final String line) {
+        final String newRole = parseRole(line);
+        if (newRole != null && !newRole.equals(role)) {
+            role = newRole;
+            LOG.info("ServerNode {} instance {} is now {}", serverId, instanceId, newRole);
+            try {
+                megaServer.setRole(serverId, newRole);
+            } catch (final RuntimeException e) {
+                // invoked by the log reactor, which must keep running
+                LOG.warn("Failed to publish the role of ServerNode {}", serverId, e);
+            }
+        }
+    }
+
+    public final String getRole() {
+        return role;
+    }
+
     public final synchronized void purgePersistentData() throws IOException {
         final File file = new File(getPersistentDataPathName());
         if (file.exists()) {
@@ -109,15 +173,49 @@ public abstract class ServerNode {
         }
     }
 
-    public synchronized void start() throws Exception {
-        new File(getLogDirPathName()).mkdirs();
+    /**
+     * The server id is passed to server.sh both as an argument and as the sid token in the
+     * environment, so that the agent in the target process registers under this node even when
+     * other nodes are starting at the same time. The trial id is passed in the environment too,
+     * so that the injector service ignores the agents of the trials it no longer runs.
+     */
+    protected final ProcessBuilder getServerProcessBuilder() {
         final ProcessBuilder pb = new ProcessBuilder();
         pb.command("bash", orchestrator.workspacePathName + "/server.sh",
                 String.valueOf(trialId), String.valueOf(serverId), String.valueOf(instanceId));
+        pb.environment().put(OrchestratorRemote.SID_TOKEN_ENV, String.valueOf(serverId));
+        pb.environment().put(OrchestratorRemote.TRIAL_TOKEN_ENV, String.valueOf(trialId));
+        pb.environment().put(RegistryFactory.RMI_PORT_ENV, String.valueOf(megaServer.getRmiPort()));
+        if (orchestrator.queryDeadlineMicros > 0) {
+            pb.environment().put(FaultInjectorRemote.QUERY_DEADLINE_ENV,
+                    String.valueOf(orchestrator.queryDeadlineMicros));
+            pb.environment().put(FaultInjectorRemote.LATE_DECISION_ENV, orchestrator.lateDecision);
+        }
+        if (megaServer.getInjectorPort() > 0) {
+            pb.environment().put(RegistryFactory.INJECTOR_PORT_ENV,
+                    String.valueOf(megaServer.getInjectorPort()));
+        }
         pb.redirectErrorStream(true);
-        megaServer.prepareNodeStart(serverId);
+        return pb;
+    }
+
+    /**
+     * Prepare the registration and the readiness probes of this node, right before launching it.
+     */
+    protected final void prepareStart() {
+        megaServer.prepareNodeStart(serverId, () -> setActive(true));
+        final int port = orchestrator.getReadyProbePort(serverId);
+        if (port > 0) {
+            portProbe = PortProbe.schedule(this, orchestrator.readyProbeHost, port);
+        }
+    }
+
+    public synchronized void start() throws Exception {
+        new File(getLogDirPathName()).mkdirs();
+        final ProcessBuilder pb = getServerProcessBuilder();
+        prepareStart();
         pb.start();
-        pid = megaServer.getRecentPid();
+        pid = megaServer.waitForPid(serverId);
         if (pid == -1) {
             throw new Exception("Fail to receive PID from ServerNode "
                 + serverId + ". This may happen because the target is not instrumented..");
@@ -139,34 +237,65 @@ public abstract class ServerNode {
         return true; // FIXME: should check pid in system processes, by kill -0 PID?
     }
 
+    /**
+     * @return whether the process of a started node has exited without being shut down
+     */
+    public final synchronized boolean isCrashed() {
+        if (!started || pid == -1) {
+            return false;
+        }
+        try {
+            return Runtime.getRuntime().exec("kill -0 " + pid).waitFor() != 0;
+        } catch (final Exception e) {
+            LOG.warn("Failed to check the process of ServerNode {}", serverId, e);
+            return false;
+        }
+    }
+
     public final synchronized boolean isInjected() {
         return injected;
     }
 
-    public final synchronized boolean isActive() {
+    public final boolean isActive() {
         return active;
     }
 
+    public final CompletableFuture<ServerNode> getReadyFuture() {
+        return readyFuture;
+    }
+
     public final boolean waitActive(long timeoutMS) {
         boolean ret;
         try {
             if (timeoutMS > 0) {
-                ret = activeLatch.await(timeoutMS, TimeUnit.MILLISECONDS);
+                readyFuture.get(timeoutMS, TimeUnit.MILLISECONDS);
             }
             else {
-                activeLatch.await();
-                ret = true;
+                readyFuture.get();
             }
-        } catch (InterruptedException e) {
+            ret = true;
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
             ret = false;
         }
         return ret;
     }
 
-    public final synchronized void setActive(boolean yes) {
+    /*
+     * Not synchronized, since it is invoked from the log reactor and the probe threads while
+     * start() may still hold the lock of this node.
+     */
+    public final void setActive(boolean yes) {
         active = yes;
-        if (yes) {
-            activeLatch.countDown();
+        if (yes && readyFuture.complete(this)) {
+            LOG.info("ServerNode {} instance {} is now ready", serverId, instanceId);
+            cancelPortProbe();
+        }
+    }
+
+    private void cancelPortProbe() {
+        final ScheduledFuture<?> probe = portProbe;
+        if (probe != null) {
+            probe.cancel(false);
         }
     }
 
@@ -200,9 +329,9 @@ public abstract class ServerNode {
         setStatus("halt");
         LOG.info("Server node {} of instance id {} terminated", serverId, instanceId);
         started = false;
+        cancelPortProbe();
         if (orchestrator.useLogMonitor) {
             logMonitor.shutdown();
-            logMonitor.join();
         }
     }
 }
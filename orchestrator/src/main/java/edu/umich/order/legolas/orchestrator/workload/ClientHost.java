@@ -0,0 +1,158 @@
+/*
+ *  @author Haoze Wu <haoze@jhu.edu>
+ *
+ *  The Legolas Project
+ *
+ *  Copyright (c) 2024, University of Michigan, EECS, OrderLab.
+ *      All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.umich.order.legolas.orchestrator.workload;
+
+import edu.umich.order.legolas.common.api.OrchestratorRemote.DriverHostCommand;
+import edu.umich.order.legolas.common.api.RegistryFactory;
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The orchestrator side of a driver host, which runs all the clients of a trial in one JVM
+ * launched with host.sh, instead of one client.sh JVM for each client. The clients share the fate
+ * of the host: if it exits by itself, e.g., when a driver calls System.exit, the clients still
+ * running are lost and the trial is aborted.
+ */
+public final class ClientHost {
+    private static final Logger LOG = LoggerFactory.getLogger(ClientHost.class);
+
+    public final int hostId;
+    private final String trialDir;
+    private final BlockingQueue<DriverHostCommand> commands = new LinkedBlockingQueue<>();
+    private final ConcurrentMap<Integer, ClientWorkload> running = new ConcurrentHashMap<>();
+
+    private Process process = null;
+    private volatile long pid = -1;
+    private volatile boolean closed = false;
+    private volatile boolean lost = false;
+
+    public ClientHost(final int hostId, final String trialDir) {
+        this.hostId = hostId;
+        this.trialDir = trialDir;
+    }
+
+    public synchronized void start(final String workspacePathName, final int rmiPort)
+            throws Exception {
+        final ProcessBuilder pb = new ProcessBuilder();
+        pb.command("bash", workspacePathName + "/host.sh", String.valueOf(hostId));
+        pb.environment().put(RegistryFactory.RMI_PORT_ENV, String.valueOf(rmiPort));
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(new File(trialDir + "/client-host.out"));
+        process = pb.start();
+        LOG.info("Driver host {} launched", hostId);
+        final Process started = process;
+        final Thread watcher = new Thread(() -> {
+            try {
+                started.waitFor();
+            } catch (final InterruptedException e) {
+                return;
+            }
+            onExit(started.exitValue());
+        }, "ClientHost-" + hostId);
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private synchronized void onExit(final int exitValue) {
+        if (closed) {
+            return;
+        }
+        lost = true;
+        LOG.error("Driver host {} exited with {} while running clients {}, the trial is aborted",
+                hostId, exitValue, running.keySet());
+        for (final ClientWorkload client : running.values()) {
+            client.notifyHostLost();
+        }
+        running.clear();
+    }
+
+    synchronized void submit(final ClientWorkload client) {
+        if (lost) {
+            client.notifyHostLost();
+            return;
+        }
+        running.put(client.clientId, client);
+        commands.add(new DriverHostCommand(DriverHostCommand.START, client.clientId,
+                trialDir + "/client-" + client.clientId + ".out"));
+    }
+
+    /*
+     * the client stays running until the driver host reports that its main returned
+     */
+    void kill(final ClientWorkload client) {
+        if (running.containsKey(client.clientId)) {
+            commands.add(new DriverHostCommand(DriverHostCommand.KILL, client.clientId, null));
+        }
+    }
+
+    /**
+     * @return the next command for the driver host, or null if there is none before the timeout
+     */
+    public DriverHostCommand poll(final long pid, final long timeoutMillis)
+            throws InterruptedException {
+        if (this.pid != pid) {
+            this.pid = pid;
+            LOG.info("Driver host {} runs with pid {}", hostId, pid);
+        }
+        if (closed) {
+            return new DriverHostCommand(DriverHostCommand.EXIT, -1, null);
+        }
+        return commands.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void onClientFinished(final int clientId) {
+        final ClientWorkload client = running.remove(clientId);
+        if (client != null) {
+            client.notifyHostedFinish();
+        }
+    }
+
+    /*
+     * kill the driver host with all the clients still running in it
+     */
+    public synchronized void shutdown() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (final ClientWorkload client : running.values()) {
+            client.notifyHostedFinish();
+        }
+        running.clear();
+        try {
+            if (pid > 0) {
+                Runtime.getRuntime().exec("kill -9 " + pid).waitFor();
+            }
+        } catch (final Exception e) {
+            LOG.warn("possibly fail to kill driver host {}", hostId, e);
+        }
+        if (process != null) {
+            process.destroyForcibly();
+        }
+        LOG.info("Driver host {} terminated", hostId);
+    }
+}
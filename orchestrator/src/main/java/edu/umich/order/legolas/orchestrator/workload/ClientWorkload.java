@@ -20,6 +20,7 @@
  */
 package edu.umich.order.legolas.orchestrator.workload;
 
+import edu.umich.order.legolas.common.api.RegistryFactory;
 import edu.umich.order.legolas.orchestrator.Orchestrator;
 import java.io.BufferedReader;
 import java.io.FileWriter;
@@ -27,6 +28,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,11 +49,25 @@ public class ClientWorkload extends Thread {
 
     protected final Orchestrator orch;
     protected final int expected; // requests: [0, expected), where expected must be greater than 0
-    protected int progress = 0;
+    protected final AtomicInteger progress = new AtomicInteger(0);
+    private final LongAdder totalLatency = new LongAdder();             // in nanoseconds
+    private final LongAccumulator maxLatency = new LongAccumulator(Long::max, 0);
 
     private final CountDownLatch signal = new CountDownLatch(1);
 
+    // only used when the client runs in a driver host
+    private volatile ClientHost host = null;
+    private final CountDownLatch hostedFinish = new CountDownLatch(1);
+    private volatile boolean killed = false;
+    private volatile boolean hostLost = false;
+
     public void notifyPid(final long pid) {
+        if (host != null) {
+            // the pid is the one of the driver host, which must not be killed with this client
+            LOG.info("client {} started in driver host {}", clientId, host.hostId);
+            signal.countDown();
+            return;
+        }
         this.pid = pid;
         LOG.info("client {} started with pid {}", clientId, pid);
         logger = new Thread(() -> {
@@ -91,15 +109,37 @@ public class ClientWorkload extends Thread {
 
     public void proceed() {
 //        LOG.info("Client {} proceeds", clientId);
-        progress++;
+        if (!killed) {
+            progress.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a batch of finished requests reported by the client
+     */
+    public void proceed(final int count, final long totalDuration, final long maxDuration) {
+        if (killed) {
+            return; // reports still pending in the driver host after the client is killed
+        }
+        progress.addAndGet(count);
+        totalLatency.add(totalDuration);
+        maxLatency.accumulate(maxDuration);
     }
 
     public final boolean isFinished() {
-        return progress == expected;
+        return progress.get() == expected;
+    }
+
+    public final int getProgress() {
+        return progress.get();
+    }
+
+    public final int getExpected() {
+        return expected;
     }
 
     public String getResult() {
-        return "" + progress + "/" + expected;
+        return "" + progress.get() + "/" + expected;
     }
 
     public ClientWorkload(final Orchestrator orch, final int clientId, final String[] command,
@@ -114,21 +154,44 @@ public class ClientWorkload extends Thread {
      * must not be synchronized
      */
     public void shutdown() throws Exception {
-        if (process.isAlive()) {
-            try {
-                if (pid > 0) {
-                    Runtime.getRuntime().exec("kill -9 " + pid).waitFor();
-                } else {
-                    // if pid is not set, directly call process API to kill it
-                    process.destroyForcibly();
+        if (host != null) {
+            if (hostedFinish.getCount() > 0) {
+                killed = true;
+                host.kill(this);
+                if (!hostedFinish.await(orch.driverHostKillGraceMillis, TimeUnit.MILLISECONDS)) {
+                    // it would keep loading the target in the next workloads
+                    host.shutdown();
+                    throw new Exception("client " + clientId + " ignores the kill in driver host "
+                            + host.hostId + ", the trial is aborted");
                 }
-            } catch (final Exception e) {
-                throw new Exception("possibly fail to kill client " + clientId);
+            }
+            if (hostLost) {
+                throw new Exception("driver host " + host.hostId + " exited while running client "
+                        + clientId + ", the trial is aborted");
+            }
+        } else {
+            if (process.isAlive()) {
+                try {
+                    if (pid > 0) {
+                        Runtime.getRuntime().exec("kill -9 " + pid).waitFor();
+                    } else {
+                        // if pid is not set, directly call process API to kill it
+                        process.destroyForcibly();
+                    }
+                } catch (final Exception e) {
+                    throw new Exception("possibly fail to kill client " + clientId);
+                }
+            }
+            if (logger != null) {
+                logger.interrupt();
+                logger.join();
             }
         }
-        if (logger != null) {
-            logger.interrupt();
-            logger.join();
+        final int finished = progress.get();
+        if (finished > 0) {
+            LOG.info("client {} finished {}/{} requests, mean latency {} us, max latency {} us",
+                clientId, finished, expected, totalLatency.sum() / finished / 1000,
+                maxLatency.get() / 1000);
         }
     }
 
@@ -143,10 +206,47 @@ public class ClientWorkload extends Thread {
     public void onClientStarted(Process process) {}
     public void onClientFinish() {}
 
+    /**
+     * @return whether this client can run its client.sh command in the driver host
+     */
+    protected boolean isHostable() {
+        return true;
+    }
+
+    void notifyHostedFinish() {
+        hostedFinish.countDown();
+    }
+
+    void notifyHostLost() {
+        hostLost = true;
+        hostedFinish.countDown();
+    }
+
+    private void runHosted() {
+        try {
+            host = orch.getClientHost();
+        } catch (final Exception e) {
+            LOG.warn("Fail to get the driver host for client {}", clientId, e);
+            return;
+        }
+        host.submit(this);
+        try {
+            hostedFinish.await();
+        } catch (final InterruptedException e) {
+            return;
+        }
+        onClientFinish();
+    }
+
     @Override
     public void run() {
+        if (orch.useDriverHost && isHostable()) {
+            runHosted();
+            return;
+        }
         final ProcessBuilder pb = new ProcessBuilder();
         pb.command("bash", orch.workspacePathName + "/" + clientScriptName(), clientScriptArgs());
+        pb.environment().put(RegistryFactory.RMI_PORT_ENV, String.valueOf(orch.getRmiPort()));
         pb.redirectErrorStream(true);
         try {
             process = pb.start();
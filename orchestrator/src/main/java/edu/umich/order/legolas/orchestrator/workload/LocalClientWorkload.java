@@ -52,6 +52,11 @@ public class LocalClientWorkload extends ClientWorkload {
         return commandArgs;
     }
 
+    @Override
+    protected boolean isHostable() {
+        return false;
+    }
+
     @Override
     public void onClientStarted(Process process) {
         // pid() method is only available on Java 9+
@@ -40,6 +40,11 @@ public abstract class Workload {
         clients.get(clientId).proceed();
     }
 
+    public final void proceed(final int clientId, final int count, final long totalDuration,
+            final long maxDuration) {
+        clients.get(clientId).proceed(count, totalDuration, maxDuration);
+    }
+
     public final String[] registerClient(final int clientId, final long pid) {
         final ClientWorkload client = clients.get(clientId);
         client.notifyPid(pid);
@@ -83,6 +88,39 @@ public abstract class Workload {
 
     public abstract void reportResult(final int phase);
 
+    /**
+     * @return one character per client in client id order, 1 if it finished and 0 otherwise
+     */
+    public final String getOutcome() {
+        final StringBuilder builder = new StringBuilder();
+        for (final ClientWorkload client : clients.values()) {
+            builder.append(client.isFinished() ? '1' : '0');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the requests finished by all the clients
+     */
+    public final int getProgress() {
+        int sum = 0;
+        for (final ClientWorkload client : clients.values()) {
+            sum += client.getProgress();
+        }
+        return sum;
+    }
+
+    /**
+     * @return the requests expected from all the clients
+     */
+    public final int getExpected() {
+        int sum = 0;
+        for (final ClientWorkload client : clients.values()) {
+            sum += client.getExpected();
+        }
+        return sum;
+    }
+
     public final boolean isFinished() {
         for (final ClientWorkload client : clients.values()) {
             if (!client.isFinished()) {
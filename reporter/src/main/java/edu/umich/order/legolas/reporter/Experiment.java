@@ -152,7 +152,8 @@ public class Experiment {
                 // determined by orchestrator & its log4j.properties
                 if (line.contains(" - injected in ")) {
                     final Matcher matcher = injectionServerPattern.matcher(line);
-                    if (matcher.find()) {
+                    // the first injection of a multi-fault trial stands for the trial
+                    if (matcher.find() && trial.injectedServer == -1) {
                         trial.injectedServer = Integer.parseInt(line.substring(
                                 matcher.start() + "server=".length(), matcher.end() - 1));
                     }
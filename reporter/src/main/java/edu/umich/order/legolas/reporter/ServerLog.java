@@ -51,6 +51,22 @@ public final class ServerLog {
 
     public long injectionTime = -1;
 
+    /**
+     * An injection in this server; a trial may inject several faults
+     */
+    public static final class Injection {
+        public final int server;
+        public String[] stacktrace = null;
+        public long time = -1;
+
+        public Injection(final int server) {
+            this.server = server;
+        }
+    }
+
+    // in the order of the log
+    public final ArrayList<Injection> injections = new ArrayList<>();
+
     public static final Pattern stacktracePattern =
             Pattern.compile("\\[(\\([^(]+,.+,-*[0-9]+\\), )+\\]", Pattern.CASE_INSENSITIVE);
 
@@ -95,10 +111,8 @@ public final class ServerLog {
                     instance.role = role;
                 // determined in LegolasAgent
                 if (line.contains("stack trace") && line.contains("injection")) {
-                    if (instance.injectionStacktrace != null) {
-                        LOG.error("More than one injections found in {}", path);
-                        continue;
-                    }
+                    final Injection injection = new Injection(id);
+                    instance.injections.add(injection);
                     final Matcher matcher = stacktracePattern.matcher(line);
                     if (matcher.find()) {
                         final ArrayList<String> stacktrace = new ArrayList<>();
@@ -110,18 +124,20 @@ public final class ServerLog {
                             }
                         }
                         Collections.reverse(stacktrace);
-                        instance.injectionStacktrace = new String[stacktrace.size()];
-                        for (int i = 0; i < instance.injectionStacktrace.length; i++) {
-                            instance.injectionStacktrace[i] = stacktrace.get(i);
+                        injection.stacktrace = new String[stacktrace.size()];
+                        for (int i = 0; i < injection.stacktrace.length; i++) {
+                            injection.stacktrace[i] = stacktrace.get(i);
                         }
                     }
                     try {
-                        instance.injectionTime = Experiment.getTime(line, server.timestampPattern);
+                        injection.time = Experiment.getTime(line, server.timestampPattern);
                     } catch (ParseException e) {
                         LOG.error("Failed to extract injection time from {}: {}", line, e);
                     }
-                } else if (line.contains("LegolasAgent injecting") &&
-                        instance.injectionStacktrace == null && previousLine != null) {
+                } else if (line.contains("LegolasAgent injecting") && previousLine != null &&
+                        (instance.injections.isEmpty() ||
+                                instance.injections.get(instance.injections.size() - 1)
+                                        .stacktrace == null)) {
                     // for incomplete stack trace due to log length constraint
                     int p = previousLine.length() - 1;
                     if (p > 0 && previousLine.charAt(p) == ']') {
@@ -169,9 +185,14 @@ public final class ServerLog {
                             stacktrace.add(previousLine.substring(p + 1, ending - 1));
                         }
                         if (!stacktrace.isEmpty()) {
-                            instance.injectionStacktrace = new String[stacktrace.size()];
-                            for (int i = 0; i < instance.injectionStacktrace.length; i++) {
-                                instance.injectionStacktrace[i] = stacktrace.get(i);
+                            if (instance.injections.isEmpty()) {
+                                instance.injections.add(new Injection(id));
+                            }
+                            final Injection injection =
+                                    instance.injections.get(instance.injections.size() - 1);
+                            injection.stacktrace = new String[stacktrace.size()];
+                            for (int i = 0; i < injection.stacktrace.length; i++) {
+                                injection.stacktrace[i] = stacktrace.get(i);
                             }
                         }
                     }
@@ -181,6 +202,11 @@ public final class ServerLog {
                 }
             }
         }
+        if (!instance.injections.isEmpty()) {
+            // the first injection stands for the server
+            instance.injectionStacktrace = instance.injections.get(0).stacktrace;
+            instance.injectionTime = instance.injections.get(0).time;
+        }
         instance.valid = true;
         LOG.debug("Server {}: role={}, ready={}, crashed={}", instance.id, instance.role,
                 instance.ready, instance.crashed);
@@ -22,6 +22,7 @@ package edu.umich.order.legolas.reporter;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -47,6 +48,8 @@ public final class Trial {
     public long injectionTime = -1;
     public int severityScore = -1;
     public String[] injectionStacktrace = null;
+    // all the injections of the trial in time order; the first one is also recorded above
+    public final List<ServerLog.Injection> injections = new ArrayList<>();
 
     public boolean invalid = false;
 
@@ -72,18 +75,22 @@ public final class Trial {
             final ServerLog serverLog = ServerLog.parse(spec, server.id,
                     trialPath + "/logs-" + server.id, server.logFilePattern);
             this.servers.add(serverLog);
-            if (serverLog.injectionStacktrace != null) {
-                if (this.injectionStacktrace == null) {
-                    this.injectionStacktrace = serverLog.injectionStacktrace;
-                    this.injectionTime = serverLog.injectionTime;
-                    if (this.injectedServer == -1) {
-                        this.injectedServer = server.id;
-                    }
-                } else {
-                    LOG.error("injection in multiple servers in trial {}", id);
+            injections.addAll(serverLog.injections);
+        }
+        injections.sort(Comparator.comparingLong(injection -> injection.time));
+        for (final ServerLog.Injection injection : injections) {
+            if (injection.stacktrace != null) {
+                this.injectionStacktrace = injection.stacktrace;
+                this.injectionTime = injection.time;
+                if (this.injectedServer == -1) {
+                    this.injectedServer = injection.server;
                 }
+                break;
             }
         }
+        if (injections.size() > 1) {
+            LOG.debug("{} injections in trial {}", injections.size(), id);
+        }
         int counter = 0;
         int is = (spec.masterMode && injectedServer != -1) ? 1: injectedServer;
         outerloop:
@@ -259,6 +266,12 @@ public final class Trial {
         } else {
             injected.add("id", -1);
         }
+        final JsonArrayBuilder allInjected = Json.createArrayBuilder();
+        for (final ServerLog.Injection injection : injections) {
+            allInjected.add(Json.createObjectBuilder()
+                    .add("id", injection.server)
+                    .add("time_since_trial", injection.time > 0 ? injection.time - time : -1));
+        }
 
         return Json.createObjectBuilder()
                 .add("id", this.id)
@@ -267,6 +280,7 @@ public final class Trial {
                 .add("workload", workloads)
                 .add("stacktrace", stacktrace)
                 .add("injected_server", injected.build())
+                .add("injections", allInjected)
                 .add("exposed_bugs", bugs);
     }
 
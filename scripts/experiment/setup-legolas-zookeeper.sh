@@ -138,6 +138,9 @@ snapCount=$snapCount
 trialTimeout=7000
 warmupMillis=1000
 useLogMonitor=true
+parallelStartup=true
+waitReady=true
+driverHost=false
 maxTrials=3
 failTrialRetries=2
 maxTotalRetries=10
@@ -154,7 +157,7 @@ done
 mkdir $workspace/trials
 
 echo "#!/bin/bash
-ZOOCFGDIR=$workspace/conf-\$2 ZOO_LOG_DIR=$workspace/trials/\$1/logs-\$2 $zk_dir/bin/zkServer.sh start
+LEGOLAS_SID=\$2 ZOOCFGDIR=$workspace/conf-\$2 ZOO_LOG_DIR=$workspace/trials/\$1/logs-\$2 $zk_dir/bin/zkServer.sh start
 " > $workspace/server.sh
 chmod +x $workspace/server.sh
 
@@ -163,6 +166,11 @@ java -cp $workspace/conf-1:$zk_client_jar_file $zk_client_jar_main \$@
 " > $workspace/client.sh
 chmod +x $workspace/client.sh
 
+echo "#!/bin/bash
+exec java -cp $workspace/conf-1:$zk_client_jar_file edu.umich.order.legolas.common.driver.DriverHost $zk_client_jar_main \$@
+" > $workspace/host.sh
+chmod +x $workspace/host.sh
+
 echo "#!/bin/bash
 if [ \$# -eq 1 ]; then
   port=\$(($clientPortBase+\$1))